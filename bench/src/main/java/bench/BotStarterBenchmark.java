@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bot.BotStarter;
+import bot.BotState;
+import move.AttackTransferMove;
+import move.PlaceArmiesMove;
+
+/**
+ * BotStarter's decisions on a game position. No timeOut is given, so the anytime refinements are
+ * skipped and only the heuristics are measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BotStarterBenchmark {
+
+	@State(Scope.Thread)
+	public static class Position {
+
+		BotState state;
+		BotStarter bot;
+
+		@Setup(Level.Trial)
+		public void create(Scenario scenario) {
+			state = scenario.createState();
+			bot = new BotStarter();
+			bot.getPlaceArmiesMoves(state, null); //the attack phase uses what the placement phase saw
+		}
+	}
+
+	@Benchmark
+	public ArrayList<PlaceArmiesMove> getPlaceArmiesMoves(Position position) {
+		return position.bot.getPlaceArmiesMoves(position.state, null);
+	}
+
+	@Benchmark
+	public ArrayList<AttackTransferMove> getAttackTransferMoves(Position position) {
+		return position.bot.getAttackTransferMoves(position.state, null);
+	}
+
+}
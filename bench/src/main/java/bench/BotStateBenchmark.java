@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bot.BotState;
+
+/**
+ * BotState reading the map setup, map updates and opponent moves, from already split lines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BotStateBenchmark {
+
+	@State(Scope.Thread)
+	public static class SetUpState {
+
+		BotState state;
+		int round;
+
+		@Setup(Level.Trial)
+		public void create(Scenario scenario) {
+			state = scenario.createState();
+		}
+	}
+
+	@Benchmark
+	public BotState setupMap(Scenario scenario) {
+		BotState state = new BotState();
+		for (String[] input : scenario.setupInputs) {
+			state.setupMap(input);
+		}
+		return state;
+	}
+
+	@Benchmark
+	public BotState updateMap(Scenario scenario, SetUpState setUp) {
+		setUp.round++;
+		setUp.state.updateMap(scenario.updateInputs[setUp.round & 1]);
+		return setUp.state;
+	}
+
+	@Benchmark
+	public BotState readOpponentMoves(Scenario scenario, SetUpState setUp) {
+		setUp.state.readOpponentMoves(scenario.opponentMovesInput);
+		return setUp.state;
+	}
+
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import main.Map;
+
+/**
+ * Copying the visible map of a game position.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MapBenchmark {
+
+	@State(Scope.Thread)
+	public static class VisibleMap {
+
+		Map map;
+
+		@Setup(Level.Trial)
+		public void create(Scenario scenario) {
+			map = scenario.createState().getVisibleMap();
+		}
+	}
+
+	@Benchmark
+	public Map getMapCopy(VisibleMap visibleMap) {
+		return visibleMap.map.getMapCopy();
+	}
+
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import bot.BotParser;
+import bot.BotStarter;
+
+/**
+ * BotParser reading a game's settings, map setup and a few rounds of map updates and opponent moves.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserBenchmark {
+
+	private static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	@Benchmark
+	public BotParser parseGame(Scenario scenario) {
+		BotParser parser = new BotParser(new BotStarter(), new ByteArrayInputStream(scenario.gameScript), DISCARD);
+		parser.run();
+		return parser;
+	}
+
+}
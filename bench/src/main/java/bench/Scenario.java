@@ -0,0 +1,198 @@
+package bench;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bot.BotState;
+import engine.MapGenerator;
+import engine.WorldMap;
+import main.Map;
+import main.Region;
+
+/**
+ * The protocol input of one game position, on the world map (42 regions) or a map of MapGenerator. The bot
+ * owns a connected tenth of the map and the opponent another one bordering it; the two map updates differ in the
+ * regions the bot won in between, so alternating them changes owners like a real round does.
+ */
+@State(Scope.Benchmark)
+public class Scenario {
+
+	public static final String ME = "player1";
+	public static final String OPPONENT = "player2";
+	public static final int STARTING_ARMIES = 5;
+	public static final int WORLD_MAP_REGIONS = 42;
+	public static final long MAP_SEED = 1;
+
+	@Param({"42", "500", "5000", "50000"})
+	public int regions;
+
+	String[] settingsLines;
+	String[] setupLines;
+	String[][] setupInputs;
+	String[][] updateInputs; //two map updates, before and after the bot won a few regions
+	String[] opponentMovesInput;
+	byte[] gameScript; //settings, setup and a few rounds of updates and opponent moves, no requests for moves
+
+	@Setup(Level.Trial)
+	public void create() throws UnsupportedEncodingException {
+		settingsLines = new String[] {
+			"settings your_bot " + ME,
+			"settings opponent_bot " + OPPONENT,
+			"settings starting_armies " + STARTING_ARMIES
+		};
+		setupLines = regions == WORLD_MAP_REGIONS ? WorldMap.SETUP_MAP : generatedSetupLines(regions);
+		setupInputs = split(setupLines);
+
+		BotState topology = new BotState();
+		for (String[] input : setupInputs) {
+			topology.setupMap(input);
+		}
+		Map map = topology.getFullMap();
+		int[] owners = new int[map.getRegionCount()]; //0 neutral, 1 me, 2 opponent
+		claim(map, owners, 0, 1, map.getRegionCount() / 10);
+		claim(map, owners, borderRegion(map, owners), 2, map.getRegionCount() / 10);
+		String before = updateLine(map, owners);
+		claim(map, owners, 0, 1, map.getRegionCount() / 50);
+		String after = updateLine(map, owners);
+		updateInputs = new String[][] { before.split(" "), after.split(" ") };
+		String opponentMoves = opponentMovesLine(map, owners);
+		opponentMovesInput = opponentMoves.split(" ");
+
+		StringBuilder script = new StringBuilder();
+		for (String line : settingsLines) {
+			script.append(line).append('\n');
+		}
+		for (String line : setupLines) {
+			script.append(line).append('\n');
+		}
+		for (int round = 0; round < 5; round++) {
+			script.append(round % 2 == 0 ? before : after).append('\n');
+			script.append(opponentMoves).append('\n');
+		}
+		gameScript = script.toString().getBytes("US-ASCII");
+	}
+
+	/**
+	 * @return A BotState with the settings, the map and the first map update read
+	 */
+	BotState createState() {
+		BotState state = new BotState();
+		for (String line : settingsLines) {
+			String[] parts = line.split(" ");
+			state.updateSettings(parts[1], parts[2]);
+		}
+		for (String[] input : setupInputs) {
+			state.setupMap(input);
+		}
+		state.updateMap(updateInputs[0]);
+		return state;
+	}
+
+	private static String[] generatedSetupLines(int regions) {
+		MapGenerator generator = new MapGenerator(MAP_SEED);
+		generator.setRegionCount(regions);
+		return generator.getSetupLines();
+	}
+
+	private static String[][] split(String[] lines) {
+		String[][] inputs = new String[lines.length][];
+		for (int i = 0; i < lines.length; i++) {
+			inputs[i] = lines[i].split(" ");
+		}
+		return inputs;
+	}
+
+	//breadth first from the start, gives the owner to up to count more regions that are still neutral
+	private static void claim(Map map, int[] owners, int start, int owner, int count) {
+		count = Math.max(count, 3);
+		boolean[] seen = new boolean[owners.length];
+		ArrayDeque<Region> queue = new ArrayDeque<Region>();
+		queue.add(map.getRegionAt(start));
+		seen[start] = true;
+		while (!queue.isEmpty() && count > 0) {
+			Region region = queue.poll();
+			int index = region.getIndex();
+			if (owners[index] == 0) {
+				owners[index] = owner;
+				count--;
+			}
+			else if (owners[index] != owner) {
+				continue;
+			}
+			for (Region neighbor : region.getNeighbors()) {
+				if (!seen[neighbor.getIndex()]) {
+					seen[neighbor.getIndex()] = true;
+					queue.add(neighbor);
+				}
+			}
+		}
+	}
+
+	//a neutral region next to the bot's, so the opponent's regions border the bot's like in a real game
+	private static int borderRegion(Map map, int[] owners) {
+		for (Region region : map.getRegions()) {
+			if (owners[region.getIndex()] == 0 && isVisible(region, owners)) {
+				return region.getIndex();
+			}
+		}
+		return map.getRegionCount() - 1;
+	}
+
+	//the regions of the bot and their neighbors
+	private static String updateLine(Map map, int[] owners) {
+		StringBuilder line = new StringBuilder("update_map");
+		for (Region region : map.getRegions()) {
+			if (!isVisible(region, owners)) {
+				continue;
+			}
+			int owner = owners[region.getIndex()];
+			line.append(' ').append(region.getId());
+			line.append(' ').append(owner == 1 ? ME : owner == 2 ? OPPONENT : "neutral");
+			line.append(' ').append(owner == 0 ? 2 : 5);
+		}
+		return line.toString();
+	}
+
+	//the opponent places on and attacks from its regions the bot can see
+	private static String opponentMovesLine(Map map, int[] owners) {
+		StringBuilder line = new StringBuilder("opponent_moves");
+		for (Region region : map.getRegions()) {
+			if (owners[region.getIndex()] != 2 || !isVisible(region, owners)) {
+				continue;
+			}
+			line.append(' ').append(OPPONENT).append(" place_armies ").append(region.getId()).append(" 2");
+			List<Region> targets = new ArrayList<Region>();
+			for (Region neighbor : region.getNeighbors()) {
+				if (owners[neighbor.getIndex()] == 1) {
+					targets.add(neighbor);
+				}
+			}
+			if (!targets.isEmpty()) {
+				line.append(' ').append(OPPONENT).append(" attack/transfer ").append(region.getId())
+					.append(' ').append(targets.get(0).getId()).append(" 3");
+			}
+		}
+		return line.toString();
+	}
+
+	private static boolean isVisible(Region region, int[] owners) {
+		if (owners[region.getIndex()] == 1) {
+			return true;
+		}
+		for (Region neighbor : region.getNeighbors()) {
+			if (owners[neighbor.getIndex()] == 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,21 @@
+package bot;
+
+/**
+ * A decision that starts from a cheap answer and can be improved step by step. Every step must be
+ * short, or check the deadline itself, so the best answer can be returned in time.
+ */
+public interface AnytimeTask<T> {
+
+	/**
+	 * Improves the current answer a little
+	 * @param deadline : the deadline of the whole decision
+	 * @return False if the answer can't be improved anymore
+	 */
+	public boolean refine(Deadline deadline);
+
+	/**
+	 * @return The best answer found so far
+	 */
+	public T getBest();
+
+}
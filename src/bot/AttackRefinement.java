@@ -0,0 +1,82 @@
+package bot;
+
+import main.Map;
+import main.Players;
+import main.Region;
+import move.MoveBuffer;
+import move.PackedMove;
+
+/**
+ * Refines attacks that are too weak to capture their target with the wanted chance, by adding
+ * armies their region has left over, including the ones placed there this round.
+ */
+class AttackRefinement implements AnytimeTask<MoveBuffer> {
+
+	private final MoveBuffer moves;
+	private final Map map;
+	private final BattleTable battleTable;
+	private final double successRate;
+	private final int[] spare; //per region index, armies not used by any move yet
+	private int next; //position of the next move to refine
+	private boolean changedInPass;
+
+	/**
+	 * @param moves : PackedMoves between the regions of the map, refined in place
+	 * @param placedArmies : per region index, armies placed this round
+	 */
+	AttackRefinement(MoveBuffer moves, Map map, int[] placedArmies, BattleTable battleTable, double successRate) {
+		this.moves = moves;
+		this.map = map;
+		this.battleTable = battleTable;
+		this.successRate = successRate;
+		this.spare = new int[placedArmies.length];
+
+		int[] committed = new int[placedArmies.length];
+		for (int i = 0; i < moves.size(); i++) {
+			committed[PackedMove.getFrom(moves.get(i))] += PackedMove.getArmies(moves.get(i));
+		}
+		for (int i = 0; i < moves.size(); i++) {
+			int index = PackedMove.getFrom(moves.get(i));
+			spare[index] = Math.max(0, map.getRegionAt(index).getArmies() + placedArmies[index] - 1 - committed[index]);
+		}
+	}
+
+	@Override
+	public boolean refine(Deadline deadline) {
+		if (next == moves.size()) {
+			if (!changedInPass) {
+				return false;
+			}
+			next = 0;
+			changedInPass = false;
+		}
+		if (moves.isEmpty()) {
+			return false;
+		}
+
+		int position = next++;
+		long move = moves.get(position);
+		Region toRegion = map.getRegionAt(PackedMove.getTo(move));
+		int index = PackedMove.getFrom(move);
+		int defenders = toRegion.getArmies();
+		if (toRegion.ownedByPlayer(Players.ME) || spare[index] == 0 || defenders > battleTable.getMaxArmies()) {
+			return true;
+		}
+
+		int needed = battleTable.getMinAttackers(defenders, successRate);
+		int armies = PackedMove.getArmies(move);
+		if (needed > armies) {
+			int extra = Math.min(needed - armies, spare[index]);
+			moves.set(position, PackedMove.withArmies(move, armies + extra));
+			spare[index] -= extra;
+			changedInPass = true;
+		}
+		return true;
+	}
+
+	@Override
+	public MoveBuffer getBest() {
+		return moves;
+	}
+
+}
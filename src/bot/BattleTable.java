@@ -0,0 +1,132 @@
+package bot;
+
+/**
+ * Exact battle outcomes for every (attackers, defenders) pair up to a maximum number of armies.
+ * In a battle each attacking army destroys one defending army with a 60% chance and each defending
+ * army destroys one attacking army with a 70% chance. The region is captured when all defenders are
+ * destroyed and at least one attacker survives. The binomial distributions of both kill counts are
+ * built by dynamic programming once, and everything else is a lookup in flat primitive arrays.
+ */
+public class BattleTable {
+
+	public static final double ATTACKER_KILL_RATE = 0.6;
+	public static final double DEFENDER_KILL_RATE = 0.7;
+	public static final int DEFAULT_MAX_ARMIES = 200;
+
+	private static final int PERCENTS = 101; //minimum attackers are stored for every success chance 0% to 100%
+
+	/** Table for the standard kill rates, shared because it is never modified */
+	public static final BattleTable DEFAULT = new BattleTable(DEFAULT_MAX_ARMIES, ATTACKER_KILL_RATE, DEFENDER_KILL_RATE);
+
+	private final int maxArmies;
+	private final int size; //maxArmies + 1, row length of the tables
+	private final float[] captureChance; //[attackers * size + defenders]
+	private final float[] expectedOccupyingArmies; //[attackers * size + defenders], armies that move in, 0 if not captured
+	private final short[] minAttackers; //[percent * size + defenders], -1 if more than maxArmies are needed
+
+	/**
+	 * @param maxArmies : largest number of attackers and defenders in the table
+	 * @param attackerKillRate : chance for each attacking army to destroy a defender
+	 * @param defenderKillRate : chance for each defending army to destroy an attacker
+	 */
+	public BattleTable(int maxArmies, double attackerKillRate, double defenderKillRate) {
+		if(maxArmies < 1 || maxArmies > Short.MAX_VALUE)
+			throw new IllegalArgumentException("maxArmies must be between 1 and " + Short.MAX_VALUE);
+		this.maxArmies = maxArmies;
+		this.size = maxArmies + 1;
+		this.captureChance = new float[size * size];
+		this.expectedOccupyingArmies = new float[size * size];
+		this.minAttackers = new short[PERCENTS * size];
+
+		//attackersKillAtLeast[a * size + d]: chance that a attackers destroy at least d defenders
+		double[] attackersKillAtLeast = tailDistribution(attackerKillRate);
+		//defenderKills[d * size + k]: chance that d defenders destroy exactly k attackers
+		double[] defenderKills = distribution(defenderKillRate);
+
+		for(int d=0; d<size; d++) {
+			double survivorsBelow = 0; //chance that fewer than a attackers are destroyed
+			double occupyingBelow = 0; //sum over k < a of (a - k) * chance of k destroyed
+			for(int a=0; a<size; a++) {
+				if(a > 0) {
+					survivorsBelow += a - 1 <= d ? defenderKills[d * size + a - 1] : 0;
+					occupyingBelow += survivorsBelow; //every outcome below a gives one more survivor than below a-1
+				}
+				double kill = attackersKillAtLeast[a * size + d];
+				captureChance[a * size + d] = (float) (kill * survivorsBelow);
+				expectedOccupyingArmies[a * size + d] = (float) (kill * occupyingBelow);
+			}
+		}
+
+		for(int d=0; d<size; d++) {
+			int percent = 0;
+			for(int a=0; a<size && percent < PERCENTS; a++) {
+				double chance = captureChance[a * size + d];
+				while(percent < PERCENTS && chance >= percent / 100.0 - 1e-9)
+					minAttackers[percent++ * size + d] = (short) a;
+			}
+			for(; percent < PERCENTS; percent++)
+				minAttackers[percent * size + d] = -1;
+		}
+	}
+
+	//binomial distributions for n = 0..maxArmies trials: [n * size + k] = chance of exactly k successes
+	private double[] distribution(double rate) {
+		double[] pmf = new double[size * size];
+		pmf[0] = 1;
+		for(int n=1; n<size; n++) {
+			for(int k=0; k<=n; k++) {
+				double fail = k < n ? pmf[(n-1) * size + k] * (1 - rate) : 0;
+				double success = k > 0 ? pmf[(n-1) * size + k - 1] * rate : 0;
+				pmf[n * size + k] = fail + success;
+			}
+		}
+		return pmf;
+	}
+
+	//[n * size + k] = chance of at least k successes in n trials
+	private double[] tailDistribution(double rate) {
+		double[] tail = distribution(rate);
+		for(int n=0; n<size; n++) {
+			double atLeast = 0;
+			for(int k=size-1; k>=0; k--) {
+				atLeast += tail[n * size + k];
+				tail[n * size + k] = Math.min(1, atLeast);
+			}
+		}
+		return tail;
+	}
+
+	public int getMaxArmies() {
+		return maxArmies;
+	}
+
+	/**
+	 * @return The chance that the attackers capture the region, both numbers at most getMaxArmies()
+	 */
+	public double getCaptureChance(int attackers, int defenders) {
+		return captureChance[attackers * size + defenders];
+	}
+
+	/**
+	 * @return The expected number of armies that move into the region, counting 0 when it isn't captured
+	 */
+	public double getExpectedOccupyingArmies(int attackers, int defenders) {
+		return expectedOccupyingArmies[attackers * size + defenders];
+	}
+
+	/**
+	 * @param defenders : armies on the attacked region, at most getMaxArmies()
+	 * @param chance : required chance to capture the region, between 0 and 1
+	 * @return The least attackers that capture the region with at least the given chance,
+	 * or -1 if more than getMaxArmies() attackers would be needed
+	 */
+	public int getMinAttackers(int defenders, double chance) {
+		int percent = (int) Math.ceil(chance * 100 - 1e-9);
+		if(percent < 0)
+			percent = 0;
+		else if(percent >= PERCENTS)
+			percent = PERCENTS - 1;
+		return minAttackers[percent * size + defenders];
+	}
+
+}
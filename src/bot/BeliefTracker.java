@@ -0,0 +1,196 @@
+package bot;
+
+import main.GameState;
+import main.Map;
+import main.Players;
+import main.Region;
+import main.SuperRegion;
+
+/**
+ * What the bot believes about every region of the map, including the ones hidden by the fog of war: the
+ * owner and armies it last saw there, and the round it saw them, corrected by the opponent's moves it sees
+ * on hidden regions. The belief in a region fades by DECAY every round it isn't seen. It's updated only
+ * for the regions named in a map update or an opponent move, and keeps the number of regions the opponent
+ * is believed to own per SuperRegion, so the opponent's income is known without a pass over the map.
+ */
+public class BeliefTracker {
+
+	public static final double DECAY = 0.85; //confidence kept per round a region isn't seen
+
+	private final Map map; //the visible map, tells which regions are seen now
+	private final int[] owner;
+	private final int[] armies;
+	private final int[] lastSeenRound; //-1 if never seen
+	private final int[] superRegionOf; //per region, index of its SuperRegion
+	private final int[] superRegionRewards;
+	private final int[] superRegionSizes;
+	private final int[] opponentOwned; //per SuperRegion, regions the opponent is believed to own
+	private int opponentIncome;
+
+	/**
+	 * @param map : the visible map, all regions start unknown and never seen
+	 */
+	public BeliefTracker(Map map)
+	{
+		this.map = map;
+		int regionCount = map.getRegionCount();
+		owner = new int[regionCount];
+		armies = new int[regionCount];
+		lastSeenRound = new int[regionCount];
+		superRegionOf = new int[regionCount];
+		for(int i=0; i<regionCount; i++)
+		{
+			owner[i] = Players.UNKNOWN;
+			lastSeenRound[i] = -1;
+			superRegionOf[i] = map.getRegionAt(i).getSuperRegion().getIndex();
+		}
+		int superRegionCount = map.getSuperRegions().size();
+		superRegionRewards = new int[superRegionCount];
+		superRegionSizes = new int[superRegionCount];
+		opponentOwned = new int[superRegionCount];
+		for(SuperRegion superRegion : map.getSuperRegions())
+		{
+			superRegionRewards[superRegion.getIndex()] = superRegion.getArmiesReward();
+			superRegionSizes[superRegion.getIndex()] = superRegion.getSubRegions().size();
+		}
+		opponentIncome = GameState.BASE_INCOME;
+	}
+
+	/**
+	 * A region was seen with this owner and armies
+	 */
+	public void observe(Region region, int seenOwner, int seenArmies, int round)
+	{
+		int index = region.getIndex();
+		setOwner(index, seenOwner);
+		armies[index] = seenArmies;
+		lastSeenRound[index] = round;
+	}
+
+	/**
+	 * A region we owned went out of sight: only the opponent can have taken it
+	 */
+	public void lostSight(Region region, int round)
+	{
+		int index = region.getIndex();
+		if(owner[index] == Players.ME)
+		{
+			setOwner(index, Players.OPPONENT);
+			armies[index] = 1;
+			lastSeenRound[index] = round;
+		}
+	}
+
+	/**
+	 * The opponent placed armies on a region, only changes the belief if the region is hidden
+	 */
+	public void observePlacement(Region region, int placed, int round)
+	{
+		int index = region.getIndex();
+		if(map.isVisible(region))
+			return;
+		if(owner[index] != Players.OPPONENT)
+		{
+			setOwner(index, Players.OPPONENT);
+			armies[index] = 1;
+		}
+		armies[index] += placed;
+		lastSeenRound[index] = round;
+	}
+
+	/**
+	 * The opponent attacked or transferred between regions, only changes the belief of the hidden ones.
+	 * An attack on a hidden region is believed won if the expected losses of the defenders are bigger
+	 * than their believed armies.
+	 */
+	public void observeAttackTransfer(Region fromRegion, Region toRegion, int moved, int round)
+	{
+		int from = fromRegion.getIndex();
+		int to = toRegion.getIndex();
+		if(!map.isVisible(fromRegion))
+		{
+			if(owner[from] != Players.OPPONENT)
+			{
+				setOwner(from, Players.OPPONENT);
+				armies[from] = moved + 1;
+			}
+			armies[from] = Math.max(1, armies[from] - moved);
+			lastSeenRound[from] = round;
+		}
+		if(!map.isVisible(toRegion))
+		{
+			if(owner[to] == Players.OPPONENT)
+				armies[to] += moved;
+			else
+			{
+				int defenders = Math.max(armies[to], 1);
+				if(moved * GameState.ATTACKER_KILL_RATE >= defenders)
+				{
+					setOwner(to, Players.OPPONENT);
+					armies[to] = Math.max(1, (int) Math.round(moved - defenders * GameState.DEFENDER_KILL_RATE));
+				}
+				else
+					armies[to] = Math.max(1, (int) Math.round(defenders - moved * GameState.ATTACKER_KILL_RATE));
+			}
+			lastSeenRound[to] = round;
+		}
+	}
+
+	private void setOwner(int index, int newOwner)
+	{
+		int oldOwner = owner[index];
+		if(oldOwner == newOwner)
+			return;
+		int superRegion = superRegionOf[index];
+		if(oldOwner == Players.OPPONENT)
+		{
+			if(opponentOwned[superRegion]-- == superRegionSizes[superRegion])
+				opponentIncome -= superRegionRewards[superRegion];
+		}
+		else if(newOwner == Players.OPPONENT)
+		{
+			if(++opponentOwned[superRegion] == superRegionSizes[superRegion])
+				opponentIncome += superRegionRewards[superRegion];
+		}
+		owner[index] = newOwner;
+	}
+
+	/**
+	 * @return The owner last seen or inferred for a region, UNKNOWN if never seen
+	 */
+	public int getOwner(int region) {
+		return owner[region];
+	}
+
+	/**
+	 * @return The armies last seen or inferred for a region
+	 */
+	public int getArmies(int region) {
+		return armies[region];
+	}
+
+	/**
+	 * @return The last round a region was seen or its belief changed, -1 if never
+	 */
+	public int getLastSeenRound(int region) {
+		return lastSeenRound[region];
+	}
+
+	/**
+	 * @return How much the belief of a region is still worth, 1 if it's seen this round, 0 if never seen
+	 */
+	public double getConfidence(int region, int round) {
+		if(lastSeenRound[region] < 0)
+			return 0;
+		return Math.pow(DECAY, round - lastSeenRound[region]);
+	}
+
+	/**
+	 * @return The opponent's income if it owns the regions it's believed to own, counting the SuperRegions it
+	 * completely owns
+	 */
+	public int getOpponentIncome() {
+		return opponentIncome;
+	}
+
+}
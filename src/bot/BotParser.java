@@ -1,78 +1,317 @@
 package bot;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Scanner;
 
+import main.Players;
 import main.Region;
 import move.PlaceArmiesMove;
 import move.AttackTransferMove;
 
 public class BotParser {
 	
-	final Scanner scan;
+	final ProtocolReader reader;
+	
+	final ProtocolWriter writer;
 	
 	final Bot bot;
 	
 	BotState currentState;
 	
+	private CommandMetrics metrics; //null if commands aren't measured
+	
+	private GameRecorder recorder; //null if the game isn't recorded
+	
+	private PonderingBot ponderer; //the bot if it ponders between commands, else null
+	
+	private JitWarmup warmup; //null if the pick's spare time isn't used to warm up
+	
 	public BotParser(Bot bot)
 	{
-		this.scan = new Scanner(System.in);
+		this(bot, System.in, System.out);
+	}
+	
+	public BotParser(Bot bot, InputStream in, OutputStream out)
+	{
+		this.reader = new ProtocolReader(in);
+		this.writer = new ProtocolWriter(out);
 		this.bot = bot;
 		this.currentState = new BotState();
 	}
 	
+	/**
+	 * Measures every command from now on and gives the measurements to the sink, null to stop measuring
+	 */
+	public void setMetricsSink(MetricsSink sink)
+	{
+		metrics = sink == null ? null : new CommandMetrics(sink);
+	}
+	
+	/**
+	 * Records every line read and written from now on, null to stop recording
+	 */
+	public void setRecorder(GameRecorder recorder)
+	{
+		this.recorder = recorder;
+		writer.setRecorder(recorder);
+	}
+	
+	/**
+	 * Gives the bot an opening book for its starting region pick, null for none. The book can be shared
+	 * with other parsers.
+	 */
+	public void setOpeningBook(OpeningBook book)
+	{
+		currentState.setOpeningBook(book);
+	}
+	
+	/**
+	 * Lets the bot think in the background between commands, if it's a PonderingBot
+	 */
+	public void setPondering(boolean pondering)
+	{
+		if(pondering && !(bot instanceof PonderingBot))
+			System.err.println(bot.getClass().getSimpleName() + " doesn't ponder, pondering is off");
+		ponderer = pondering && bot instanceof PonderingBot ? (PonderingBot) bot : null;
+	}
+	
+	/**
+	 * Plays a warm-up game with a fresh bot of the same class in the spare time of the starting region pick, see JitWarmup
+	 */
+	public void setWarmup(boolean warmingUp)
+	{
+		warmup = warmingUp ? new JitWarmup(bot.getClass(), System.nanoTime()) : null;
+	}
+	
+	/**
+	 * Sets up measuring, recording, pondering, warming up and the opening book from the command line of a bot
+	 * Arguments: [-metrics stderr|file.csv] [-record file] [-ponder] [-warmup] [-book file], see CommandMetrics.createSink(),
+	 * GameRecorder, setPondering(), setWarmup() and setOpeningBook()
+	 */
+	public void configure(String[] args) throws IOException
+	{
+		for(int i=0; i<args.length; i++)
+		{
+			if(args[i].equals("-ponder"))
+				setPondering(true);
+			else if(args[i].equals("-warmup"))
+				setWarmup(true);
+			else if(args[i].equals("-metrics") && i+1 < args.length)
+				setMetricsSink(CommandMetrics.createSink(args[++i]));
+			else if(args[i].equals("-record") && i+1 < args.length)
+				setRecorder(new GameRecorder(args[++i]));
+			else if(args[i].equals("-book") && i+1 < args.length)
+				setOpeningBook(OpeningBook.map(args[++i]));
+			else
+				System.err.println("Unknown option " + args[i]);
+		}
+	}
+	
 	public void run()
 	{
-		while(scan.hasNextLine())
+		try {
+			while(reader.nextLine())
+			{
+				if(recorder != null)
+					recorder.record(GameRecorder.INPUT, reader.getLineBytes(), reader.getLineLength());
+				parseLine();
+			}
+		}
+		catch(IOException e) {
+			System.err.println("Unable to read input " + e.getMessage());
+		}
+		if(ponderer != null)
+			ponderer.stopPondering();
+		if(metrics != null)
+			metrics.finish();
+		if(recorder != null)
+			recorder.close();
+	}
+	
+	private void parseLine() throws IOException
+	{
+		long requestNanos = System.nanoTime(); //the decision clock runs from here, stopping the ponder is charged to it
+		if(metrics != null)
+			metrics.start();
+		if(ponderer != null)
+			ponderer.stopPondering();
+		currentState.setRequestNanos(requestNanos);
+		int command = -1; //the measured command, -1 for settings and unknown lines
+		long timeOut = 0;
+		int tokenCount = reader.getTokenCount();
+		reader.nextToken();
+		if(reader.tokenEquals("pick_starting_regions")) {
+			//pick which regions you want to start with
+			command = CommandMetrics.PICK_STARTING_REGIONS;
+			reader.nextToken();
+			timeOut = reader.tokenLong();
+			readPickableStartingRegions();
+			if(warmup != null)
+				warmup.run(currentState, timeOut);
+			ArrayList<Region> preferredStartingRegions = bot.getPreferredStartingRegions(currentState, Long.valueOf(timeOut));
+			writer.writeStartingRegions(preferredStartingRegions);
+		} else if(tokenCount == 3 && reader.tokenEquals("go")) {
+			//we need to do a move
+			reader.nextToken();
+			boolean placeArmies = reader.tokenEquals("place_armies");
+			boolean attackTransfer = reader.tokenEquals("attack/transfer");
+			reader.nextToken();
+			timeOut = reader.tokenLong();
+			if(placeArmies) 
+			{
+				//place armies
+				command = CommandMetrics.PLACE_ARMIES;
+				ArrayList<PlaceArmiesMove> placeArmiesMoves = bot.getPlaceArmiesMoves(currentState, Long.valueOf(timeOut));
+				writer.writePlaceArmiesMoves(placeArmiesMoves);
+			} 
+			else if(attackTransfer) 
+			{
+				//attack/transfer
+				command = CommandMetrics.ATTACK_TRANSFER;
+				ArrayList<AttackTransferMove> attackTransferMoves = bot.getAttackTransferMoves(currentState, Long.valueOf(timeOut));
+				writer.writeAttackTransferMoves(attackTransferMoves);
+			}
+			else
+				writer.writeNoMoves();
+		} else if(tokenCount == 3 && reader.tokenEquals("settings")) {
+			//update settings
+			reader.nextToken();
+			if(reader.tokenEquals("starting_armies")) {
+				reader.nextToken();
+				currentState.setStartingArmies(reader.tokenInt());
+			} else {
+				String key = reader.tokenString();
+				reader.nextToken();
+				currentState.updateSettings(key, reader.tokenString());
+			}
+		} else if(reader.tokenEquals("setup_map")) {
+			//initial full map is given
+			command = CommandMetrics.SETUP_MAP;
+			readSetupMap();
+		} else if(reader.tokenEquals("update_map")) {
+			//all visible regions are given
+			command = CommandMetrics.UPDATE_MAP;
+			readMapUpdate();
+		} else if(reader.tokenEquals("opponent_moves")) {
+			//all visible opponent moves are given
+			command = CommandMetrics.OPPONENT_MOVES;
+			readOpponentMoves();
+		} else {
+			System.err.printf("Unable to parse line \"%s\"\n", reader.lineString());
+		}
+		if(metrics != null && command >= 0)
+			metrics.stop(command, timeOut);
+		if(ponderer != null && (command == CommandMetrics.UPDATE_MAP || command == CommandMetrics.OPPONENT_MOVES
+			|| command == CommandMetrics.PLACE_ARMIES))
+			ponderer.startPondering(currentState);
+	}
+	
+	private void readPickableStartingRegions()
+	{
+		while(reader.nextToken())
+		{
+			try {
+				currentState.addPickableStartingRegion(reader.tokenInt());
+			}
+			catch(Exception e) {
+				System.err.println("Unable to parse pickable regions " + e.getMessage());
+			}
+		}
+	}
+	
+	private void readSetupMap()
+	{
+		reader.nextToken();
+		if(reader.tokenEquals("super_regions"))
 		{
-			String line = scan.nextLine().trim();
-			if(line.length() == 0) { continue; }
-			String[] parts = line.split(" ");
-			if(parts[0].equals("pick_starting_regions")) {
-				//pick which regions you want to start with
-				currentState.setPickableStartingRegions(parts);
-				ArrayList<Region> preferredStartingRegions = bot.getPreferredStartingRegions(currentState, Long.valueOf(parts[1]));
-				String output = "";
-				for(Region region : preferredStartingRegions)
-					output = output.concat(region.getId() + " ");
-				
-				System.out.println(output);
-			} else if(parts.length == 3 && parts[0].equals("go")) {
-				//we need to do a move
-				String output = "";
-				if(parts[1].equals("place_armies")) 
-				{
-					//place armies
-					ArrayList<PlaceArmiesMove> placeArmiesMoves = bot.getPlaceArmiesMoves(currentState, Long.valueOf(parts[2]));
-					for(PlaceArmiesMove move : placeArmiesMoves)
-						output = output.concat(move.getString() + ",");
-				} 
-				else if(parts[1].equals("attack/transfer")) 
-				{
-					//attack/transfer
-					ArrayList<AttackTransferMove> attackTransferMoves = bot.getAttackTransferMoves(currentState, Long.valueOf(parts[2]));
-					for(AttackTransferMove move : attackTransferMoves)
-						output = output.concat(move.getString() + ",");
+			while(reader.nextToken())
+			{
+				try {
+					int superRegionId = reader.tokenInt();
+					int reward = reader.nextInt();
+					currentState.addSuperRegion(superRegionId, reward);
 				}
-				if(output.length() > 0)
-					System.out.println(output);
-				else
-					System.out.println("No moves");
-			} else if(parts.length == 3 && parts[0].equals("settings")) {
-				//update settings
-				currentState.updateSettings(parts[1], parts[2]);
-			} else if(parts[0].equals("setup_map")) {
-				//initial full map is given
-				currentState.setupMap(parts);
-			} else if(parts[0].equals("update_map")) {
-				//all visible regions are given
-				currentState.updateMap(parts);
-			} else if(parts[0].equals("opponent_moves")) {
-				//all visible opponent moves are given
-				currentState.readOpponentMoves(parts);
-			} else {
-				System.err.printf("Unable to parse line \"%s\"\n", line);
+				catch(Exception e) {
+					System.err.println("Unable to parse SuperRegions");
+				}
+			}
+		}
+		else if(reader.tokenEquals("regions"))
+		{
+			while(reader.nextToken())
+			{
+				try {
+					int regionId = reader.tokenInt();
+					int superRegionId = reader.nextInt();
+					currentState.addRegion(regionId, superRegionId);
+				}
+				catch(Exception e) {
+					System.err.println("Unable to parse Regions " + e.getMessage());
+				}
+			}
+		}
+		else if(reader.tokenEquals("neighbors"))
+		{
+			while(reader.nextToken())
+			{
+				try {
+					int regionId = reader.tokenInt();
+					reader.nextToken();
+					while(reader.hasNextItem())
+						currentState.addNeighbor(regionId, reader.nextItemInt());
+				}
+				catch(Exception e) {
+					System.err.println("Unable to parse Neighbors " + e.getMessage());
+				}
+			}
+			currentState.finishSetupMap();
+		}
+	}
+	
+	private void readMapUpdate()
+	{
+		currentState.beginMapUpdate();
+		while(reader.nextToken())
+		{
+			try {
+				int regionId = reader.tokenInt();
+				reader.nextToken();
+				int owner = reader.tokenPlayerId(currentState.getPlayers());
+				int armies = reader.nextInt();
+				currentState.updateRegion(regionId, owner, armies);
+			}
+			catch(Exception e) {
+				System.err.println("Unable to parse Map Update " + e.getMessage());
+			}
+		}
+		currentState.endMapUpdate();
+	}
+	
+	private void readOpponentMoves()
+	{
+		currentState.clearOpponentMoves();
+		while(reader.nextToken())
+		{
+			try {
+				Players players = currentState.getPlayers();
+				String playerName = players.getName(reader.tokenPlayerId(players));
+				reader.nextToken();
+				if(reader.tokenEquals("place_armies")) {
+					int regionId = reader.nextInt();
+					int armies = reader.nextInt();
+					currentState.addOpponentPlaceArmies(playerName, regionId, armies);
+				}
+				else if(reader.tokenEquals("attack/transfer")) {
+					int fromRegionId = reader.nextInt();
+					int toRegionId = reader.nextInt();
+					int armies = reader.nextInt();
+					currentState.addOpponentAttackTransfer(playerName, fromRegionId, toRegionId, armies);
+				}
+			}
+			catch(Exception e) {
+				System.err.println("Unable to parse Opponent moves " + e.getMessage());
 			}
 		}
 	}
@@ -0,0 +1,168 @@
+package bot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many games at once in one JVM, so a match doesn't pay for starting a JVM and every game runs on code
+ * the JIT already compiled for the games before it. Every connection to the server's local port is a game
+ * session: it gets its own bot, BotParser and BotState and talks the usual protocol over the socket, until the
+ * engine closes it. The sessions run on virtual threads where the runtime has them, else on daemon threads.
+ * Nothing is shared between sessions but what's read-only or made for sharing: the opening book, the battle
+ * table and MctsBot's worker pool.
+ */
+public class BotServer implements Closeable {
+
+	private final ServerSocket serverSocket;
+	private final Class<? extends Bot> botClass;
+	private final String[] options; //without the book's
+	private final OpeningBook book; //shared by all sessions, null if none
+	private final ExecutorService sessions;
+	private final AtomicInteger sessionCount = new AtomicInteger();
+
+	/**
+	 * @param port : local port to listen on, 0 for any free one
+	 * @param botClass : the Bot of every session, created with its constructor without arguments
+	 * @param options : BotParser.configure() options of every session, "%d" in them is replaced by the session number.
+	 * The book of a -book option is mapped once here and given to every session.
+	 */
+	public BotServer(int port, Class<? extends Bot> botClass, String[] options) throws IOException
+	{
+		ArrayList<String> sessionOptions = new ArrayList<String>();
+		OpeningBook book = null;
+		for(int i=0; i<options.length; i++)
+		{
+			if(options[i].equals("-book") && i+1 < options.length)
+				book = OpeningBook.map(options[++i]);
+			else
+				sessionOptions.add(options[i]);
+		}
+		this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+		this.botClass = botClass;
+		this.options = sessionOptions.toArray(new String[sessionOptions.size()]);
+		this.book = book;
+		this.sessions = createSessionExecutor();
+	}
+
+	//a virtual thread per session on Java 21 and later, found by reflection so the bot still runs on older versions
+	private static ExecutorService createSessionExecutor()
+	{
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "bot-session");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return The port the server listens on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return The number of sessions started so far
+	 */
+	public int getSessionCount() {
+		return sessionCount.get();
+	}
+
+	/**
+	 * Accepts sessions until the server is closed
+	 */
+	public void serve() throws IOException
+	{
+		while(!serverSocket.isClosed())
+		{
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch(IOException e) {
+				if(serverSocket.isClosed())
+					return;
+				throw e;
+			}
+			final int session = sessionCount.incrementAndGet();
+			sessions.execute(new Runnable() {
+				@Override
+				public void run() {
+					runSession(socket, session);
+				}
+			});
+		}
+	}
+
+	private void runSession(Socket socket, int session)
+	{
+		try {
+			try {
+				socket.setTcpNoDelay(true); //every answer is one short line the engine waits for
+				BotParser parser = new BotParser(botClass.getDeclaredConstructor().newInstance(), socket.getInputStream(), socket.getOutputStream());
+				parser.setOpeningBook(book);
+				parser.configure(getSessionOptions(session));
+				parser.run();
+			}
+			finally {
+				socket.close();
+			}
+		}
+		catch(IOException e) {
+			System.err.println("Session " + session + " failed: " + e.getMessage());
+		}
+		catch(ReflectiveOperationException e) {
+			System.err.println("Unable to create a " + botClass.getName() + " for session " + session + ": " + e);
+		}
+	}
+
+	private String[] getSessionOptions(int session)
+	{
+		String[] sessionOptions = new String[options.length];
+		for(int i=0; i<options.length; i++)
+			sessionOptions[i] = options[i].replace("%d", Integer.toString(session));
+		return sessionOptions;
+	}
+
+	/**
+	 * Stops accepting sessions, the running ones play on until their engine closes them
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		serverSocket.close();
+		sessions.shutdown();
+	}
+
+	/**
+	 * Arguments: port [bot class, bot.BotStarter by default] [options of every session, see BotParser.configure()]
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		String botClass = args.length > 1 ? args[1] : "bot.BotStarter";
+		String[] options = new String[Math.max(0, args.length - 2)];
+		System.arraycopy(args, args.length - options.length, options, 0, options.length);
+
+		BotServer server = new BotServer(port, Class.forName(botClass).asSubclass(Bot.class), options);
+		System.err.println("Serving " + botClass + " on port " + server.getPort());
+		server.serve();
+	}
+
+}
@@ -1,102 +1,75 @@
 package bot;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
+import main.DistanceTable;
+import main.GameState;
+import main.Map;
+import main.Players;
 import main.Region;
 import move.AttackTransferMove;
+import move.MoveBuffer;
+import move.PackedMove;
 import move.PlaceArmiesMove;
 
 public class BotStarter implements Bot {
 
-	public final static double SUPERIORITY_RATE = 0.6;	
-	public final static double ATTACK_RATE = 0.7;	
-	public final static double ATTACK_NEUTRAL_RATE = 0.8;	
-	public final static double COMBO_MIN_RATE = 0.6;
-	public final static double COMBO_ATTACK_RATE = 0.85;
-	public final static double SUCCESS_RATE = 0.7;
-
-	public final static int WORLD_DOMINANCE_LIMIT = 30;
-	public final static int COMBO_MIN_TROOPS = 10;
-
-	private static int ownedRegions;
-	private static String myName = "";
-	private static String opponentName = "";
+	private int ownedRegions;
+	private String myName = "";
 
 	private List<Region> visibleRegions;
 	private List<Region> fortifiableRegions;
 
+	private int[] placedArmies; //per region index, armies placed in the current round
+	private final MoveBuffer placements = new MoveBuffer(); //reused every round, see choosePlacements()
+	private final MoveBuffer attackTransfers = new MoveBuffer(); //reused every round, see chooseAttackTransfers()
+	private final BitSet front = new BitSet(); //region indices the interior armies are sent to
+	private int[] frontHops; //per region index, its neighbor on a shortest route to the nearest front region, -1 if none, see findFront()
+	private int[] frontQueue; //scratch for findFront()
+	private final TransferPlanner transferPlanner = new TransferPlanner();
+	private int[] transferSupply; //per region index, scratch for planTransfers()
+	private int[] transferDemand;
+
+	private final BattleTable battleTable;
+	private final DecisionScheduler scheduler;
+	private final StrategyParameters parameters;
+
+	public BotStarter() {
+		this(BattleTable.DEFAULT, new DecisionScheduler());
+	}
+
+	public BotStarter(BattleTable battleTable, DecisionScheduler scheduler) {
+		this(battleTable, scheduler, StrategyParameters.DEFAULT);
+	}
+
+	public BotStarter(BattleTable battleTable, DecisionScheduler scheduler, StrategyParameters parameters) {
+		this.battleTable = battleTable;
+		this.scheduler = scheduler;
+		this.parameters = parameters;
+	}
+
 	/**
 	 * A method used at the start of the game to decide which player start with what Regions. 6 Regions are required to be returned.
-	 * First choices are the regions belonging to Oceania and South America
+	 * The opening book's picks come first if it knows the map, the rest are ranked by a StartingRegionScorer
 	 * @return : a list of m (m=6) Regions starting with the most preferred Region and ending with the least preferred Region to start with 
 	 */
 	@Override
 	public ArrayList<Region> getPreferredStartingRegions(BotState state, Long timeOut) {
 		int m = 6;
-		ArrayList<Region> preferredStartingRegions = new ArrayList<Region>(m);
-
 		List<Region> pickableRegions = state.getPickableStartingRegions();
+		Map fullMap = state.getFullMap();
 
-		/* Giving priority to South America and Oceania */
-		int currentSuperRegion;
-		for (int i=0; i < pickableRegions.size(); i++) {
-			currentSuperRegion = pickableRegions.get(i).getSuperRegion().getId();
-			if ((currentSuperRegion == 2) || (currentSuperRegion == 6)) {
-				preferredStartingRegions.add(pickableRegions.get(i));
-			}
-		}
-
-		/* We finish with two "not so" random territories */
-		Region randomRegion;
-
-		for (int i=0; i < 2; i++) {
-			randomRegion = pickableRegions.get(i);
-			preferredStartingRegions.add(randomRegion);
-		}
-
+		OpeningBook book = state.getOpeningBook();
+		ArrayList<Region> preferredStartingRegions = book == null ? new ArrayList<Region>(m) : book.rank(fullMap, pickableRegions, m);
+		new StartingRegionScorer(fullMap, state.getDistances()).pick(pickableRegions, m - preferredStartingRegions.size(), preferredStartingRegions);
 		return preferredStartingRegions;
 	}
 
-	/**
-	 * A region is safe when no neighbor is under enemy/neutral control
-	 * @return True if a region is away from enemy/neutral immediate influence
-	 */
-	private boolean isSafe(Region r, String playerName) {
-
-		List<Region> neighbors = r.getNeighbors();
-
-		int i = 0;
-		boolean res = true;
-
-		while ((i < neighbors.size()) && res) {
-			res = (neighbors.get(i).ownedByPlayer(playerName));
-			i++;
-		}
-
-		return res;		
-	}
-	
-	/**
-	 * A region is threatened when at least one neighbor is under enemy control
-	 * @return True if a region is away from enemy immediate influence
-	 */
-	private boolean isThreatened(Region r, String opponentName) {
-
-		List<Region> neighbors = r.getNeighbors();
-
-		int i = 0;
-		boolean res = false;
-
-		while ((i < neighbors.size()) && !res) {
-			res = (neighbors.get(i).ownedByPlayer(opponentName));
-			i++;
-		}
-
-		return res;		
-	}
-
 	private List<RegionAdvantage> computeTroopDifferences() {
 
 		List<RegionAdvantage> troopDifferences = new ArrayList<RegionAdvantage>();
@@ -109,7 +82,7 @@ public class BotStarter implements Bot {
 
 			for (int i = 0; i < neighbors.size(); i++) {
 				currentNeighbor = neighbors.get(i);
-				if (! currentNeighbor.ownedByPlayer(myName)) {
+				if (! currentNeighbor.ownedByPlayer(Players.ME)) {
 					if (moreNeighborTroops < currentNeighbor.getArmies()) {
 						moreNeighborTroops = currentNeighbor.getArmies();
 					} 
@@ -126,7 +99,7 @@ public class BotStarter implements Bot {
 	}
 
 
-	private boolean comboAttackChance(String myName, Region origin, Region target) {
+	private boolean comboAttackChance(int me, Region origin, Region target) {
 
 		List<Region> targetNeighbors = target.getNeighbors();
 		Region comboPartnerRegion;
@@ -136,13 +109,13 @@ public class BotStarter implements Bot {
 		int originTroops = origin.getArmies();
 		boolean res = false;
 
-		if (targetNeighbors.contains(origin) && (originTroops >= COMBO_MIN_TROOPS) &&
+		if (targetNeighbors.contains(origin) && (originTroops >= parameters.getComboMinTroops()) &&
 				(targetTroops <= originTroops)) {
 			while ((i < targetNeighbors.size()) && !res) {
 				comboPartnerRegion = targetNeighbors.get(i);
 				comboPartnerTroops  = comboPartnerRegion.getArmies();
-				res = (!origin.equals(comboPartnerRegion)) && (comboPartnerRegion.ownedByPlayer(myName)) && 
-						(comboPartnerTroops >= COMBO_MIN_TROOPS) && 
+				res = (!origin.equals(comboPartnerRegion)) && (comboPartnerRegion.ownedByPlayer(me)) && 
+						(comboPartnerTroops >= parameters.getComboMinTroops()) && 
 						(targetTroops <= comboPartnerTroops);
 				i++;
 			}
@@ -154,16 +127,22 @@ public class BotStarter implements Bot {
 
 	/**
 	 * Returns the estimated attacking troops in order to conquer the enemy region
-	 * with the indicated success rate .
+	 * with the indicated success rate. Looked up in the battle table, falling back
+	 * to a rough estimation for armies beyond the table.
 	 * @param enemyRegion
 	 * @return
 	 */
 	private int estimateAttackingTroops(Region enemyRegion) {
 
-		int res = 0;
+		int res = -1;
 		int enemyArmies = enemyRegion.getArmies();
 
-		res = (int)Math.ceil(enemyArmies/(1.0 - SUCCESS_RATE));
+		if (enemyArmies <= battleTable.getMaxArmies()) {
+			res = battleTable.getMinAttackers(enemyArmies, parameters.getSuccessRate());
+		}
+		if (res < 0) {
+			res = (int)Math.ceil(enemyArmies/(1.0 - parameters.getSuccessRate()));
+		}
 
 		return res;
 	}
@@ -176,12 +155,27 @@ public class BotStarter implements Bot {
 	 * @return The list of PlaceArmiesMoves for one round
 	 */
 	public ArrayList<PlaceArmiesMove> getPlaceArmiesMoves(BotState state, Long timeOut) {
+		return choosePlacements(state, timeOut).toPlaceArmiesMoves(state.getVisibleMap(), myName);
+	}
+
+	/**
+	 * Chooses the placements of the round, see getPlaceArmiesMoves()
+	 * @return PackedMoves of the visible map's region indices, valid until the next call
+	 */
+	MoveBuffer choosePlacements(BotState state, Long timeOut) {
+		return choosePlacements(state, scheduler.startDecision(timeOut, state.getRequestNanos()));
+	}
 
-		ArrayList<PlaceArmiesMove> placeArmiesMoves = new ArrayList<PlaceArmiesMove>();
+	/**
+	 * @param deadline : until when the placements are refined
+	 */
+	MoveBuffer choosePlacements(BotState state, Deadline deadline) {
+
+		MoveBuffer placeArmiesMoves = placements;
+		placeArmiesMoves.clear();
 		
 		if (myName.equals("")) {
 			myName = state.getMyPlayerName();	
-			opponentName = state.getOpponentPlayerName();
 		}
 		
 		int initialTroops = state.getStartingArmies();
@@ -191,7 +185,7 @@ public class BotStarter implements Bot {
 		fortifiableRegions = new ArrayList<Region>();
 
 		for (Region r : visibleRegions) {
-			if (r.ownedByPlayer(myName) && ! isSafe(r,myName)) {
+			if (state.isFrontier(r)) {
 				fortifiableRegions.add(r);
 			}
 		}
@@ -224,7 +218,7 @@ public class BotStarter implements Bot {
 					troopRate = neighborAdvantages.get(i).getDifference() / (float) negativeAdvantageOverall; 
 					destinedTroops = (int) (initialTroops * troopRate);
 					if ((armiesLeft >= destinedTroops) && (destinedTroops > 0)) {
-						placeArmiesMoves.add(new PlaceArmiesMove(myName, neighborAdvantages.get(i).getRegion(), destinedTroops));
+						placeArmiesMoves.add(PackedMove.placeArmies(Players.ME, neighborAdvantages.get(i).getRegion().getIndex(), destinedTroops));
 						armiesLeft -= destinedTroops;
 					}
 				}
@@ -242,7 +236,7 @@ public class BotStarter implements Bot {
 				troopRate = neighborAdvantages.get(i).getDifference() / ((float) negativeAdvantageOverall); 
 				destinedTroops = (int) (initialTroops * troopRate);
 				if ((armiesLeft >= destinedTroops) && (destinedTroops > 0)) {
-					placeArmiesMoves.add(new PlaceArmiesMove(myName, neighborAdvantages.get(i).getRegion(), destinedTroops));
+					placeArmiesMoves.add(PackedMove.placeArmies(Players.ME, neighborAdvantages.get(i).getRegion().getIndex(), destinedTroops));
 					armiesLeft -= destinedTroops;
 				}
 			}	
@@ -250,10 +244,19 @@ public class BotStarter implements Bot {
 
 		// Assign remaining troops (remainder of percentages) to our less strong region
 		if (armiesLeft > 0) {
-			placeArmiesMoves.add(new PlaceArmiesMove(myName, neighborAdvantages.get(0).getRegion(), armiesLeft));
+			placeArmiesMoves.add(PackedMove.placeArmies(Players.ME, neighborAdvantages.get(0).getRegion().getIndex(), armiesLeft));
 			armiesLeft -= armiesLeft;
 		}
 
+		/* Even out the help between the outnumbered regions while there is time */
+		int regionCount = state.getVisibleMap().getRegionCount();
+		placeArmiesMoves = scheduler.refine(new PlacementRefinement(Players.ME, neighborAdvantages, placeArmiesMoves, regionCount), deadline);
+
+		placedArmies = new int[regionCount];
+		for (int i = 0; i < placeArmiesMoves.size(); i++) {
+			placedArmies[PackedMove.getFrom(placeArmiesMoves.get(i))] += PackedMove.getArmies(placeArmiesMoves.get(i));
+		}
+
 		return placeArmiesMoves;
 	}
 
@@ -263,8 +266,29 @@ public class BotStarter implements Bot {
 	 * @return The list of PlaceArmiesMoves for one round
 	 */
 	public ArrayList<AttackTransferMove> getAttackTransferMoves(BotState state, Long timeOut) {
+		return chooseAttackTransfers(state, timeOut).toAttackTransferMoves(state.getVisibleMap(), myName);
+	}
+
+	/**
+	 * Chooses the attacks and transfers of the round, see getAttackTransferMoves()
+	 * @return PackedMoves of the visible map's region indices, valid until the next call
+	 */
+	MoveBuffer chooseAttackTransfers(BotState state, Long timeOut) {
+		return chooseAttackTransfers(state, scheduler.startDecision(timeOut, state.getRequestNanos()));
+	}
 
-		ArrayList<AttackTransferMove> attackTransferMoves = new ArrayList<AttackTransferMove>();
+	/**
+	 * @param deadline : until when the attacks are refined
+	 */
+	MoveBuffer chooseAttackTransfers(BotState state, Deadline deadline) {
+
+		MoveBuffer attackTransferMoves = attackTransfers;
+		attackTransferMoves.clear();
+		findFront(state);
+		boolean transferring = ownedRegions < parameters.getWorldDominanceLimit();
+		if (transferring) {
+			planTransfers(state, deadline);
+		}
 
 		int newOwnedRegionCount = 0;
 		int presentTroops, neighborTroops, attackEstimation, comboEstimation, neutralAttackEstimation;
@@ -273,10 +297,9 @@ public class BotStarter implements Bot {
 		for(Region fromRegion : visibleRegions) {
 
 			List<Region> neighbors = fromRegion.getNeighbors();
-			List<Region> unsafeNeighbors = new ArrayList<Region>();
 
 			// Neutral-neighbored region (1st case) or enemy-neighbored region (2nd case) 
-			if(fromRegion.ownedByPlayer(myName)) {
+			if(fromRegion.ownedByPlayer(Players.ME)) {
 
 				newOwnedRegionCount++;
 				presentTroops = fromRegion.getArmies();
@@ -284,10 +307,6 @@ public class BotStarter implements Bot {
 				for (Region toRegion : neighbors) {	
 					neighborTroops = toRegion.getArmies();
 					attackEstimation = estimateAttackingTroops(toRegion);
-
-					if (toRegion.ownedByPlayer(myName) && ! isSafe(toRegion, myName)) {
-						unsafeNeighbors.add(toRegion);
-					}
 					
 //					if (toRegion.ownedByPlayer(opponentName) && comboAttackChance(myName, fromRegion, toRegion)) {
 //						attackTransferMoves.add(new AttackTransferMove(myName, fromRegion, toRegion, (int) (presentTroops * COMBO_ATTACK_RATE)));
@@ -302,47 +321,45 @@ public class BotStarter implements Bot {
 //						presentTroops -= (int) (presentTroops * ATTACK_RATE);
 //					} 
 					
-					comboEstimation = (int) (presentTroops * COMBO_ATTACK_RATE);
+					comboEstimation = (int) (presentTroops * parameters.getComboAttackRate());
 					neutralAttackEstimation = presentTroops - 1;
 					
-					if (toRegion.ownedByPlayer(opponentName) && comboAttackChance(myName, fromRegion, toRegion)) {
-						attackTransferMoves.add(new AttackTransferMove(myName, fromRegion, toRegion, comboEstimation));
+					if (toRegion.ownedByPlayer(Players.OPPONENT) && comboAttackChance(Players.ME, fromRegion, toRegion)) {
+						attackTransferMoves.add(PackedMove.attackTransfer(Players.ME, fromRegion.getIndex(), toRegion.getIndex(), comboEstimation));
 						presentTroops -= comboEstimation;
-					} else if (toRegion.ownedByPlayer(opponentName) && (isThreatened(fromRegion, opponentName)) && 
+					} else if (toRegion.ownedByPlayer(Players.OPPONENT) && (state.isEnemyAdjacent(fromRegion)) && 
 							(presentTroops > attackEstimation)) {
-						attackTransferMoves.add(new AttackTransferMove(myName, fromRegion, toRegion, attackEstimation));
+						attackTransferMoves.add(PackedMove.attackTransfer(Players.ME, fromRegion.getIndex(), toRegion.getIndex(), attackEstimation));
 						presentTroops -= attackEstimation;
-					} else if (!toRegion.ownedByPlayer(myName) && (! isThreatened(fromRegion,opponentName)) && 
-							(presentTroops > 2) && (neighborTroops < ((int) presentTroops * SUPERIORITY_RATE))) {
-						attackTransferMoves.add(new AttackTransferMove(myName, fromRegion, toRegion, neutralAttackEstimation));
+					} else if (!toRegion.ownedByPlayer(Players.ME) && (! state.isEnemyAdjacent(fromRegion)) && 
+							(presentTroops > 2) && (neighborTroops < ((int) presentTroops * parameters.getSuperiorityRate()))) {
+						attackTransferMoves.add(PackedMove.attackTransfer(Players.ME, fromRegion.getIndex(), toRegion.getIndex(), neutralAttackEstimation));
 						presentTroops -= neutralAttackEstimation;
 					}
 					
 				}				
 			}
 
-			/* Transfers from safe regions to unsafe regions */
-			if((ownedRegions < WORLD_DOMINANCE_LIMIT) && fromRegion.ownedByPlayer(myName) && isSafe(fromRegion, myName)) {
+			/* Transfers from safe regions: to the threatened front regions that lack armies, the rest to the nearest front */
+			if(transferring && state.isInterior(fromRegion)) {
 
 				int transferrableTroops = fromRegion.getArmies() - 1;
 				int troopChunk;
 
 				if (transferrableTroops > 0) {
 
-					// TODO We might improve this, distributing more troops to more weak endangered neighbors
-					/* Dividing equally between unsafe neighbors */
-					if ((unsafeNeighbors.size() > 0)) {	
-						troopChunk = (int) (transferrableTroops / unsafeNeighbors.size());
-						if (troopChunk > 0) {
-							for (Region toRegion : unsafeNeighbors) {
-								attackTransferMoves.add(new AttackTransferMove(myName, fromRegion, toRegion, troopChunk));
-							}
-						}
-					} else if (unsafeNeighbors.size() == 0) {
+					Region toRegion = nextHopToFront(state, fromRegion);
+					if (toRegion != null && transferPlanner.hasPlan()) {
+						transferPlanner.addTransfers(attackTransferMoves, Players.ME, fromRegion.getIndex(), toRegion.getIndex());
+					} else if (toRegion != null) {
+						/* No plan without a DistanceTable, all to the nearest front */
+						attackTransferMoves.add(PackedMove.attackTransfer(Players.ME, fromRegion.getIndex(), toRegion.getIndex(), transferrableTroops));
+					} else {
+						/* No front to go to, dividing equally between neighbors */
 						troopChunk = (int) (transferrableTroops / neighbors.size());
 						if (troopChunk > 0) {
-							for (Region toRegion : neighbors) {
-								attackTransferMoves.add(new AttackTransferMove(myName, fromRegion, toRegion, troopChunk));
+							for (Region neighbor : neighbors) {
+								attackTransferMoves.add(PackedMove.attackTransfer(Players.ME, fromRegion.getIndex(), neighbor.getIndex(), troopChunk));
 							}
 						}
 					}
@@ -351,12 +368,111 @@ public class BotStarter implements Bot {
 		}
 
 		ownedRegions = newOwnedRegionCount;
+
+		/* Strengthen the weak attacks with the armies left over while there is time */
+		if (placedArmies != null && placedArmies.length == state.getVisibleMap().getRegionCount()) {
+			attackTransferMoves = scheduler.refine(new AttackRefinement(attackTransferMoves, state.getVisibleMap(), placedArmies, battleTable, parameters.getSuccessRate()), deadline);
+		}
+
 		return attackTransferMoves;
 	}
 
-	public static void main(String[] args)
+	/**
+	 * The front is my frontier regions that border the opponent, or all my frontier regions when none does.
+	 * One breadth-first search from all front regions at once gives every region its first step towards the
+	 * nearest one, so nextHopToFront() is a lookup. It needs no DistanceTable, so on maps too big for one it
+	 * still leads the interior armies to the front, without the TransferPlanner's plan.
+	 */
+	private void findFront(BotState state) {
+		front.clear();
+		front.or(state.getFrontierRegions());
+		front.and(state.getEnemyAdjacentRegions());
+		if (front.isEmpty()) {
+			front.or(state.getFrontierRegions());
+		}
+
+		Map map = state.getFullMap();
+		int regionCount = map.getRegionCount();
+		if (frontHops == null || frontHops.length != regionCount) {
+			frontHops = new int[regionCount];
+			frontQueue = new int[regionCount];
+		}
+		Arrays.fill(frontHops, -2); //not reached yet
+		int head = 0, tail = 0;
+		for (int i = front.nextSetBit(0); i >= 0; i = front.nextSetBit(i + 1)) {
+			frontHops[i] = -1;
+			frontQueue[tail++] = i;
+		}
+		int[] offsets = map.getNeighborOffsets();
+		int[] targets = map.getNeighborTargets();
+		while (head < tail) {
+			int region = frontQueue[head++];
+			for (int k = offsets[region]; k < offsets[region + 1]; k++) {
+				int neighbor = targets[k];
+				if (frontHops[neighbor] == -2) {
+					frontHops[neighbor] = region;
+					frontQueue[tail++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solves the transfers of the interior armies to the front regions bordering the opponent that can't hold
+	 * against the opponent's armies around them, see TransferPlanner
+	 * @param deadline : when the planner stops improving the transfers
+	 */
+	private void planTransfers(BotState state, Deadline deadline) {
+		transferPlanner.discardPlan();
+		DistanceTable distances = state.getDistances();
+		if (distances == null) {
+			return;
+		}
+		int regionCount = distances.getRegionCount();
+		if (transferSupply == null || transferSupply.length != regionCount) {
+			transferSupply = new int[regionCount];
+			transferDemand = new int[regionCount];
+		}
+		Map map = state.getVisibleMap();
+		for (int i = 0; i < regionCount; i++) {
+			transferSupply[i] = 0;
+			transferDemand[i] = 0;
+		}
+		BitSet interior = state.getInteriorRegions();
+		for (int i = interior.nextSetBit(0); i >= 0; i = interior.nextSetBit(i + 1)) {
+			transferSupply[i] = map.getRegionAt(i).getArmies() - 1;
+		}
+		BitSet frontier = state.getFrontierRegions();
+		for (int i = frontier.nextSetBit(0); i >= 0; i = frontier.nextSetBit(i + 1)) {
+			Region region = map.getRegionAt(i);
+			int threat = 0;
+			for (int j = 0; j < region.getNeighborCount(); j++) {
+				Region neighbor = region.getNeighbor(j);
+				if (neighbor.ownedByPlayer(Players.OPPONENT)) {
+					threat += neighbor.getArmies();
+				}
+			}
+			int defenders = region.getArmies() + (placedArmies != null && placedArmies.length == regionCount ? placedArmies[i] : 0);
+			transferDemand[i] = Math.max(0, (int) Math.ceil(threat * GameState.ATTACKER_KILL_RATE) + 1 - defenders);
+		}
+		transferPlanner.solve(distances, transferSupply, transferDemand, deadline);
+	}
+
+	/**
+	 * @return The neighbor of an interior region on a shortest route to the nearest front region, null if there's none
+	 */
+	private Region nextHopToFront(BotState state, Region fromRegion) {
+		int hop = frontHops[fromRegion.getIndex()];
+		return hop < 0 ? null : state.getVisibleMap().getRegionAt(hop);
+	}
+
+	/**
+	 * Arguments: see BotParser.configure()
+	 */
+	public static void main(String[] args) throws IOException
 	{
 		BotParser parser = new BotParser(new BotStarter());
+		parser.configure(args);
 		parser.run();
 	}
 
@@ -1,8 +1,12 @@
 package bot;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 
+import main.DistanceTable;
+import main.GameState;
 import main.Map;
+import main.Players;
 import main.Region;
 import main.SuperRegion;
 
@@ -17,6 +21,17 @@ public class BotState {
 	
 	private final Map fullMap = new Map(); //This map is known from the start, contains all the regions and how they are connected, doesn't change after initialization
 	private Map visibleMap; //This map represents everything the player can see, updated at the end of each round.
+	private final BitSet updatedRegions = new BitSet(); //indices of the regions named in the latest map update
+	private DistanceTable distances; //shortest routes between region indices, built once the neighbors are known
+	private BeliefTracker beliefs; //last seen owners and armies of all regions, created with the visible map
+	private OpeningBook openingBook; //rankings of the starting regions of known maps, null if none
+	
+	//region sets of the visible map, kept up to date for the regions whose owner changes
+	private int[] myNeighborCount; //per region index, number of neighbors owned by me
+	private int[] opponentNeighborCount; //per region index, number of neighbors owned by the opponent
+	private final BitSet frontierRegions = new BitSet(); //my regions with at least one neighbor that isn't mine
+	private final BitSet interiorRegions = new BitSet(); //my regions with only my regions as neighbors
+	private final BitSet enemyAdjacentRegions = new BitSet(); //regions with at least one neighbor owned by the opponent
 	
 	private ArrayList<Region> pickableStartingRegions; //2 randomly chosen regions from each superregion are given, which the bot can chose to start with
 	
@@ -26,6 +41,8 @@ public class BotState {
 	
 	private int roundNumber;
 	
+	private long requestNanos; //System.nanoTime() when the latest command was read, 0 if unknown
+	
 	public BotState()
 	{
 		pickableStartingRegions = new ArrayList<Region>();
@@ -36,14 +53,23 @@ public class BotState {
 	public void updateSettings(String key, String value)
 	{
 		if(key.equals("your_bot")) //bot's own name
+		{
 			myName = value;
+			fullMap.getPlayers().setName(Players.ME, value);
+		}
 		else if(key.equals("opponent_bot")) //opponent's name
-			opponentName = value;
-		else if(key.equals("starting_armies")) 
 		{
-			startingArmies = Integer.parseInt(value);
-			roundNumber++; //next round
+			opponentName = value;
+			fullMap.getPlayers().setName(Players.OPPONENT, value);
 		}
+		else if(key.equals("starting_armies")) 
+			setStartingArmies(Integer.parseInt(value));
+	}
+	
+	public void setStartingArmies(int armies)
+	{
+		startingArmies = armies;
+		roundNumber++; //next round
 	}
 	
 	//initial map is given to the bot with all the information except for player and armies info
@@ -59,7 +85,7 @@ public class BotState {
 					superRegionId = Integer.parseInt(mapInput[i]);
 					i++;
 					reward = Integer.parseInt(mapInput[i]);
-					fullMap.add(new SuperRegion(superRegionId, reward));
+					addSuperRegion(superRegionId, reward);
 				}
 				catch(Exception e) {
 					System.err.println("Unable to parse SuperRegions");
@@ -74,8 +100,7 @@ public class BotState {
 					regionId = Integer.parseInt(mapInput[i]);
 					i++;
 					superRegionId = Integer.parseInt(mapInput[i]);
-					SuperRegion superRegion = fullMap.getSuperRegion(superRegionId);
-					fullMap.add(new Region(regionId, superRegion));
+					addRegion(regionId, superRegionId);
 				}
 				catch(Exception e) {
 					System.err.println("Unable to parse Regions " + e.getMessage());
@@ -87,22 +112,46 @@ public class BotState {
 			for(i=2; i<mapInput.length; i++)
 			{
 				try {
-					Region region = fullMap.getRegion(Integer.parseInt(mapInput[i]));
+					regionId = Integer.parseInt(mapInput[i]);
 					i++;
 					String[] neighborIds = mapInput[i].split(",");
 					for(int j=0; j<neighborIds.length; j++)
-					{
-						Region neighbor = fullMap.getRegion(Integer.parseInt(neighborIds[j]));
-						region.addNeighbor(neighbor);
-					}
+						addNeighbor(regionId, Integer.parseInt(neighborIds[j]));
 				}
 				catch(Exception e) {
 					System.err.println("Unable to parse Neighbors " + e.getMessage());
 				}
 			}
+			finishSetupMap();
 		}
 	}
 	
+	public void addSuperRegion(int superRegionId, int reward)
+	{
+		fullMap.add(new SuperRegion(superRegionId, reward));
+	}
+	
+	public void addRegion(int regionId, int superRegionId)
+	{
+		SuperRegion superRegion = fullMap.getSuperRegion(superRegionId);
+		fullMap.add(new Region(regionId, superRegion));
+	}
+	
+	public void addNeighbor(int regionId, int neighborId)
+	{
+		Region region = fullMap.getRegion(regionId);
+		Region neighbor = fullMap.getRegion(neighborId);
+		region.addNeighbor(neighbor);
+	}
+	
+	//neighbors are the last part of the map setup, after them the topology doesn't change anymore
+	public void finishSetupMap()
+	{
+		fullMap.buildNeighborIndex();
+		if(DistanceTable.isAffordable(fullMap))
+			distances = new DistanceTable(fullMap);
+	}
+	
 	//regions from wich a player is able to pick his preferred starting regions
 	public void setPickableStartingRegions(String[] mapInput)
 	{
@@ -111,8 +160,7 @@ public class BotState {
 			int regionId;
 			try {
 				regionId = Integer.parseInt(mapInput[i]);
-				Region pickableRegion = fullMap.getRegion(regionId);
-				pickableStartingRegions.add(pickableRegion);
+				addPickableStartingRegion(regionId);
 			}
 			catch(Exception e) {
 				System.err.println("Unable to parse pickable regions " + e.getMessage());
@@ -120,69 +168,139 @@ public class BotState {
 		}
 	}
 	
+	public void addPickableStartingRegion(int regionId)
+	{
+		pickableStartingRegions.add(fullMap.getRegion(regionId));
+	}
+	
 	//visible regions are given to the bot with player and armies info
 	public void updateMap(String[] mapInput)
 	{
-		visibleMap = fullMap.getMapCopy();
+		beginMapUpdate();
 		for(int i=1; i<mapInput.length; i++)
 		{
 			try {
-				Region region = visibleMap.getRegion(Integer.parseInt(mapInput[i]));
+				int regionId = Integer.parseInt(mapInput[i]);
 				String playerName = mapInput[i+1];
 				int armies = Integer.parseInt(mapInput[i+2]);
 				
-				region.setPlayerName(playerName);
-				region.setArmies(armies);
+				updateRegion(regionId, playerName, armies);
 				i += 2;
 			}
 			catch(Exception e) {
 				System.err.println("Unable to parse Map Update " + e.getMessage());
 			}
 		}
-		ArrayList<Region> unknownRegions = new ArrayList<Region>();
-		
-		//remove regions which are unknown.
-		for(Region region : visibleMap.regions)
-			if(region.getPlayerName().equals("unknown"))
-				unknownRegions.add(region);
-		for(Region unknownRegion : unknownRegions)
-			visibleMap.getRegions().remove(unknownRegion);				
+		endMapUpdate();
+	}
+	
+	public void beginMapUpdate()
+	{
+		if(visibleMap == null) //the topology never changes, so the visible map is copied only once
+		{
+			visibleMap = fullMap.getMapCopy();
+			beliefs = new BeliefTracker(visibleMap);
+			myNeighborCount = new int[visibleMap.getRegionCount()];
+			opponentNeighborCount = new int[visibleMap.getRegionCount()];
+			for(Region region : visibleMap.getRegions())
+				updateRegionSets(region);
+		}
+		updatedRegions.clear();
+	}
+	
+	public void updateRegion(int regionId, String playerName, int armies)
+	{
+		updateRegion(regionId, fullMap.getPlayers().getId(playerName), armies);
+	}
+	
+	public void updateRegion(int regionId, int owner, int armies)
+	{
+		Region region = visibleMap.getRegion(regionId);
+		setOwner(region, owner);
+		region.setArmies(armies);
+		beliefs.observe(region, owner, armies, roundNumber);
+		updatedRegions.set(region.getIndex());
+	}
+	
+	//regions that were visible but aren't named in the latest update become unknown and are hidden
+	public void endMapUpdate()
+	{
+		BitSet visible = visibleMap.getVisibleIndices();
+		for(int i = visible.nextSetBit(0); i >= 0; i = visible.nextSetBit(i + 1))
+		{
+			if(!updatedRegions.get(i))
+			{
+				Region region = visibleMap.getRegionAt(i);
+				beliefs.lostSight(region, roundNumber);
+				setOwner(region, Players.UNKNOWN);
+				region.setArmies(0);
+				visibleMap.setVisible(region, false);
+			}
+		}
+		for(int i = updatedRegions.nextSetBit(0); i >= 0; i = updatedRegions.nextSetBit(i + 1))
+			visibleMap.setVisible(visibleMap.getRegionAt(i), true);
+	}
+
+	//changes the owner of a visible map region and updates the region sets around it
+	private void setOwner(Region region, int owner)
+	{
+		int previousOwner = region.getOwner();
+		if(previousOwner == owner)
+			return;
+		region.setOwner(owner);
+		for(int i=0; i<region.getNeighborCount(); i++)
+		{
+			Region neighbor = region.getNeighbor(i);
+			int index = neighbor.getIndex();
+			if(previousOwner == Players.ME)
+				myNeighborCount[index]--;
+			else if(previousOwner == Players.OPPONENT)
+				opponentNeighborCount[index]--;
+			if(owner == Players.ME)
+				myNeighborCount[index]++;
+			else if(owner == Players.OPPONENT)
+				opponentNeighborCount[index]++;
+			updateRegionSets(neighbor);
+		}
+		updateRegionSets(region);
+	}
+	
+	private void updateRegionSets(Region region)
+	{
+		int index = region.getIndex();
+		boolean mine = region.ownedByPlayer(Players.ME);
+		boolean safe = myNeighborCount[index] == region.getNeighborCount();
+		frontierRegions.set(index, mine && !safe);
+		interiorRegions.set(index, mine && safe);
+		enemyAdjacentRegions.set(index, opponentNeighborCount[index] > 0);
 	}
 
 	//Parses a list of the opponent's moves every round. 
 	//Clears it at the start, so only the moves of this round are stored.
 	public void readOpponentMoves(String[] moveInput)
 	{
-		opponentMoves.clear();
+		clearOpponentMoves();
 		for(int i=1; i<moveInput.length; i++)
 		{
 			try {
-				Move move;
 				if(moveInput[i+1].equals("place_armies")) {
-					Region region = visibleMap.getRegion(Integer.parseInt(moveInput[i+2]));
 					String playerName = moveInput[i];
+					int regionId = Integer.parseInt(moveInput[i+2]);
 					int armies = Integer.parseInt(moveInput[i+3]);
-					move = new PlaceArmiesMove(playerName, region, armies);
+					addOpponentPlaceArmies(playerName, regionId, armies);
 					i += 3;
 				}
 				else if(moveInput[i+1].equals("attack/transfer")) {
-					Region fromRegion = visibleMap.getRegion(Integer.parseInt(moveInput[i+2]));
-					if(fromRegion == null) //might happen if the region isn't visible
-						fromRegion = fullMap.getRegion(Integer.parseInt(moveInput[i+2]));
-
-					Region toRegion = visibleMap.getRegion(Integer.parseInt(moveInput[i+3]));
-					if(toRegion == null) //might happen if the region isn't visible
-						toRegion = fullMap.getRegion(Integer.parseInt(moveInput[i+3]));
-
 					String playerName = moveInput[i];
+					int fromRegionId = Integer.parseInt(moveInput[i+2]);
+					int toRegionId = Integer.parseInt(moveInput[i+3]);
 					int armies = Integer.parseInt(moveInput[i+4]);
-					move = new AttackTransferMove(playerName, fromRegion, toRegion, armies);
+					addOpponentAttackTransfer(playerName, fromRegionId, toRegionId, armies);
 					i += 4;
 				}
 				else { //never happens
 					continue;
 				}
-				opponentMoves.add(move);
 			}
 			catch(Exception e) {
 				System.err.println("Unable to parse Opponent moves " + e.getMessage());
@@ -190,6 +308,27 @@ public class BotState {
 		}
 	}
 	
+	public void clearOpponentMoves()
+	{
+		opponentMoves.clear();
+	}
+	
+	public void addOpponentPlaceArmies(String playerName, int regionId, int armies)
+	{
+		Region region = visibleMap.getRegion(regionId);
+		opponentMoves.add(new PlaceArmiesMove(playerName, region, armies));
+		beliefs.observePlacement(region, armies, roundNumber);
+	}
+	
+	public void addOpponentAttackTransfer(String playerName, int fromRegionId, int toRegionId, int armies)
+	{
+		//hidden regions are still part of the visible map, with unknown owner
+		Region fromRegion = visibleMap.getRegion(fromRegionId);
+		Region toRegion = visibleMap.getRegion(toRegionId);
+		opponentMoves.add(new AttackTransferMove(playerName, fromRegion, toRegion, armies));
+		beliefs.observeAttackTransfer(fromRegion, toRegion, armies, roundNumber);
+	}
+	
 	public String getMyPlayerName(){
 		return myName;
 	}
@@ -198,6 +337,11 @@ public class BotState {
 		return opponentName;
 	}
 	
+	//player ids of both maps, ME and OPPONENT are resolved from the settings
+	public Players getPlayers(){
+		return fullMap.getPlayers();
+	}
+	
 	public int getStartingArmies(){
 		return startingArmies;
 	}
@@ -206,10 +350,77 @@ public class BotState {
 		return roundNumber;
 	}
 	
+	/**
+	 * Marks when the latest command was read, the decision clocks start from there, see DecisionScheduler
+	 */
+	public void setRequestNanos(long nanos){
+		requestNanos = nanos;
+	}
+	
+	public long getRequestNanos(){
+		return requestNanos;
+	}
+	
 	public Map getVisibleMap(){
 		return visibleMap;
 	}
 	
+	/**
+	 * @return A compact copy of the visible map that can be searched with make/unmake, see GameState
+	 */
+	public GameState createGameState(){
+		return new GameState(visibleMap);
+	}
+	
+	//true if the region is mine and borders at least one region that isn't
+	public boolean isFrontier(Region region){
+		return frontierRegions.get(region.getIndex());
+	}
+	
+	//true if the region is mine and only borders my regions
+	public boolean isInterior(Region region){
+		return interiorRegions.get(region.getIndex());
+	}
+	
+	//true if the region borders at least one region of the opponent
+	public boolean isEnemyAdjacent(Region region){
+		return enemyAdjacentRegions.get(region.getIndex());
+	}
+	
+	//indices of my frontier regions in the visible map, must not be modified
+	public BitSet getFrontierRegions(){
+		return frontierRegions;
+	}
+	
+	//indices of my interior regions in the visible map, must not be modified
+	public BitSet getInteriorRegions(){
+		return interiorRegions;
+	}
+	
+	//indices of the visible map regions that border the opponent, must not be modified
+	public BitSet getEnemyAdjacentRegions(){
+		return enemyAdjacentRegions;
+	}
+	
+	//shortest route lengths and next hops between region indices of both maps, null before the neighbors are set up or on huge maps
+	public DistanceTable getDistances(){
+		return distances;
+	}
+	
+	//what is believed about every region of the visible map, hidden ones included, null before the first map update
+	public BeliefTracker getBeliefs(){
+		return beliefs;
+	}
+	
+	public void setOpeningBook(OpeningBook book){
+		openingBook = book;
+	}
+	
+	//the book of the starting region picks, null if the bot has none
+	public OpeningBook getOpeningBook(){
+		return openingBook;
+	}
+	
 	public Map getFullMap(){
 		return fullMap;
 	}
@@ -0,0 +1,108 @@
+package bot;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Measures the wall time and the allocated bytes of the commands a BotParser handles, and gives them
+ * to a MetricsSink. Allocation is read from the HotSpot ThreadMXBean, on other JVMs it's reported as -1.
+ * It's summed over all threads of the JVM, so what a MctsBot's workers and its pondering thread allocate
+ * while the command runs is counted too; threads that end before the command does aren't. In a BotServer
+ * the other sessions' threads are counted as well.
+ */
+public class CommandMetrics {
+
+	public static final int SETUP_MAP = 0;
+	public static final int UPDATE_MAP = 1;
+	public static final int OPPONENT_MOVES = 2;
+	public static final int PICK_STARTING_REGIONS = 3;
+	public static final int PLACE_ARMIES = 4;
+	public static final int ATTACK_TRANSFER = 5;
+	public static final int COMMANDS = 6;
+
+	private static final String[] NAMES = {"setup_map", "update_map", "opponent_moves", "pick_starting_regions",
+		"go place_armies", "go attack/transfer"};
+
+	private final MetricsSink sink;
+	private final com.sun.management.ThreadMXBean threads; //null if allocation can't be measured
+	private long startNanos;
+	private long[] startThreadIds = new long[0]; //sorted, the threads alive at start()
+	private long[] startThreadBytes = new long[0]; //per start thread id, bytes it had allocated, -1 if it had ended
+
+	public CommandMetrics(MetricsSink sink)
+	{
+		this.sink = sink;
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean
+			&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+		{
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		}
+		else
+			threads = null;
+	}
+
+	/**
+	 * Starts measuring a command, call this as soon as its line is read
+	 */
+	public void start()
+	{
+		if(threads != null)
+		{
+			startThreadIds = threads.getAllThreadIds();
+			Arrays.sort(startThreadIds);
+			startThreadBytes = threads.getThreadAllocatedBytes(startThreadIds);
+		}
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring the command started last and records it
+	 * @param timeOut : milliseconds the engine allowed, 0 if the command has no timeOut
+	 */
+	public void stop(int command, long timeOut)
+	{
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = threads == null ? -1 : allocatedSinceStart();
+		sink.record(command, nanos, bytes, timeOut);
+	}
+
+	public void finish()
+	{
+		sink.finish();
+	}
+
+	//bytes the live threads allocated since start(), all of them for the threads started since
+	private long allocatedSinceStart()
+	{
+		long[] ids = threads.getAllThreadIds();
+		long[] bytes = threads.getThreadAllocatedBytes(ids);
+		long total = 0;
+		for(int i=0; i<ids.length; i++)
+		{
+			if(bytes[i] < 0)
+				continue;
+			int k = Arrays.binarySearch(startThreadIds, ids[i]);
+			long before = k >= 0 ? Math.max(0, startThreadBytes[k]) : 0;
+			total += Math.max(0, bytes[i] - before);
+		}
+		return total;
+	}
+
+	public static String getName(int command) {
+		return NAMES[command];
+	}
+
+	/**
+	 * @param spec : "stderr" for a summary on stderr at the end of the game, else the path of a CSV file
+	 */
+	public static MetricsSink createSink(String spec) throws IOException
+	{
+		if(spec.equals("stderr"))
+			return new MetricsRegistry(System.err);
+		return new CsvMetricsSink(spec);
+	}
+
+}
@@ -0,0 +1,50 @@
+package bot;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one CSV row per command: its name, wall time in nanoseconds, bytes allocated in all threads, timeOut in
+ * milliseconds and the fraction of the timeOut used. Every row is flushed, as the engine may kill the bot
+ * without ending its input.
+ */
+public class CsvMetricsSink implements MetricsSink {
+
+	private final Writer out;
+
+	public CsvMetricsSink(String path) throws IOException {
+		this(new BufferedWriter(new FileWriter(path)));
+	}
+
+	public CsvMetricsSink(Writer out) throws IOException {
+		this.out = out;
+		out.write("command,nanos,allocated_bytes,time_out,time_out_fraction\n");
+	}
+
+	@Override
+	public void record(int command, long nanos, long allocatedBytes, long timeOut)
+	{
+		try {
+			out.write(CommandMetrics.getName(command) + "," + nanos + "," + allocatedBytes + "," + timeOut + ","
+				+ (timeOut > 0 ? nanos / (timeOut * 1e6) : 0) + "\n");
+			out.flush();
+		}
+		catch(IOException e) {
+			System.err.println("Unable to write metrics " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void finish()
+	{
+		try {
+			out.close();
+		}
+		catch(IOException e) {
+			System.err.println("Unable to write metrics " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package bot;
+
+/**
+ * A point in time by which a decision must be returned. It can also be cancelled from another thread,
+ * which makes it expire at once, e.g. to stop background work.
+ */
+public class Deadline {
+
+	private final long endNanos;
+	private volatile boolean cancelled;
+
+	/**
+	 * @param budgetNanos : time from now until the deadline, in nanoseconds
+	 */
+	public Deadline(long budgetNanos) {
+		this(budgetNanos, System.nanoTime());
+	}
+
+	/**
+	 * @param budgetNanos : time from the start until the deadline, in nanoseconds
+	 * @param startNanos : System.nanoTime() when the time started running
+	 */
+	public Deadline(long budgetNanos, long startNanos) {
+		this.endNanos = startNanos + Math.max(0, budgetNanos);
+	}
+
+	/**
+	 * @return True if the deadline has passed
+	 */
+	public boolean isExpired() {
+		return cancelled || System.nanoTime() - endNanos >= 0;
+	}
+
+	/**
+	 * Makes the deadline expire now
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return A deadline that only expires when it's cancelled
+	 */
+	public static Deadline untilCancelled() {
+		return new Deadline(Long.MAX_VALUE / 4);
+	}
+
+	/**
+	 * @return Nanoseconds left until the deadline, 0 if it has passed
+	 */
+	public long getRemainingNanos() {
+		if(cancelled)
+			return 0;
+		return Math.max(0, endNanos - System.nanoTime());
+	}
+
+}
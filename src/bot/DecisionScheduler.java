@@ -0,0 +1,64 @@
+package bot;
+
+/**
+ * Turns the timeOut the engine gives with every request into a deadline, and refines an
+ * AnytimeTask until that deadline or until it can't be improved anymore. Only a fraction of the
+ * time bank is used per decision, so the bank doesn't run out over the game.
+ */
+public class DecisionScheduler {
+
+	public static final double DEFAULT_BUDGET_FRACTION = 0.1;
+	public static final long DEFAULT_MAX_BUDGET = 500; //milliseconds
+	public static final long DEFAULT_RESERVE = 20; //milliseconds always left for writing the answer
+
+	private final double budgetFraction;
+	private final long maxBudget;
+	private final long reserve;
+
+	public DecisionScheduler() {
+		this(DEFAULT_BUDGET_FRACTION, DEFAULT_MAX_BUDGET, DEFAULT_RESERVE);
+	}
+
+	/**
+	 * @param budgetFraction : part of the timeOut a decision may use
+	 * @param maxBudget : most milliseconds a decision may use, whatever the timeOut
+	 * @param reserve : milliseconds of the timeOut that are never used
+	 */
+	public DecisionScheduler(double budgetFraction, long maxBudget, long reserve) {
+		this.budgetFraction = budgetFraction;
+		this.maxBudget = maxBudget;
+		this.reserve = reserve;
+	}
+
+	/**
+	 * Starts the clock of a decision, call this as soon as the request comes in
+	 * @param timeOut : milliseconds the engine allows, null if unknown
+	 */
+	public Deadline startDecision(Long timeOut) {
+		return startDecision(timeOut, System.nanoTime());
+	}
+
+	/**
+	 * Starts the clock of a decision at the time the request came in, so what was done since is charged to it
+	 * @param timeOut : milliseconds the engine allows, null if unknown
+	 * @param requestNanos : System.nanoTime() when the request was read, 0 if unknown to start now
+	 */
+	public Deadline startDecision(Long timeOut, long requestNanos) {
+		long budget = 0;
+		if(timeOut != null)
+			budget = Math.min(Math.min(maxBudget, (long) (timeOut * budgetFraction)), timeOut - reserve);
+		return new Deadline(budget * 1000000L, requestNanos != 0 ? requestNanos : System.nanoTime());
+	}
+
+	/**
+	 * Refines the task until the deadline passes or it can't be improved anymore
+	 * @return The best answer of the task
+	 */
+	public <T> T refine(AnytimeTask<T> task, Deadline deadline) {
+		while(!deadline.isExpired() && task.refine(deadline)) {
+			//keep refining
+		}
+		return task.getBest();
+	}
+
+}
@@ -0,0 +1,132 @@
+package bot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads back the records of a log written by GameRecorder, one at a time. The log can be read from a
+ * stream, or memory-mapped so a long game doesn't need to fit on the heap. A last record cut short, from
+ * a bot that was killed while writing, is ignored.
+ */
+public class GameLog {
+
+	private final ByteBuffer buffer;
+	private final StringBuilder line = new StringBuilder();
+	private int kind;
+	private long micros;
+
+	public GameLog(ByteBuffer buffer) throws IOException
+	{
+		this.buffer = buffer;
+		if(buffer.remaining() < 5 || buffer.getInt() != GameRecorder.MAGIC)
+			throw new IOException("Not a game log");
+		int version = buffer.get();
+		if(version != GameRecorder.VERSION)
+			throw new IOException("Unknown game log version: " + version);
+	}
+
+	/**
+	 * @return A GameLog of all bytes of the stream
+	 */
+	public static GameLog read(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] chunk = new byte[1 << 16];
+		int read;
+		while((read = in.read(chunk)) > 0)
+			bytes.write(chunk, 0, read);
+		return new GameLog(ByteBuffer.wrap(bytes.toByteArray()));
+	}
+
+	/**
+	 * @return A GameLog of the memory-mapped file
+	 */
+	public static GameLog map(String path) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			return new GameLog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			file.close(); //the mapping stays valid
+		}
+	}
+
+	/**
+	 * Moves to the next record
+	 * @return False if there are no more complete records
+	 */
+	public boolean next() throws IOException
+	{
+		if(!buffer.hasRemaining())
+			return false;
+		int start = buffer.position();
+		long length = getVarint();
+		if(length < 0 || length > buffer.remaining())
+		{
+			buffer.position(start);
+			return false;
+		}
+		int end = buffer.position() + (int) length;
+		kind = buffer.get();
+		micros = getVarint();
+		line.setLength(0);
+		while(true)
+		{
+			long header = getVarint();
+			if((header & 1) == 0)
+				line.append(header >>> 3);
+			else
+				for(long i = header >>> 3; i > 0; i--)
+					line.append((char) buffer.get());
+			int separator = (int) (header >>> 1) & 3;
+			if(separator == GameRecorder.END)
+				break;
+			line.append(separator == GameRecorder.SPACE ? ' ' : ',');
+		}
+		if(buffer.position() != end)
+			throw new IOException("Corrupt game log record at " + start);
+		return true;
+	}
+
+	//-1 if the varint doesn't end before the buffer does
+	private long getVarint()
+	{
+		long value = 0;
+		for(int shift = 0; buffer.hasRemaining() && shift < 64; shift += 7)
+		{
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if(b >= 0)
+				return value;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return GameRecorder.INPUT or GameRecorder.OUTPUT
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return The microseconds between the previous record and this one
+	 */
+	public long getMicros() {
+		return micros;
+	}
+
+	/**
+	 * @return The line of this record
+	 */
+	public String getLine() {
+		return line.toString();
+	}
+
+}
@@ -0,0 +1,156 @@
+package bot;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records every line a BotParser reads and writes to a compact binary log, see GameLog to read it back.
+ * The log starts with MAGIC and VERSION, then has one record per line: its length as a varint, then the
+ * kind (INPUT or OUTPUT), the microseconds since the previous record as a varint, and the line's tokens.
+ * Lines are split at every space and comma; every token is one varint header,
+ * (payload << 3) | (separator << 1) | isString, where separator is what follows the token (END, SPACE or
+ * COMMA) and payload is either the number, for tokens written as a plain decimal number, or the length of
+ * the token's bytes, which follow.
+ *
+ * The log is flushed after every output line, as the engine may kill the bot without ending its input. A
+ * failing write doesn't stop the game; it's reported once and nothing is recorded anymore.
+ */
+public class GameRecorder {
+
+	public static final int MAGIC = 0x574C4752; //"WLGR"
+	public static final int VERSION = 1;
+
+	public static final int INPUT = 0;
+	public static final int OUTPUT = 1;
+
+	public static final int END = 0;
+	public static final int SPACE = 1;
+	public static final int COMMA = 2;
+
+	private static final int MAX_NUMBER_DIGITS = 18;
+
+	private final OutputStream out;
+	private byte[] record = new byte[1 << 12];
+	private int length;
+	private final byte[] prefix = new byte[10];
+	private long lastNanos;
+	private boolean failed;
+
+	public GameRecorder(String path) throws IOException {
+		this(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+	}
+
+	public GameRecorder(OutputStream out) throws IOException
+	{
+		this.out = out;
+		out.write(MAGIC >>> 24);
+		out.write(MAGIC >>> 16);
+		out.write(MAGIC >>> 8);
+		out.write(MAGIC);
+		out.write(VERSION);
+		lastNanos = System.nanoTime();
+	}
+
+	/**
+	 * @param kind : INPUT or OUTPUT
+	 * @param line : the line's bytes, without the line break
+	 */
+	public void record(int kind, byte[] line, int lineLength)
+	{
+		if(failed)
+			return;
+		long now = System.nanoTime();
+		length = 0;
+		ensureCapacity(20 + 10 * lineLength);
+		record[length++] = (byte) kind;
+		putVarint((now - lastNanos) / 1000);
+		lastNanos = now;
+
+		int start = 0;
+		while(true)
+		{
+			int end = start;
+			while(end < lineLength && line[end] != ' ' && line[end] != ',')
+				end++;
+			int separator = end == lineLength ? END : line[end] == ' ' ? SPACE : COMMA;
+			long number = parseNumber(line, start, end);
+			if(number >= 0)
+				putVarint(number << 3 | separator << 1);
+			else
+			{
+				putVarint((long) (end - start) << 3 | separator << 1 | 1);
+				System.arraycopy(line, start, record, length, end - start);
+				length += end - start;
+			}
+			if(separator == END)
+				break;
+			start = end + 1;
+		}
+
+		try {
+			int prefixLength = 0;
+			for(long value = length; ; value >>>= 7)
+			{
+				if(value < 0x80)
+				{
+					prefix[prefixLength++] = (byte) value;
+					break;
+				}
+				prefix[prefixLength++] = (byte) (value & 0x7F | 0x80);
+			}
+			out.write(prefix, 0, prefixLength);
+			out.write(record, 0, length);
+			if(kind == OUTPUT)
+				out.flush();
+		}
+		catch(IOException e) {
+			failed = true;
+			System.err.println("Unable to record game " + e.getMessage());
+		}
+	}
+
+	//the value of a plain decimal number that reads back the same, -1 for anything else
+	private static long parseNumber(byte[] line, int start, int end)
+	{
+		if(start == end || end - start > MAX_NUMBER_DIGITS || (line[start] == '0' && end - start > 1))
+			return -1;
+		long value = 0;
+		for(int i=start; i<end; i++)
+		{
+			int digit = line[i] - '0';
+			if(digit < 0 || digit > 9)
+				return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private void putVarint(long value)
+	{
+		while((value & ~0x7FL) != 0)
+		{
+			record[length++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		record[length++] = (byte) value;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if(record.length < capacity)
+			record = new byte[Math.max(capacity, record.length * 2)];
+	}
+
+	public void close()
+	{
+		try {
+			out.close();
+		}
+		catch(IOException e) {
+			System.err.println("Unable to record game " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package bot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import main.Map;
+import main.Players;
+import main.Region;
+import main.SuperRegion;
+
+/**
+ * Plays a made up game on the real map in the spare time of the starting region pick, so the hot paths
+ * (reading map updates and opponent moves, choosing placements and attacks, writing the moves) are compiled
+ * by the JIT before the real first round instead of running in the interpreter. The game goes through its
+ * own BotParser and BotState and a fresh bot of the real bot's class, so the real ones aren't touched and
+ * the code compiled is the code the real bot runs. Every round the regions are dealt out again at random and
+ * the opponent's moves are made up around its regions.
+ * The warm-up ends once its deadline has passed, checked before the setup and between rounds, see run().
+ */
+public class JitWarmup {
+
+	public static final double BUDGET_FRACTION = 0.5; //part of the pick's timeOut the warm-up may use
+	public static final long MAX_BUDGET = 3000; //milliseconds
+	public static final long MIN_BUDGET = 100; //milliseconds, with less the setup of the copy isn't worth it
+	public static final long MAX_ROUND_TIMEOUT = 50; //milliseconds, timeOut of the go requests of a warm-up round
+	public static final int MAX_REGIONS = 1024; //bigger maps aren't warmed up, the setup of their copy isn't cheap
+	public static final double MY_SHARE = 0.3; //chance a region is dealt to us
+	public static final double OPPONENT_SHARE = 0.3; //chance a region is dealt to the opponent
+	public static final int MAX_ARMIES = 12;
+	public static final String DEFAULT_ME = "player1";
+	public static final String DEFAULT_OPPONENT = "player2";
+
+	private final Class<? extends Bot> botClass;
+	private final Random random;
+
+	/**
+	 * @param botClass : the class of the real bot, the warm-up plays one created with its constructor without
+	 * arguments, or a BotStarter if it has none
+	 * @param seed : seed of the made up rounds
+	 */
+	public JitWarmup(Class<? extends Bot> botClass, long seed) {
+		this.botClass = botClass;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Plays warm-up rounds until BUDGET_FRACTION of the timeOut, at most MAX_BUDGET, has passed. A round that
+	 * started before that finishes, its go requests only get a fraction of what's left of the budget. There's
+	 * no warm-up if that budget is below MIN_BUDGET.
+	 * @param state : the real state, its full map must be set up
+	 * @param timeOut : milliseconds the engine allows for the pick
+	 * @return The number of rounds played, 0 if the map is too big or the time too short
+	 */
+	public int run(BotState state, long timeOut)
+	{
+		Map fullMap = state.getFullMap();
+		if(fullMap.getRegionCount() == 0 || fullMap.getRegionCount() > MAX_REGIONS)
+			return 0;
+		long budget = Math.min(MAX_BUDGET, (long) (timeOut * BUDGET_FRACTION));
+		if(budget < MIN_BUDGET)
+			return 0;
+		Deadline deadline = new Deadline(budget * 1000000L);
+		SyntheticGame game = new SyntheticGame(state, deadline);
+		BotParser parser = new BotParser(createBot(), game, new OutputStream() {
+			@Override
+			public void write(int b) {
+				//the warm-up's answers go nowhere
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				//the warm-up's answers go nowhere
+			}
+		});
+		parser.run();
+		return game.rounds;
+	}
+
+	private Bot createBot()
+	{
+		try {
+			return botClass.getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e) {
+			return new BotStarter();
+		}
+	}
+
+	/**
+	 * The lines of the warm-up game, made one round at a time and ending once the deadline has passed. The
+	 * setup is made with the first round, so it isn't parsed either if the deadline passed before.
+	 */
+	private class SyntheticGame extends InputStream {
+
+		private final Map fullMap;
+		private final String myName;
+		private final String opponentName;
+		private final Deadline deadline;
+		private final int[] owner; //per region index, the player it's dealt to this round
+		private final int[] armies;
+		private final StringBuilder lines = new StringBuilder();
+		private byte[] bytes = new byte[0];
+		private int position;
+		private int rounds;
+
+		SyntheticGame(BotState state, Deadline deadline)
+		{
+			this.fullMap = state.getFullMap();
+			this.myName = state.getMyPlayerName().isEmpty() ? DEFAULT_ME : state.getMyPlayerName();
+			this.opponentName = state.getOpponentPlayerName().isEmpty() ? DEFAULT_OPPONENT : state.getOpponentPlayerName();
+			this.deadline = deadline;
+			this.owner = new int[fullMap.getRegionCount()];
+			this.armies = new int[fullMap.getRegionCount()];
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if(!fill())
+				return -1;
+			return bytes[position++];
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException
+		{
+			if(length == 0)
+				return 0;
+			if(!fill())
+				return -1;
+			int count = Math.min(length, bytes.length - position);
+			System.arraycopy(bytes, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+
+		//makes the next round once the parser has read the previous one, false once the deadline has passed
+		private boolean fill()
+		{
+			if(position < bytes.length)
+				return true;
+			if(deadline.isExpired())
+				return false;
+			lines.setLength(0);
+			if(rounds == 0)
+				writeSetup();
+			writeRound();
+			bytes = lines.toString().getBytes(StandardCharsets.US_ASCII);
+			position = 0;
+			rounds++;
+			return true;
+		}
+
+		private void writeSetup()
+		{
+			lines.append("settings your_bot ").append(myName).append('\n');
+			lines.append("settings opponent_bot ").append(opponentName).append('\n');
+			lines.append("setup_map super_regions");
+			for(SuperRegion superRegion : fullMap.getSuperRegions())
+				lines.append(' ').append(superRegion.getId()).append(' ').append(superRegion.getArmiesReward());
+			lines.append("\nsetup_map regions");
+			for(Region region : fullMap.getRegions())
+				lines.append(' ').append(region.getId()).append(' ').append(region.getSuperRegion().getId());
+			lines.append("\nsetup_map neighbors");
+			for(Region region : fullMap.getRegions())
+			{
+				boolean first = true;
+				for(int k=0; k<region.getNeighborCount(); k++)
+				{
+					Region neighbor = region.getNeighbor(k);
+					if(neighbor.getId() < region.getId()) //every border is listed once, by its lower id
+						continue;
+					lines.append(first ? " " + region.getId() + " " : ",").append(neighbor.getId());
+					first = false;
+				}
+			}
+			lines.append('\n');
+		}
+
+		//deals the regions out, then writes what we see of them, the opponent's moves we see and both go requests
+		private void writeRound()
+		{
+			int regionCount = owner.length;
+			for(int i=0; i<regionCount; i++)
+			{
+				double draw = random.nextDouble();
+				owner[i] = draw < MY_SHARE ? Players.ME : draw < MY_SHARE + OPPONENT_SHARE ? Players.OPPONENT : Players.NEUTRAL;
+				armies[i] = 1 + random.nextInt(MAX_ARMIES);
+			}
+			//at least one region is ours, else there's nothing to decide
+			owner[random.nextInt(regionCount)] = Players.ME;
+
+			lines.append("update_map");
+			for(int i=0; i<regionCount; i++)
+			{
+				if(isVisible(i))
+					lines.append(' ').append(fullMap.getRegionAt(i).getId()).append(' ').append(getName(owner[i])).append(' ').append(armies[i]);
+			}
+			lines.append("\nopponent_moves");
+			for(int i=0; i<regionCount; i++)
+			{
+				if(owner[i] != Players.OPPONENT || !isVisible(i))
+					continue;
+				Region region = fullMap.getRegionAt(i);
+				if(random.nextBoolean())
+					lines.append(' ').append(opponentName).append(" place_armies ").append(region.getId()).append(' ').append(1 + random.nextInt(3));
+				if(armies[i] > 1 && region.getNeighborCount() > 0)
+				{
+					Region target = region.getNeighbor(random.nextInt(region.getNeighborCount()));
+					lines.append(' ').append(opponentName).append(" attack/transfer ").append(region.getId()).append(' ')
+						.append(target.getId()).append(' ').append(armies[i] - 1);
+				}
+			}
+			long roundTimeOut = Math.max(1, Math.min(MAX_ROUND_TIMEOUT, deadline.getRemainingNanos() / 1000000L));
+			lines.append("\nsettings starting_armies ").append(5 + random.nextInt(MAX_ARMIES));
+			lines.append("\ngo place_armies ").append(roundTimeOut);
+			lines.append("\ngo attack/transfer ").append(roundTimeOut).append('\n');
+		}
+
+		//we see our regions and their neighbors
+		private boolean isVisible(int index)
+		{
+			if(owner[index] == Players.ME)
+				return true;
+			Region region = fullMap.getRegionAt(index);
+			for(int k=0; k<region.getNeighborCount(); k++)
+				if(owner[region.getNeighbor(k).getIndex()] == Players.ME)
+					return true;
+			return false;
+		}
+
+		private String getName(int player)
+		{
+			if(player == Players.ME)
+				return myName;
+			if(player == Players.OPPONENT)
+				return opponentName;
+			return "neutral";
+		}
+
+	}
+
+}
@@ -0,0 +1,374 @@
+package bot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import main.GameState;
+import main.Map;
+import main.Players;
+import main.Region;
+import main.TranspositionTable;
+import move.AttackTransferMove;
+import move.MoveBuffer;
+import move.PackedMove;
+import move.PlaceArmiesMove;
+
+/**
+ * Bot that picks its starting regions and places its armies like BotStarter, and chooses its attacks
+ * and transfers with a Monte Carlo Tree Search (see MctsSearch) among candidate move sets built around
+ * BotStarter's moves. The rollouts run in parallel on a pool of daemon threads until the deadline of
+ * the DecisionScheduler, and BotStarter's moves are played when there is no time to search.
+ * When pondering, it chooses its placements and searches its attacks while the opponent and the engine
+ * think, and the attack phase goes on with that search if the state is still the same.
+ */
+public class MctsBot implements PonderingBot {
+
+	public static final int DEFAULT_ROLLOUT_ROUNDS = 2;
+	public static final int MAX_CANDIDATES = 16;
+	public static final double WEAK_ATTACK_CHANCE = 0.5; //attacks below this chance are dropped by one candidate
+	public static final double ALL_IN_CHANCE = 0.6; //least chance for the attacks of the all-in candidate
+	public static final int UNKNOWN_ARMIES = 2; //armies assumed on regions we can't see and know nothing of
+	public static final double MIN_BELIEF_CONFIDENCE = 0.3; //least confidence to use what's believed of a hidden region
+	public static final int LEAF_TABLE_SIZE_LOG2 = 16;
+
+	private static ExecutorService sharedExecutor;
+
+	private final BotStarter delegate;
+	private final DecisionScheduler scheduler;
+	private final ExecutorService executor;
+	private final int workers;
+	private final int rolloutRounds;
+	private final BattleTable battleTable;
+	private final TranspositionTable leafValues; //kept over the game, the older rounds' entries being replaced first
+	private long seed;
+
+	private MoveBuffer placements; //our placements of the current round, BotStarter's buffer
+	private int[] lastVisits; //per candidate, rollouts of the last search
+
+	//what's known of the state with this round and visible map hash, see forState()
+	private int stateRound = -1;
+	private long stateHash;
+	private boolean placementsAnswered; //our placements for this state are given
+	private MoveBuffer ponderedPlacements; //BotStarter's placements chosen while pondering, null if none
+	private MoveBuffer baseline; //BotStarter's attacks and transfers for our placements, null if not chosen yet
+	private List<MoveBuffer> candidates;
+	private MctsSearch search; //search among the candidates, null if not started
+
+	private Future<?> ponderTask; //null if not pondering
+	private Deadline ponderDeadline;
+
+	public MctsBot() {
+		this(new DecisionScheduler(), getSharedExecutor(), Runtime.getRuntime().availableProcessors(), System.nanoTime());
+	}
+
+	/**
+	 * @param scheduler : gives the time of every decision
+	 * @param executor : runs the search workers
+	 * @param workers : number of workers searching in parallel
+	 * @param seed : seed of the rollouts
+	 */
+	public MctsBot(DecisionScheduler scheduler, ExecutorService executor, int workers, long seed) {
+		this.battleTable = BattleTable.DEFAULT;
+		this.delegate = new BotStarter(battleTable, scheduler);
+		this.scheduler = scheduler;
+		this.executor = executor;
+		this.workers = workers;
+		this.rolloutRounds = DEFAULT_ROLLOUT_ROUNDS;
+		this.leafValues = new TranspositionTable(LEAF_TABLE_SIZE_LOG2);
+		this.seed = seed;
+	}
+
+	/**
+	 * @return A pool of daemon threads shared by all MctsBots that aren't given one, so they never keep the program alive
+	 */
+	public static synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			sharedExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "mcts-worker");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sharedExecutor;
+	}
+
+	@Override
+	public ArrayList<Region> getPreferredStartingRegions(BotState state, Long timeOut) {
+		return delegate.getPreferredStartingRegions(state, timeOut);
+	}
+
+	@Override
+	public ArrayList<PlaceArmiesMove> getPlaceArmiesMoves(BotState state, Long timeOut) {
+		forState(state);
+		if (ponderedPlacements != null) {
+			placements = ponderedPlacements;
+		} else {
+			placements = delegate.choosePlacements(state, timeOut);
+			baseline = null;
+			search = null;
+		}
+		placementsAnswered = true;
+		return placements.toPlaceArmiesMoves(state.getVisibleMap(), state.getMyPlayerName());
+	}
+
+	@Override
+	public ArrayList<AttackTransferMove> getAttackTransferMoves(BotState state, Long timeOut) {
+		Deadline deadline = scheduler.startDecision(timeOut, state.getRequestNanos());
+		forState(state);
+		Map map = state.getVisibleMap();
+		String myName = state.getMyPlayerName();
+
+		if (search == null) {
+			baseline = delegate.chooseAttackTransfers(state, timeOut);
+			if (!placementsAnswered || !prepareSearch(state, placements, deadline)) {
+				return baseline.toAttackTransferMoves(map, myName);
+			}
+		}
+		MctsSearch current = search;
+		search = null; //the attack phase ends this state's search
+		try {
+			int best = current.search(deadline, executor, workers, seed++);
+			lastVisits = current.getVisits();
+			return candidates.get(best).toAttackTransferMoves(map, myName);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return baseline.toAttackTransferMoves(map, myName);
+		}
+		catch (ExecutionException e) {
+			return baseline.toAttackTransferMoves(map, myName);
+		}
+	}
+
+	/**
+	 * Chooses the placements if they aren't given yet, then BotStarter's attacks and the candidates, then
+	 * searches among them until stopPondering(). The search runs on the executor, so a fixed size pool
+	 * needs a thread more than the workers.
+	 */
+	@Override
+	public void startPondering(final BotState state) {
+		stopPondering();
+		forState(state);
+		final Deadline deadline = Deadline.untilCancelled();
+		ponderDeadline = deadline;
+		ponderTask = executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				ponder(state, deadline);
+			}
+		});
+	}
+
+	@Override
+	public void stopPondering() {
+		if (ponderTask == null) {
+			return;
+		}
+		ponderDeadline.cancel();
+		try {
+			ponderTask.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) { //what was pondered can't be trusted
+			ponderedPlacements = null;
+			baseline = null;
+			search = null;
+		}
+		ponderTask = null;
+	}
+
+	//runs on the executor, what's only partly chosen when the deadline is cancelled is dropped
+	private void ponder(BotState state, Deadline deadline) {
+		if (!placementsAnswered && ponderedPlacements == null) {
+			MoveBuffer chosen = delegate.choosePlacements(state, deadline);
+			if (deadline.isExpired()) {
+				return;
+			}
+			ponderedPlacements = chosen;
+		}
+		if (search == null) {
+			MoveBuffer chosen = delegate.chooseAttackTransfers(state, deadline);
+			if (deadline.isExpired()) {
+				return;
+			}
+			baseline = chosen;
+			if (!prepareSearch(state, placementsAnswered ? placements : ponderedPlacements, deadline)) {
+				return;
+			}
+		}
+		try {
+			search.search(deadline, executor, workers, seed++);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			search = null;
+		}
+	}
+
+	//forgets what was found for another state than this one
+	private void forState(BotState state) {
+		int round = state.getRoundNumber();
+		long hash = state.getVisibleMap().getHash();
+		if (round == stateRound && hash == stateHash) {
+			return;
+		}
+		stateRound = round;
+		stateHash = hash;
+		placementsAnswered = false;
+		ponderedPlacements = null;
+		baseline = null;
+		candidates = null;
+		search = null;
+	}
+
+	//false if the deadline expired first, then there's no search
+	private boolean prepareSearch(BotState state, MoveBuffer myPlacements, Deadline deadline) {
+		if (deadline.isExpired()) {
+			return false;
+		}
+		GameState root = createRootState(state, myPlacements);
+		candidates = createCandidates(state, root, baseline);
+		if (deadline.isExpired()) {
+			return false;
+		}
+		int opponentIncome = Math.max(root.getIncome(Players.OPPONENT), state.getBeliefs().getOpponentIncome());
+		leafValues.newGeneration();
+		search = new MctsSearch(root, candidates.toArray(new MoveBuffer[candidates.size()]), Players.ME, Players.OPPONENT,
+				opponentIncome, rolloutRounds, battleTable, leafValues);
+		return true;
+	}
+
+	/**
+	 * @return Per candidate of the last attack phase, the number of rollouts it got, the first candidate being BotStarter's moves
+	 */
+	public int[] getLastVisits() {
+		return lastVisits;
+	}
+
+	//the visible map with our placements, regions we can't see are as believed if that's recent enough, else neutral
+	private GameState createRootState(BotState state, MoveBuffer placements) {
+		GameState root = state.createGameState();
+		BeliefTracker beliefs = state.getBeliefs();
+		for (int i = 0; i < root.getRegionCount(); i++) {
+			if (root.getOwner(i) != Players.UNKNOWN) {
+				continue;
+			}
+			int believedOwner = beliefs.getOwner(i);
+			if (believedOwner != Players.UNKNOWN && believedOwner != Players.ME
+					&& beliefs.getConfidence(i, state.getRoundNumber()) >= MIN_BELIEF_CONFIDENCE) {
+				root.setOwner(i, believedOwner);
+				root.setArmies(i, Math.max(1, beliefs.getArmies(i)));
+			} else {
+				root.setOwner(i, Players.NEUTRAL);
+				root.setArmies(i, UNKNOWN_ARMIES);
+			}
+		}
+		for (int i = 0; i < placements.size(); i++) {
+			root.placeArmies(PackedMove.getFrom(placements.get(i)), PackedMove.getArmies(placements.get(i)));
+		}
+		return root;
+	}
+
+	/**
+	 * Builds the move sets the search chooses from: BotStarter's moves first, then its transfers only,
+	 * its moves without the unlikely attacks, an all-in attack from every region, and its moves without
+	 * one of its attacks for each attack. Duplicates are left out.
+	 */
+	private List<MoveBuffer> createCandidates(BotState state, GameState root, MoveBuffer baseline) {
+		List<MoveBuffer> candidates = new ArrayList<MoveBuffer>();
+		HashSet<MoveBuffer> seen = new HashSet<MoveBuffer>();
+		addCandidate(candidates, seen, baseline);
+
+		Map map = state.getVisibleMap();
+		MoveBuffer transfers = new MoveBuffer();
+		MoveBuffer likely = new MoveBuffer();
+		ArrayList<Integer> attacks = new ArrayList<Integer>();
+		for (int i = 0; i < baseline.size(); i++) {
+			long move = baseline.get(i);
+			Region toRegion = map.getRegionAt(PackedMove.getTo(move));
+			if (toRegion.ownedByPlayer(Players.ME)) {
+				transfers.add(move);
+				likely.add(move);
+				continue;
+			}
+			attacks.add(i);
+			int attackers = Math.min(PackedMove.getArmies(move), root.getArmies(PackedMove.getFrom(move)) - 1);
+			if (captureChance(attackers, toRegion.getArmies()) >= WEAK_ATTACK_CHANCE) {
+				likely.add(move);
+			}
+		}
+		addCandidate(candidates, seen, transfers);
+		addCandidate(candidates, seen, likely);
+		addCandidate(candidates, seen, createAllIn(state, root, transfers));
+
+		for (int k = 0; k < attacks.size() && candidates.size() < MAX_CANDIDATES; k++) {
+			MoveBuffer without = new MoveBuffer(baseline);
+			without.remove(attacks.get(k));
+			addCandidate(candidates, seen, without);
+		}
+		return candidates;
+	}
+
+	//every region attacks its weakest foreign neighbor with all its armies when the capture is likely, keeping the given transfers
+	private MoveBuffer createAllIn(BotState state, GameState root, MoveBuffer transfers) {
+		MoveBuffer moves = new MoveBuffer();
+		for (Region fromRegion : state.getVisibleMap().getRegions()) {
+			if (!fromRegion.ownedByPlayer(Players.ME)) {
+				continue;
+			}
+			int available = root.getArmies(fromRegion.getIndex()) - 1;
+			Region weakest = null;
+			for (Region toRegion : fromRegion.getNeighbors()) {
+				if (!toRegion.ownedByPlayer(Players.ME) && (weakest == null || toRegion.getArmies() < weakest.getArmies())) {
+					weakest = toRegion;
+				}
+			}
+			if (weakest != null && available > 0 && captureChance(available, weakest.getArmies()) >= ALL_IN_CHANCE) {
+				moves.add(PackedMove.attackTransfer(Players.ME, fromRegion.getIndex(), weakest.getIndex(), available));
+			}
+		}
+		moves.addAll(transfers);
+		return moves;
+	}
+
+	private static void addCandidate(List<MoveBuffer> candidates, HashSet<MoveBuffer> seen, MoveBuffer moves) {
+		if (seen.add(moves)) {
+			candidates.add(moves);
+		}
+	}
+
+	private double captureChance(int attackers, int defenders) {
+		if (attackers <= 0) {
+			return 0;
+		}
+		if (attackers <= battleTable.getMaxArmies() && defenders <= battleTable.getMaxArmies()) {
+			return battleTable.getCaptureChance(attackers, defenders);
+		}
+		return attackers * BattleTable.ATTACKER_KILL_RATE > defenders ? 1 : 0;
+	}
+
+	/**
+	 * Arguments: see BotParser.configure()
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		BotParser parser = new BotParser(new MctsBot());
+		parser.configure(args);
+		parser.run();
+	}
+
+}
@@ -0,0 +1,183 @@
+package bot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import main.GameState;
+import main.TranspositionTable;
+import move.MoveBuffer;
+
+/**
+ * Monte Carlo Tree Search over candidate attack/transfer move sets. The root's children are the
+ * candidates, chosen by UCB1; each visit plays the candidate against the opponent's rollout policy
+ * for this round and then a few more rounds of rollout policy for both players, and backs up the
+ * share of the final score that is ours, then undoes the rollout on its state. The search is root-parallel:
+ * every worker searches its own copy of the tree with its own random stream and copy of the root state,
+ * and the visit counts are summed. The value of the final position of a rollout is looked up by its hash in a
+ * TranspositionTable shared by the workers, so positions reached again are only scored once.
+ */
+class MctsSearch {
+
+	static final double EXPLORATION = Math.sqrt(2);
+
+	private final GameState root;
+	private final MoveBuffer[] candidates; //per candidate, our attacks and transfers
+	private final int me;
+	private final int opponent;
+	private final int opponentIncome;
+	private final int rolloutRounds;
+	private final BattleTable battleTable;
+	private final TranspositionTable leafValues;
+
+	private final int[] visits; //summed over all searches
+	private final double[] values;
+
+	/**
+	 * @param root : state at the start of the attack phase, with our placements already on it
+	 * @param candidates : per candidate, our moves as PackedMoves of region indices
+	 * @param opponentIncome : armies the opponent is expected to place this round
+	 * @param rolloutRounds : rounds played by the rollout policy after this one
+	 * @param leafValues : values of final rollout positions for me against opponent, shared by the workers
+	 */
+	MctsSearch(GameState root, MoveBuffer[] candidates, int me, int opponent, int opponentIncome, int rolloutRounds, BattleTable battleTable,
+			TranspositionTable leafValues) {
+		this.root = root;
+		this.candidates = candidates;
+		this.me = me;
+		this.opponent = opponent;
+		this.opponentIncome = opponentIncome;
+		this.rolloutRounds = rolloutRounds;
+		this.battleTable = battleTable;
+		this.leafValues = leafValues;
+		this.visits = new int[candidates.length];
+		this.values = new double[candidates.length];
+	}
+
+	/**
+	 * Searches until the deadline on the given number of workers. The rollouts add up with the ones of
+	 * earlier searches, so a search started while pondering can be continued when the request comes.
+	 * @return The index of the most visited candidate, 0 if there was no time for any rollout
+	 */
+	int search(Deadline deadline, ExecutorService executor, int workers, long seed) throws InterruptedException, ExecutionException {
+		if (candidates.length <= 1) {
+			return 0;
+		}
+
+		List<Callable<Worker>> tasks = new ArrayList<Callable<Worker>>(workers);
+		for (int w = 0; w < workers; w++) {
+			tasks.add(new Worker(deadline, seed + 0x9E3779B97F4A7C15L * (w + 1)));
+		}
+		List<Future<Worker>> futures = executor.invokeAll(tasks);
+		for (Future<Worker> future : futures) {
+			Worker worker = future.get();
+			for (int c = 0; c < candidates.length; c++) {
+				visits[c] += worker.visits[c];
+				values[c] += worker.values[c];
+			}
+		}
+
+		int best = 0;
+		for (int c = 1; c < candidates.length; c++) {
+			if (visits[c] > visits[best] || (visits[c] == visits[best] && values[c] > values[best])) {
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return Per candidate, the rollouts of all searches over all workers
+	 */
+	int[] getVisits() {
+		return visits;
+	}
+
+	/**
+	 * @return Per candidate, the average value of its rollouts, between 0 and 1
+	 */
+	double getAverageValue(int candidate) {
+		return visits[candidate] == 0 ? 0 : values[candidate] / visits[candidate];
+	}
+
+	private class Worker implements Callable<Worker> {
+
+		private final Deadline deadline;
+		private final Random random;
+		private final GameState state;
+		private final RolloutPolicy policy;
+		private final int[] visits = new int[candidates.length];
+		private final double[] values = new double[candidates.length];
+
+		Worker(Deadline deadline, long seed) {
+			this.deadline = deadline;
+			this.random = new Random(seed);
+			this.state = new GameState(root);
+			this.policy = new RolloutPolicy(battleTable, root.getRegionCount());
+		}
+
+		@Override
+		public Worker call() {
+			int total = 0;
+			while (!deadline.isExpired()) {
+				int candidate = select(total);
+				values[candidate] += rollout(candidate);
+				visits[candidate]++;
+				total++;
+			}
+			return this;
+		}
+
+		//UCB1, unvisited candidates first
+		private int select(int total) {
+			int best = 0;
+			double bestBound = -1;
+			double logTotal = Math.log(total + 1);
+			for (int c = 0; c < candidates.length; c++) {
+				if (visits[c] == 0) {
+					return c;
+				}
+				double bound = values[c] / visits[c] + EXPLORATION * Math.sqrt(logTotal / visits[c]);
+				if (bound > bestBound) {
+					bestBound = bound;
+					best = c;
+				}
+			}
+			return best;
+		}
+
+		private double rollout(int candidate) {
+			state.beginRound();
+			policy.placeArmies(state, opponent, opponentIncome, random);
+			policy.generateMoves(state, opponent, random);
+			RolloutPolicy.executeAlternately(state, candidates[candidate], policy.getMoves(), random);
+
+			for (int round = 0; round < rolloutRounds; round++) {
+				policy.playRound(state, me, opponent, random);
+			}
+
+			double value = leafValues.get(state.getHash());
+			if (Double.isNaN(value)) {
+				value = evaluate();
+				leafValues.put(state.getHash(), value, 0);
+			}
+			state.undoTo(0);
+			return value;
+		}
+
+		//our share of the score of the state
+		private double evaluate() {
+			double myScore = RolloutPolicy.score(state, me);
+			double opponentScore = RolloutPolicy.score(state, opponent);
+			if (myScore + opponentScore == 0) {
+				return 0.5;
+			}
+			return myScore / (myScore + opponentScore);
+		}
+	}
+
+}
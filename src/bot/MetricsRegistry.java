@@ -0,0 +1,111 @@
+package bot;
+
+import java.io.PrintStream;
+
+/**
+ * Keeps the measurements of every command in memory: calls, total and max wall time, allocated bytes and
+ * a histogram of the fraction of the timeOut used, in buckets of a tenth with the last one for overruns.
+ * If it has a PrintStream, it prints its summary there when the input ends.
+ */
+public class MetricsRegistry implements MetricsSink {
+
+	public static final int FRACTION_BUCKETS = 11;
+
+	private final PrintStream summaryOut;
+	private final long[] calls = new long[CommandMetrics.COMMANDS];
+	private final long[] totalNanos = new long[CommandMetrics.COMMANDS];
+	private final long[] maxNanos = new long[CommandMetrics.COMMANDS];
+	private final long[] totalBytes = new long[CommandMetrics.COMMANDS];
+	private final long[][] fractionCounts = new long[CommandMetrics.COMMANDS][FRACTION_BUCKETS];
+	private final double[] maxFraction = new double[CommandMetrics.COMMANDS];
+
+	public MetricsRegistry() {
+		this(null);
+	}
+
+	/**
+	 * @param summaryOut : where to print the summary when the input ends, null for nowhere
+	 */
+	public MetricsRegistry(PrintStream summaryOut) {
+		this.summaryOut = summaryOut;
+	}
+
+	@Override
+	public synchronized void record(int command, long nanos, long allocatedBytes, long timeOut)
+	{
+		calls[command]++;
+		totalNanos[command] += nanos;
+		if(nanos > maxNanos[command])
+			maxNanos[command] = nanos;
+		if(allocatedBytes > 0)
+			totalBytes[command] += allocatedBytes;
+		if(timeOut > 0)
+		{
+			double fraction = nanos / (timeOut * 1e6);
+			fractionCounts[command][Math.min(FRACTION_BUCKETS - 1, (int) (fraction * 10))]++;
+			if(fraction > maxFraction[command])
+				maxFraction[command] = fraction;
+		}
+	}
+
+	@Override
+	public void finish()
+	{
+		if(summaryOut != null)
+			summaryOut.print(this);
+	}
+
+	public synchronized long getCalls(int command) {
+		return calls[command];
+	}
+
+	public synchronized long getTotalNanos(int command) {
+		return totalNanos[command];
+	}
+
+	public synchronized long getMaxNanos(int command) {
+		return maxNanos[command];
+	}
+
+	public synchronized long getTotalBytes(int command) {
+		return totalBytes[command];
+	}
+
+	/**
+	 * @return The number of calls of the command that used between bucket/10 and (bucket+1)/10 of their
+	 * timeOut, the last bucket counting all calls that used the whole timeOut or more
+	 */
+	public synchronized long getFractionCount(int command, int bucket) {
+		return fractionCounts[command][bucket];
+	}
+
+	/**
+	 * @return The biggest fraction of its timeOut a call of the command used, 0 if it has no timeOut
+	 */
+	public synchronized double getMaxFraction(int command) {
+		return maxFraction[command];
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		StringBuilder out = new StringBuilder();
+		for(int command=0; command<CommandMetrics.COMMANDS; command++)
+		{
+			if(calls[command] == 0)
+				continue;
+			out.append(String.format("%-22s %6d calls %9.3fms avg %9.3fms max %10.1fKB avg in all threads",
+				CommandMetrics.getName(command), calls[command], totalNanos[command] / 1e6 / calls[command],
+				maxNanos[command] / 1e6, totalBytes[command] / 1024.0 / calls[command]));
+			if(maxFraction[command] > 0)
+			{
+				out.append(String.format(" %6.2f%% of timeOut max, per tenth:", maxFraction[command] * 100));
+				for(int bucket=0; bucket<FRACTION_BUCKETS; bucket++)
+					out.append(' ').append(fractionCounts[command][bucket]);
+			}
+			out.append('\n');
+		}
+		return out.toString();
+	}
+
+}
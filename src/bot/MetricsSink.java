@@ -0,0 +1,21 @@
+package bot;
+
+/**
+ * Receives the measurements of the commands a BotParser handles, see CommandMetrics.
+ */
+public interface MetricsSink {
+
+	/**
+	 * @param command : one of the CommandMetrics commands
+	 * @param nanos : wall time from reading the command to writing the answer
+	 * @param allocatedBytes : bytes all threads allocated meanwhile, -1 if the JVM can't tell
+	 * @param timeOut : milliseconds the engine allowed, 0 if the command has no timeOut
+	 */
+	public void record(int command, long nanos, long allocatedBytes, long timeOut);
+
+	/**
+	 * Called once the input ends
+	 */
+	public void finish();
+
+}
@@ -0,0 +1,193 @@
+package bot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import main.Map;
+import main.Region;
+import main.SuperRegion;
+
+/**
+ * Rankings of the starting regions of known maps, precomputed by OpeningBookBuilder and looked up by the
+ * topology hash of the map, see getTopologyHash(). A ranking lists the ids of all regions of its map, the
+ * best pick first.
+ * The book file is an open addressing hash table of the maps, so it's memory-mapped as is and a lookup
+ * reads a slot or a few, however many maps there are. File layout, big-endian: int MAGIC, int VERSION,
+ * int slot count (a power of 2), then per slot a long topology hash, an int offset and an int length of its
+ * ranking in the ids that follow, the length being 0 for an empty slot, then the int ids of all rankings.
+ * A book is only read, so one book can be shared by all the bots of a JVM, see BotServer.
+ */
+public class OpeningBook {
+
+	public static final int MAGIC = 0x4F504E42; //"OPNB"
+	public static final int VERSION = 1;
+	public static final int HEADER_BYTES = 12;
+	public static final int SLOT_BYTES = 16;
+
+	private final ByteBuffer buffer;
+	private final int slotMask;
+	private final int idsStart; //byte position of the first id
+
+	public OpeningBook(ByteBuffer buffer) throws IOException
+	{
+		this.buffer = buffer;
+		if(buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not an opening book");
+		int version = buffer.getInt(4);
+		if(version != VERSION)
+			throw new IOException("Unknown opening book version: " + version);
+		int slotCount = buffer.getInt(8);
+		if(slotCount <= 0 || Integer.bitCount(slotCount) != 1 || HEADER_BYTES + (long) slotCount * SLOT_BYTES > buffer.limit())
+			throw new IOException("Corrupt opening book");
+		this.slotMask = slotCount - 1;
+		this.idsStart = HEADER_BYTES + slotCount * SLOT_BYTES;
+	}
+
+	/**
+	 * @return An OpeningBook of the memory-mapped file
+	 */
+	public static OpeningBook map(String path) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			file.close(); //the mapping stays valid
+		}
+	}
+
+	/**
+	 * @return A hash of the SuperRegions with their rewards, the regions with their SuperRegion and the borders
+	 * of a map, that doesn't depend on the order they were given in
+	 */
+	public static long getTopologyHash(Map map)
+	{
+		long hash = 0;
+		for(SuperRegion superRegion : map.getSuperRegions())
+			hash += mix(((long) superRegion.getId() << 32) + superRegion.getArmiesReward());
+		for(Region region : map.getRegions())
+		{
+			hash += mix(0x100000000L * region.getId() + region.getSuperRegion().getId() + 0x5EED);
+			for(int k=0; k<region.getNeighborCount(); k++)
+				hash += mix(((long) region.getId() << 32 | region.getNeighbor(k).getId()) ^ 0x5A5A5A5A5A5A5A5AL);
+		}
+		return mix(hash);
+	}
+
+	//SplitMix64 finalizer
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return The slot of the map with this topology hash, -1 if the book doesn't know it
+	 */
+	private int findSlot(long topologyHash)
+	{
+		for(int probe=0; probe<=slotMask; probe++)
+		{
+			int slot = (int) (topologyHash + probe) & slotMask;
+			int position = HEADER_BYTES + slot * SLOT_BYTES;
+			if(buffer.getInt(position + 12) == 0)
+				return -1;
+			if(buffer.getLong(position) == topologyHash)
+				return slot;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return True if the book has a ranking for the map with this topology hash
+	 */
+	public boolean contains(long topologyHash) {
+		return findSlot(topologyHash) >= 0;
+	}
+
+	/**
+	 * @param map : the full map
+	 * @param candidates : regions of the map
+	 * @param count : number of regions wanted
+	 * @return At most count of the candidates, in the book's order, an empty list if the book doesn't know the map
+	 */
+	public ArrayList<Region> rank(Map map, List<Region> candidates, int count)
+	{
+		ArrayList<Region> ranked = new ArrayList<Region>(count);
+		int slot = findSlot(getTopologyHash(map));
+		if(slot < 0)
+			return ranked;
+		int position = HEADER_BYTES + slot * SLOT_BYTES;
+		int offset = buffer.getInt(position + 8);
+		int length = buffer.getInt(position + 12);
+		for(int i=0; i<length && ranked.size() < count; i++)
+		{
+			Region region = map.getRegion(buffer.getInt(idsStart + 4 * (offset + i)));
+			if(region != null && candidates.contains(region) && !ranked.contains(region))
+				ranked.add(region);
+		}
+		return ranked;
+	}
+
+	/**
+	 * Writes a book file
+	 * @param topologyHashes : per map, its topology hash
+	 * @param rankings : per map, the ids of its regions, the best pick first
+	 */
+	public static void write(String path, long[] topologyHashes, int[][] rankings) throws IOException
+	{
+		int slotCount = Integer.highestOneBit(Math.max(1, topologyHashes.length * 2 - 1)) * 2; //at most half full
+		long[] slotHashes = new long[slotCount];
+		int[] slotMaps = new int[slotCount];
+		for(int i=0; i<slotCount; i++)
+			slotMaps[i] = -1;
+		for(int m=0; m<topologyHashes.length; m++)
+		{
+			if(rankings[m].length == 0)
+				throw new IllegalArgumentException("Empty ranking");
+			int slot = (int) topologyHashes[m] & (slotCount - 1);
+			while(slotMaps[slot] >= 0 && slotHashes[slot] != topologyHashes[m])
+				slot = (slot + 1) & (slotCount - 1);
+			slotHashes[slot] = topologyHashes[m];
+			slotMaps[slot] = m; //a map given twice keeps its last ranking
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(slotCount);
+			int offset = 0;
+			for(int slot=0; slot<slotCount; slot++)
+			{
+				int m = slotMaps[slot];
+				out.writeLong(m < 0 ? 0 : slotHashes[slot]);
+				out.writeInt(m < 0 ? 0 : offset);
+				out.writeInt(m < 0 ? 0 : rankings[m].length);
+				if(m >= 0)
+					offset += rankings[m].length;
+			}
+			for(int slot=0; slot<slotCount; slot++)
+			{
+				if(slotMaps[slot] < 0)
+					continue;
+				for(int id : rankings[slotMaps[slot]])
+					out.writeInt(id);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package bot;
+
+import java.util.List;
+
+import move.MoveBuffer;
+import move.PackedMove;
+
+/**
+ * Refines the placement of the armies between outnumbered regions: one army at a time moves from
+ * the outnumbered region that got the most help to the one that is still the most outnumbered,
+ * until their troop differences are as even as possible.
+ */
+class PlacementRefinement implements AnytimeTask<MoveBuffer> {
+
+	private final int me;
+	private final List<RegionAdvantage> advantages; //sorted, outnumbered regions first
+	private final int outnumbered; //number of regions with a negative troop difference
+	private final int[] placed; //armies placed per position in advantages
+	private final MoveBuffer baseline;
+	private boolean changed;
+
+	/**
+	 * @param baseline : PackedMove placements, rewritten in place by getBest() if they were refined
+	 * @param regionCount : number of regions of the map, the range of region indices
+	 */
+	PlacementRefinement(int me, List<RegionAdvantage> advantages, MoveBuffer baseline, int regionCount) {
+		this.me = me;
+		this.advantages = advantages;
+		this.baseline = baseline;
+		this.placed = new int[advantages.size()];
+
+		int count = 0;
+		while (count < advantages.size() && advantages.get(count).getDifference() < 0) {
+			count++;
+		}
+		outnumbered = count;
+
+		int[] positions = new int[regionCount];
+		for (int i = 0; i < advantages.size(); i++) {
+			positions[advantages.get(i).getRegion().getIndex()] = i + 1;
+		}
+		for (int i = 0; i < baseline.size(); i++) {
+			int position = positions[PackedMove.getFrom(baseline.get(i))] - 1;
+			if (position >= 0) {
+				placed[position] += PackedMove.getArmies(baseline.get(i));
+			}
+		}
+	}
+
+	@Override
+	public boolean refine(Deadline deadline) {
+		int weakest = -1, mostHelped = -1;
+		for (int i = 0; i < outnumbered; i++) {
+			int advantage = advantages.get(i).getDifference() + placed[i];
+			if (weakest < 0 || advantage < advantages.get(weakest).getDifference() + placed[weakest]) {
+				weakest = i;
+			}
+			if (placed[i] > 0 && (mostHelped < 0 || advantage > advantages.get(mostHelped).getDifference() + placed[mostHelped])) {
+				mostHelped = i;
+			}
+		}
+		if (weakest < 0 || mostHelped < 0) {
+			return false;
+		}
+
+		int gap = (advantages.get(mostHelped).getDifference() + placed[mostHelped]) - (advantages.get(weakest).getDifference() + placed[weakest]);
+		if (gap <= 1) {
+			return false;
+		}
+		placed[mostHelped]--;
+		placed[weakest]++;
+		changed = true;
+		return true;
+	}
+
+	@Override
+	public MoveBuffer getBest() {
+		if (changed) {
+			baseline.clear();
+			for (int i = 0; i < advantages.size(); i++) {
+				if (placed[i] > 0) {
+					baseline.add(PackedMove.placeArmies(me, advantages.get(i).getRegion().getIndex(), placed[i]));
+				}
+			}
+			changed = false;
+		}
+		return baseline;
+	}
+
+}
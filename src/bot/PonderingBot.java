@@ -0,0 +1,22 @@
+package bot;
+
+/**
+ * A Bot that can think in the background while it waits for the next request, see BotParser.setPondering().
+ * The parser starts pondering once it has handled update_map, opponent_moves or go place_armies, and stops
+ * it before it handles the next line. Between the two the parser doesn't change the BotState, so the bot
+ * may read it from its own threads.
+ */
+public interface PonderingBot extends Bot {
+
+	/**
+	 * Starts thinking about the next request in the background and returns at once
+	 */
+	public void startPondering(BotState state);
+
+	/**
+	 * Stops the background thinking, keeping what it found for the next request. Returns once nothing
+	 * started by startPondering() reads the state anymore.
+	 */
+	public void stopPondering();
+
+}
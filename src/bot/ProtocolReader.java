@@ -0,0 +1,239 @@
+package bot;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import main.Players;
+
+/**
+ * Reads the engine's protocol line by line straight from the input bytes. Lines are split into
+ * space separated tokens, and tokens can be read as numbers or compared to strings without
+ * creating any objects. A token can also be a comma separated list of numbers (neighbors).
+ */
+public class ProtocolReader {
+
+	private final InputStream in;
+
+	private final byte[] buffer = new byte[1 << 16];
+	private int bufferPosition;
+	private int bufferEnd;
+
+	private byte[] line = new byte[1 << 12]; //current line, without leading or trailing whitespace
+	private int lineLength;
+	private int tokenCount;
+	private int cursor; //position in line where the next token starts looking
+
+	private int tokenStart; //current token is line[tokenStart] to line[tokenEnd-1]
+	private int tokenEnd;
+	private int itemCursor; //position in the current token where the next list item starts
+
+	public ProtocolReader(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads the next non-empty line
+	 * @return False if the end of the input is reached
+	 * @throws IOException
+	 */
+	public boolean nextLine() throws IOException {
+		do {
+			if(!readLine())
+				return false;
+		} while(lineLength == 0);
+
+		tokenCount = 0;
+		for(int i=0; i<lineLength; i++)
+			if(line[i] != ' ' && (i == 0 || line[i-1] == ' '))
+				tokenCount++;
+		cursor = 0;
+		tokenStart = tokenEnd = 0;
+		return true;
+	}
+
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		boolean readSomething = false;
+		while(true) {
+			if(bufferPosition == bufferEnd) {
+				bufferEnd = in.read(buffer, 0, buffer.length);
+				bufferPosition = 0;
+				if(bufferEnd <= 0) {
+					bufferEnd = 0;
+					break;
+				}
+			}
+			readSomething = true;
+			byte b = buffer[bufferPosition++];
+			if(b == '\n')
+				break;
+			if(lineLength == line.length) {
+				byte[] grown = new byte[line.length * 2];
+				System.arraycopy(line, 0, grown, 0, lineLength);
+				line = grown;
+			}
+			line[lineLength++] = b;
+		}
+
+		//trim
+		int start = 0;
+		while(start < lineLength && line[start] <= ' ')
+			start++;
+		while(lineLength > start && line[lineLength-1] <= ' ')
+			lineLength--;
+		if(start > 0) {
+			System.arraycopy(line, start, line, 0, lineLength - start);
+			lineLength -= start;
+		}
+		return readSomething;
+	}
+
+	/**
+	 * @return The number of space separated tokens on the current line
+	 */
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * Moves to the next token of the current line
+	 * @return False if there are no more tokens on this line
+	 */
+	public boolean nextToken() {
+		while(cursor < lineLength && line[cursor] == ' ')
+			cursor++;
+		if(cursor == lineLength)
+			return false;
+		tokenStart = cursor;
+		while(cursor < lineLength && line[cursor] != ' ')
+			cursor++;
+		tokenEnd = cursor;
+		itemCursor = tokenStart;
+		return true;
+	}
+
+	/**
+	 * @return True if the current token is exactly the given string
+	 */
+	public boolean tokenEquals(String s) {
+		return rangeEquals(tokenStart, tokenEnd, s);
+	}
+
+	private boolean rangeEquals(int start, int end, String s) {
+		if(end - start != s.length())
+			return false;
+		for(int i=start; i<end; i++)
+			if(line[i] != s.charAt(i - start))
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return The current token as an int
+	 * @throws NumberFormatException if the token is not a number
+	 */
+	public int tokenInt() {
+		long value = parseLong(tokenStart, tokenEnd);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new NumberFormatException("Out of range: \"" + tokenString() + "\"");
+		return (int) value;
+	}
+
+	/**
+	 * @return The current token as a long
+	 * @throws NumberFormatException if the token is not a number
+	 */
+	public long tokenLong() {
+		return parseLong(tokenStart, tokenEnd);
+	}
+
+	/**
+	 * Moves to the next token and reads it as an int
+	 * @throws NumberFormatException if there is no next token or it is not a number
+	 */
+	public int nextInt() {
+		if(!nextToken())
+			throw new NumberFormatException("Missing number");
+		return tokenInt();
+	}
+
+	/**
+	 * @return True if the current token, seen as a comma separated list, has more items
+	 */
+	public boolean hasNextItem() {
+		return itemCursor < tokenEnd;
+	}
+
+	/**
+	 * @return The next item of the current token, seen as a comma separated list of ints
+	 * @throws NumberFormatException if the item is not a number
+	 */
+	public int nextItemInt() {
+		int start = itemCursor;
+		int end = start;
+		while(end < tokenEnd && line[end] != ',')
+			end++;
+		itemCursor = end < tokenEnd ? end + 1 : end;
+		long value = parseLong(start, end);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new NumberFormatException("Out of range: \"" + new String(line, start, end - start) + "\"");
+		return (int) value;
+	}
+
+	private long parseLong(int start, int end) {
+		if(start == end)
+			throw new NumberFormatException("Empty number");
+		boolean negative = line[start] == '-';
+		int i = negative ? start + 1 : start;
+		if(i == end || end - i > 18)
+			throw new NumberFormatException("Not a number: \"" + new String(line, start, end - start) + "\"");
+		long value = 0;
+		for(; i<end; i++) {
+			int digit = line[i] - '0';
+			if(digit < 0 || digit > 9)
+				throw new NumberFormatException("Not a number: \"" + new String(line, start, end - start) + "\"");
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @return A new String with the current token
+	 */
+	public String tokenString() {
+		return new String(line, tokenStart, tokenEnd - tokenStart);
+	}
+
+	/**
+	 * Reads the current token as a player name without creating a String for known players
+	 * @param players : the player ids, new names get a new id
+	 * @return The id of the player
+	 */
+	public int tokenPlayerId(Players players) {
+		for(int id=0; id<players.getCount(); id++) {
+			String name = players.getName(id);
+			if(name != null && tokenEquals(name))
+				return id;
+		}
+		return players.getId(tokenString());
+	}
+
+	/**
+	 * @return The bytes of the current line, from 0 to getLineLength(). Must not be modified.
+	 */
+	public byte[] getLineBytes() {
+		return line;
+	}
+
+	public int getLineLength() {
+		return lineLength;
+	}
+
+	/**
+	 * @return A new String with the current line, for error messages
+	 */
+	public String lineString() {
+		return new String(line, 0, lineLength);
+	}
+
+}
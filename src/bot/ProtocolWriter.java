@@ -0,0 +1,94 @@
+package bot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import main.Region;
+import move.AttackTransferMove;
+import move.PlaceArmiesMove;
+
+/**
+ * Builds the bot's responses in one reusable buffer and writes each of them to the output
+ * with a single write and flush.
+ */
+public class ProtocolWriter {
+
+	private final OutputStream out;
+	private final StringBuilder response = new StringBuilder(1 << 10);
+	private byte[] bytes = new byte[1 << 10];
+	private GameRecorder recorder; //null if responses aren't recorded
+
+	public ProtocolWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Records every response once it's written, null to stop recording
+	 */
+	public void setRecorder(GameRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Writes the ids of the preferred starting regions
+	 */
+	public void writeStartingRegions(List<Region> regions) throws IOException {
+		response.setLength(0);
+		for(Region region : regions)
+			response.append(region.getId()).append(' ');
+		flushResponse();
+	}
+
+	/**
+	 * Writes the place armies moves of a round, or "No moves" if there are none
+	 */
+	public void writePlaceArmiesMoves(List<PlaceArmiesMove> moves) throws IOException {
+		response.setLength(0);
+		for(PlaceArmiesMove move : moves) {
+			move.appendString(response);
+			response.append(',');
+		}
+		writeMovesResponse();
+	}
+
+	/**
+	 * Writes the attack/transfer moves of a round, or "No moves" if there are none
+	 */
+	public void writeAttackTransferMoves(List<AttackTransferMove> moves) throws IOException {
+		response.setLength(0);
+		for(AttackTransferMove move : moves) {
+			move.appendString(response);
+			response.append(',');
+		}
+		writeMovesResponse();
+	}
+
+	/**
+	 * Writes "No moves"
+	 */
+	public void writeNoMoves() throws IOException {
+		response.setLength(0);
+		writeMovesResponse();
+	}
+
+	private void writeMovesResponse() throws IOException {
+		if(response.length() == 0)
+			response.append("No moves");
+		flushResponse();
+	}
+
+	private void flushResponse() throws IOException {
+		response.append('\n');
+		int length = response.length();
+		if(bytes.length < length)
+			bytes = new byte[Math.max(length, bytes.length * 2)];
+		for(int i=0; i<length; i++) //the protocol is plain ASCII
+			bytes[i] = (byte) response.charAt(i);
+		out.write(bytes, 0, length);
+		out.flush();
+		if(recorder != null)
+			recorder.record(GameRecorder.OUTPUT, bytes, length - 1);
+	}
+
+}
@@ -0,0 +1,163 @@
+package bot;
+
+import java.util.Random;
+
+import main.GameState;
+import move.MoveBuffer;
+import move.PackedMove;
+
+/**
+ * Fast randomized policy that plays the rounds of a Monte Carlo rollout for either player on a GameState:
+ * all armies are placed on one random border region, every region attacks its weakest foreign neighbor
+ * when the capture is likely, and regions without foreign neighbors send their armies to a random neighbor.
+ * Moves are written as PackedMoves into reused MoveBuffers and applied to the state so they can be undone,
+ * so a rollout allocates nothing.
+ */
+class RolloutPolicy {
+
+	static final double MIN_CAPTURE_CHANCE = 0.5;
+
+	private final BattleTable battleTable;
+	private final int[] border;
+	private MoveBuffer moves = new MoveBuffer();
+	private MoveBuffer spareMoves = new MoveBuffer(); //holds the first player's moves while the second player's are generated
+
+	RolloutPolicy(BattleTable battleTable, int regionCount) {
+		this.battleTable = battleTable;
+		this.border = new int[regionCount];
+	}
+
+	/**
+	 * Places the armies of the player on one of his regions, preferring regions with foreign neighbors
+	 */
+	void placeArmies(GameState state, int player, int armies, Random random) {
+		int borderCount = 0;
+		int ownedCount = 0;
+		int anyOwned = -1;
+		for (int i = 0; i < state.getRegionCount(); i++) {
+			if (state.getOwner(i) != player) {
+				continue;
+			}
+			ownedCount++;
+			if (random.nextInt(ownedCount) == 0) {
+				anyOwned = i;
+			}
+			if (hasForeignNeighbor(state, i, player)) {
+				border[borderCount++] = i;
+			}
+		}
+		int region = borderCount > 0 ? border[random.nextInt(borderCount)] : anyOwned;
+		if (region >= 0) {
+			state.placeArmies(region, armies);
+		}
+	}
+
+	/**
+	 * Chooses the attacks and transfers of the player, read them with getMoves()
+	 */
+	void generateMoves(GameState state, int player, Random random) {
+		moves.clear();
+		int[] targets = state.getNeighborTargets();
+		for (int i = 0; i < state.getRegionCount(); i++) {
+			int available = state.getArmies(i) - 1;
+			if (state.getOwner(i) != player || available <= 0) {
+				continue;
+			}
+			int start = state.getNeighborStart(i);
+			int end = state.getNeighborEnd(i);
+			if (start == end) {
+				continue;
+			}
+			int weakest = -1;
+			for (int k = start; k < end; k++) {
+				int neighbor = targets[k];
+				if (state.getOwner(neighbor) != player && (weakest < 0 || state.getArmies(neighbor) < state.getArmies(weakest))) {
+					weakest = neighbor;
+				}
+			}
+			if (weakest >= 0) {
+				if (captureChance(available, state.getArmies(weakest)) >= MIN_CAPTURE_CHANCE) {
+					moves.add(PackedMove.attackTransfer(player, i, weakest, available));
+				}
+			} else {
+				moves.add(PackedMove.attackTransfer(player, i, targets[start + random.nextInt(end - start)], available));
+			}
+		}
+	}
+
+	/**
+	 * Plays one round for both players: placement, then the moves executed alternately from a random player
+	 */
+	void playRound(GameState state, int player1, int player2, Random random) {
+		state.beginRound();
+		placeArmies(state, player1, state.getIncome(player1), random);
+		placeArmies(state, player2, state.getIncome(player2), random);
+
+		generateMoves(state, player1, random);
+		MoveBuffer moves1 = moves;
+		moves = spareMoves;
+		spareMoves = moves1;
+		generateMoves(state, player2, random);
+		executeAlternately(state, moves1, moves, random);
+	}
+
+	/**
+	 * Executes two players' moves alternately the way the engine does, starting with a random player
+	 */
+	static void executeAlternately(GameState state, MoveBuffer moves1, MoveBuffer moves2, Random random) {
+		boolean firstStarts = random.nextBoolean();
+		int count1 = moves1.size(), count2 = moves2.size();
+		int next1 = 0, next2 = 0;
+		while (next1 < count1 || next2 < count2) {
+			boolean turnOf1 = next2 >= count2 || (next1 < count1 && (next1 + next2) % 2 == (firstStarts ? 0 : 1));
+			if (turnOf1) {
+				state.apply(moves1.get(next1++), random);
+			} else {
+				state.apply(moves2.get(next2++), random);
+			}
+		}
+	}
+
+	/**
+	 * @return The moves of the last generateMoves(), valid until the next call
+	 */
+	MoveBuffer getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return A score of the player's position, the visible regions plus the SuperRegion bonuses and a tenth of the armies
+	 */
+	static double score(GameState state, int player) {
+		int regions = 0;
+		int armies = 0;
+		for (int i = 0; i < state.getRegionCount(); i++) {
+			if (state.getOwner(i) == player) {
+				regions++;
+				armies += state.getArmies(i);
+			}
+		}
+		if (regions == 0) {
+			return 0;
+		}
+		return regions + 2 * (state.getIncome(player) - GameState.BASE_INCOME) + 0.1 * armies;
+	}
+
+	private double captureChance(int attackers, int defenders) {
+		if (attackers <= battleTable.getMaxArmies() && defenders <= battleTable.getMaxArmies()) {
+			return battleTable.getCaptureChance(attackers, defenders);
+		}
+		return attackers * BattleTable.ATTACKER_KILL_RATE > defenders ? 1 : 0;
+	}
+
+	private static boolean hasForeignNeighbor(GameState state, int region, int player) {
+		int[] targets = state.getNeighborTargets();
+		for (int k = state.getNeighborStart(region); k < state.getNeighborEnd(region); k++) {
+			if (state.getOwner(targets[k]) != player) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
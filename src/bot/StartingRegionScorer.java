@@ -0,0 +1,137 @@
+package bot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import main.DistanceTable;
+import main.Map;
+import main.Region;
+import main.SuperRegion;
+
+/**
+ * Ranks the regions of a map as starting regions. A SuperRegion is worth its reward per region it has, the
+ * foreign regions bordering it counting as extra regions as they have to be defended against, and again per
+ * region as a small SuperRegion is completed sooner. A region
+ * is worth its SuperRegion's value, less the more of its own neighbors are foreign. Picks are chosen one by
+ * one, a region near the picks already chosen getting a bonus, so the starting armies can help each other.
+ */
+public class StartingRegionScorer {
+
+	public static final double EXPOSURE_WEIGHT = 0.5; //regions a bordering foreign region counts as
+	public static final double BORDER_WEIGHT = 0.3; //value lost by a region with only foreign neighbors
+	public static final double PROXIMITY_WEIGHT = 0.2; //bonus for a region next to a pick, halved at distance 2, ...
+
+	private final Map map;
+	private final DistanceTable distances; //null if the map is too big for one, then there's no proximity bonus
+	private final double[] superRegionValues; //per SuperRegion index
+	private final double[] regionScores; //per Region index, without the proximity bonus
+	private final double maxValue; //of the best SuperRegion, the proximity bonus is relative to it so it weighs the same on every map
+
+	/**
+	 * @param map : the full map
+	 * @param distances : its DistanceTable, null if it has none
+	 */
+	public StartingRegionScorer(Map map, DistanceTable distances) {
+		this.map = map;
+		this.distances = distances;
+		List<SuperRegion> superRegions = map.getSuperRegions();
+		superRegionValues = new double[superRegions.size()];
+		double max = 0;
+		for (SuperRegion superRegion : superRegions) {
+			superRegionValues[superRegion.getIndex()] = computeValue(superRegion);
+			max = Math.max(max, superRegionValues[superRegion.getIndex()]);
+		}
+		maxValue = max;
+		regionScores = new double[map.getRegionCount()];
+		for (int i = 0; i < regionScores.length; i++) {
+			Region region = map.getRegionAt(i);
+			int foreign = 0;
+			for (int k = 0; k < region.getNeighborCount(); k++) {
+				if (region.getNeighbor(k).getSuperRegion() != region.getSuperRegion()) {
+					foreign++;
+				}
+			}
+			double exposure = region.getNeighborCount() == 0 ? 0 : (double) foreign / region.getNeighborCount();
+			regionScores[i] = superRegionValues[region.getSuperRegion().getIndex()] * (1 - BORDER_WEIGHT * exposure);
+		}
+	}
+
+	//reward per region to hold, the foreign regions bordering the SuperRegion counting as EXPOSURE_WEIGHT regions each,
+	//per region to take: a small SuperRegion is completed sooner
+	private double computeValue(SuperRegion superRegion) {
+		ArrayList<Region> entrances = new ArrayList<Region>();
+		for (Region region : superRegion.getSubRegions()) {
+			for (int k = 0; k < region.getNeighborCount(); k++) {
+				Region neighbor = region.getNeighbor(k);
+				if (neighbor.getSuperRegion() != superRegion && !entrances.contains(neighbor)) {
+					entrances.add(neighbor);
+				}
+			}
+		}
+		int size = superRegion.getSubRegions().size();
+		double cost = (size + EXPOSURE_WEIGHT * entrances.size()) * size;
+		return cost == 0 ? 0 : superRegion.getArmiesReward() / cost;
+	}
+
+	public double getSuperRegionValue(SuperRegion superRegion) {
+		return superRegionValues[superRegion.getIndex()];
+	}
+
+	/**
+	 * @return The score of a region as a first pick
+	 */
+	public double getScore(Region region) {
+		return regionScores[region.getIndex()];
+	}
+
+	/**
+	 * @param candidates : regions of the map, duplicates are ignored
+	 * @param count : number of regions wanted
+	 * @param chosen : regions already picked, they aren't picked again and give their neighborhood a bonus; the picks are added to it
+	 */
+	public void pick(List<Region> candidates, int count, List<Region> chosen) {
+		int wanted = chosen.size() + count;
+		while (chosen.size() < wanted) {
+			Region best = null;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (Region candidate : candidates) {
+				if (chosen.contains(candidate)) {
+					continue;
+				}
+				double score = regionScores[candidate.getIndex()] + getProximityBonus(candidate, chosen);
+				if (score > bestScore) {
+					best = candidate;
+					bestScore = score;
+				}
+			}
+			if (best == null) {
+				return;
+			}
+			chosen.add(best);
+		}
+	}
+
+	/**
+	 * @return The count best of the candidates, or all of them if there are fewer, the best first and without duplicates
+	 */
+	public ArrayList<Region> rank(List<Region> candidates, int count) {
+		ArrayList<Region> ranked = new ArrayList<Region>(count);
+		pick(candidates, count, ranked);
+		return ranked;
+	}
+
+	private double getProximityBonus(Region region, List<Region> chosen) {
+		if (distances == null || chosen.isEmpty()) {
+			return 0;
+		}
+		int nearest = DistanceTable.UNREACHABLE;
+		for (Region pick : chosen) {
+			nearest = Math.min(nearest, distances.getDistance(pick.getIndex(), region.getIndex()));
+		}
+		if (nearest > Integer.SIZE - 2) {
+			return 0;
+		}
+		return PROXIMITY_WEIGHT * maxValue / (1 << Math.max(0, nearest - 1));
+	}
+
+}
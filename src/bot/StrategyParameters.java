@@ -0,0 +1,107 @@
+package bot;
+
+import java.util.Locale;
+
+/**
+ * The constants of BotStarter's strategy, so they can be tuned, see engine.ParameterTuner. A set of
+ * parameters is also a vector of doubles in the order of NAMES, each between its MIN and MAX; the
+ * integer parameters are rounded.
+ */
+public class StrategyParameters {
+
+	public static final String[] NAMES = {"superiorityRate", "attackRate", "attackNeutralRate", "comboMinRate",
+		"comboAttackRate", "successRate", "worldDominanceLimit", "comboMinTroops"};
+	public static final double[] MIN = {0.05, 0.05, 0.05, 0.05, 0.05, 0.05, 1, 1};
+	public static final double[] MAX = {1.5, 1, 1, 1, 1, 0.99, 200, 100};
+
+	/** The hand-picked parameters BotStarter always played with */
+	public static final StrategyParameters DEFAULT = new StrategyParameters(0.6, 0.7, 0.8, 0.6, 0.85, 0.7, 30, 10);
+
+	private final double superiorityRate; //a neutral is attacked if it has fewer armies than this part of ours
+	private final double attackRate;
+	private final double attackNeutralRate;
+	private final double comboMinRate;
+	private final double comboAttackRate; //part of the armies sent in a combined attack
+	private final double successRate; //least capture chance of an attack on the opponent
+	private final int worldDominanceLimit; //owning this many regions, the interior armies aren't moved anymore
+	private final int comboMinTroops; //least armies of both regions of a combined attack
+
+	public StrategyParameters(double superiorityRate, double attackRate, double attackNeutralRate, double comboMinRate,
+			double comboAttackRate, double successRate, int worldDominanceLimit, int comboMinTroops) {
+		this.superiorityRate = superiorityRate;
+		this.attackRate = attackRate;
+		this.attackNeutralRate = attackNeutralRate;
+		this.comboMinRate = comboMinRate;
+		this.comboAttackRate = comboAttackRate;
+		this.successRate = successRate;
+		this.worldDominanceLimit = worldDominanceLimit;
+		this.comboMinTroops = comboMinTroops;
+	}
+
+	/**
+	 * @param vector : values in the order of NAMES, clamped between MIN and MAX
+	 */
+	public static StrategyParameters fromVector(double[] vector) {
+		if(vector.length != NAMES.length)
+			throw new IllegalArgumentException("Expected " + NAMES.length + " parameters, got " + vector.length);
+		double[] v = new double[NAMES.length];
+		for(int i=0; i<v.length; i++)
+			v[i] = Math.max(MIN[i], Math.min(MAX[i], vector[i]));
+		return new StrategyParameters(v[0], v[1], v[2], v[3], v[4], v[5], (int) Math.round(v[6]), (int) Math.round(v[7]));
+	}
+
+	/**
+	 * @return The values in the order of NAMES
+	 */
+	public double[] toVector() {
+		return new double[] {superiorityRate, attackRate, attackNeutralRate, comboMinRate, comboAttackRate, successRate,
+			worldDominanceLimit, comboMinTroops};
+	}
+
+	public double getSuperiorityRate() {
+		return superiorityRate;
+	}
+
+	public double getAttackRate() {
+		return attackRate;
+	}
+
+	public double getAttackNeutralRate() {
+		return attackNeutralRate;
+	}
+
+	public double getComboMinRate() {
+		return comboMinRate;
+	}
+
+	public double getComboAttackRate() {
+		return comboAttackRate;
+	}
+
+	public double getSuccessRate() {
+		return successRate;
+	}
+
+	public int getWorldDominanceLimit() {
+		return worldDominanceLimit;
+	}
+
+	public int getComboMinTroops() {
+		return comboMinTroops;
+	}
+
+	@Override
+	public String toString() {
+		double[] vector = toVector();
+		StringBuilder out = new StringBuilder();
+		for(int i=0; i<vector.length; i++) {
+			out.append(i == 0 ? "" : " ").append(NAMES[i]).append('=');
+			if(i < 6)
+				out.append(String.format(Locale.ROOT, "%.4g", vector[i]));
+			else
+				out.append((int) vector[i]);
+		}
+		return out.toString();
+	}
+
+}
@@ -0,0 +1,575 @@
+package bot;
+
+import main.DistanceTable;
+import move.MoveBuffer;
+import move.PackedMove;
+
+/**
+ * Plans the transfers of interior armies to threatened front regions as a min-cost flow: every source
+ * region supplies its spare armies, every sink region demands the armies it lacks, and sending an army
+ * costs the number of moves between them (see DistanceTable). It's solved primal-dual: a Dijkstra search
+ * by reduced cost raises the node potentials, then flow is pushed along paths of zero reduced cost until
+ * there are none, so there is one search per distinct path length rather than per path. The search is
+ * dense over sources and sinks only, as the distances already cover the routes through other regions.
+ *
+ * The planner keeps its potentials and flows between rounds. The next round starts from the flows
+ * between regions that are still a source and a sink, cut to the new supplies and demands, with the
+ * potentials of those regions, and only augments what changed.
+ *
+ * A solve stops early when its deadline expires, between two searches: the flows found so far are kept,
+ * and the supply they don't send is left to the fallback hops of addTransfers().
+ */
+class TransferPlanner {
+
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	private static final byte NONE = 0, SOURCE = 1, SINK = 2;
+
+	//per region index, kept between rounds
+	private int[] potential;
+	private byte[] role; //role in the last solve
+	private byte[] currentRole; //role in the solve being made, swapped with role at the end
+	private int[] position; //position of the region in the sources or sinks of its currentRole
+
+	//flows of the last solve, as (source region, sink region, armies)
+	private int[] lastFlows = new int[3 * 16];
+	private int lastFlowCount;
+	private boolean planned; //the last solve is the plan of this round, see discardPlan()
+
+	private DistanceTable distances;
+	private int[] sources = new int[0];
+	private int[] sinks = new int[0];
+	private int sourceCount, sinkCount;
+	private int[] flow = new int[0]; //flow[s * sinkCount + t]
+	private int[] cost = new int[0]; //cost[s * sinkCount + t], moves from the source to the sink
+	private int[] supplied = new int[0]; //per source, its supply
+	private int[] demanded = new int[0]; //per sink, its demand
+	private int[] excess = new int[0]; //per source, supply not sent yet
+	private int[] deficit = new int[0]; //per sink, demand not met yet
+	private int[] sourcePotential = new int[0];
+	private int[] sinkPotential = new int[0];
+	private int superSourcePotential;
+	private int superSinkPotential;
+
+	//scratch of the Dijkstra search and of the path search
+	private int[] sourceDistance = new int[0];
+	private int[] sinkDistance = new int[0];
+	private boolean[] sourceMarked = new boolean[0];
+	private boolean[] sinkMarked = new boolean[0];
+
+	private int[] hopArmies = new int[0]; //scratch for addTransfers(), per region index
+
+	/**
+	 * Sends as much supply as possible to the demand at the least total number of moves
+	 * @param supply : per region index, armies the region can give, 0 if none
+	 * @param demand : per region index, armies the region needs, 0 if none. No region both supplies and demands.
+	 */
+	void solve(DistanceTable distances, int[] supply, int[] demand) {
+		solve(distances, supply, demand, Deadline.untilCancelled());
+	}
+
+	/**
+	 * @param deadline : when the solve stops with the flows it found, the cheapest for the armies they send
+	 */
+	void solve(DistanceTable distances, int[] supply, int[] demand, Deadline deadline) {
+		int regionCount = distances.getRegionCount();
+		this.distances = distances;
+		if (potential == null || potential.length != regionCount) {
+			potential = new int[regionCount];
+			role = new byte[regionCount];
+			currentRole = new byte[regionCount];
+			position = new int[regionCount];
+			hopArmies = new int[regionCount];
+			lastFlowCount = 0;
+		}
+
+		collectNodes(supply, demand);
+		warmStart();
+		while (!deadline.isExpired() && raisePotentials()) {
+			while (augment()) {
+				//each search finds the paths its marks leave open, the next one starts unmarked
+			}
+		}
+		saveSolution();
+		planned = true;
+	}
+
+	/**
+	 * Marks the last solve as outdated, until the next one. Its flows still warm start that one.
+	 */
+	void discardPlan() {
+		planned = false;
+	}
+
+	/**
+	 * @return True if a solve was made since discardPlan(), only then addTransfers() and getRemainingSupply() may be called
+	 */
+	boolean hasPlan() {
+		return planned;
+	}
+
+	/**
+	 * @return Armies the last solve sends from the source region to the sink region
+	 */
+	int getFlow(int source, int sink) {
+		if (role[source] != SOURCE || role[sink] != SINK) {
+			return 0;
+		}
+		return flow[position[source] * sinkCount + position[sink]];
+	}
+
+	/**
+	 * @return Armies of the region's supply that no demand needs
+	 */
+	int getRemainingSupply(int region) {
+		return role[region] == SOURCE ? excess[position[region]] : 0;
+	}
+
+	/**
+	 * Adds the transfers of a source region to the moves: its flow to every sink goes to the next hop
+	 * on a shortest route there, and its remaining supply to the fallback hop. Flows through the same
+	 * hop are merged into one move.
+	 * @param fallbackHop : neighbor that gets the remaining supply, -1 to keep it
+	 */
+	void addTransfers(MoveBuffer moves, int player, int region, int fallbackHop) {
+		if (role[region] != SOURCE) {
+			return;
+		}
+		int s = position[region];
+		int first = moves.size();
+		for (int t = 0; t < sinkCount; t++) {
+			int armies = flow[s * sinkCount + t];
+			if (armies > 0) {
+				addHop(moves, player, region, distances.getNextHop(region, sinks[t]), armies);
+			}
+		}
+		if (fallbackHop >= 0 && excess[s] > 0) {
+			addHop(moves, player, region, fallbackHop, excess[s]);
+		}
+		for (int i = first; i < moves.size(); i++) {
+			hopArmies[PackedMove.getTo(moves.get(i))] = 0;
+		}
+	}
+
+	private void addHop(MoveBuffer moves, int player, int region, int hop, int armies) {
+		if (hop < 0) {
+			return;
+		}
+		if (hopArmies[hop] > 0) {
+			for (int i = moves.size() - 1; i >= 0; i--) {
+				long move = moves.get(i);
+				if (PackedMove.getTo(move) == hop && PackedMove.getFrom(move) == region) {
+					moves.set(i, PackedMove.withArmies(move, PackedMove.getArmies(move) + armies));
+					hopArmies[hop] += armies;
+					return;
+				}
+			}
+		}
+		moves.add(PackedMove.attackTransfer(player, region, hop, armies));
+		hopArmies[hop] = armies;
+	}
+
+	private void collectNodes(int[] supply, int[] demand) {
+		int regionCount = supply.length;
+		sourceCount = 0;
+		sinkCount = 0;
+		for (int i = 0; i < regionCount; i++) {
+			if (supply[i] > 0) {
+				sourceCount++;
+			} else if (demand[i] > 0) {
+				sinkCount++;
+			}
+		}
+		if (sources.length < sourceCount) {
+			int n = Math.max(sourceCount, 2 * sources.length);
+			sources = new int[n];
+			supplied = new int[n];
+			excess = new int[n];
+			sourcePotential = new int[n];
+			sourceDistance = new int[n];
+			sourceMarked = new boolean[n];
+		}
+		if (sinks.length < sinkCount) {
+			int n = Math.max(sinkCount, 2 * sinks.length);
+			sinks = new int[n];
+			demanded = new int[n];
+			deficit = new int[n];
+			sinkPotential = new int[n];
+			sinkDistance = new int[n];
+			sinkMarked = new boolean[n];
+		}
+		if (flow.length < sourceCount * sinkCount) {
+			flow = new int[Math.max(sourceCount * sinkCount, 2 * flow.length)];
+			cost = new int[flow.length];
+		}
+
+		int s = 0, t = 0;
+		for (int i = 0; i < regionCount; i++) {
+			currentRole[i] = NONE;
+			if (supply[i] > 0) {
+				sources[s] = i;
+				supplied[s] = supply[i];
+				excess[s] = supply[i];
+				currentRole[i] = SOURCE;
+				position[i] = s++;
+			} else if (demand[i] > 0) {
+				sinks[t] = i;
+				demanded[t] = demand[i];
+				deficit[t] = demand[i];
+				currentRole[i] = SINK;
+				position[i] = t++;
+			}
+		}
+		for (s = 0; s < sourceCount; s++) {
+			for (t = 0; t < sinkCount; t++) {
+				flow[s * sinkCount + t] = 0;
+				cost[s * sinkCount + t] = distances.getDistance(sources[s], sinks[t]);
+			}
+		}
+	}
+
+	/**
+	 * Restores the flows and potentials of the regions that keep their role, and gives the others potentials
+	 * that keep every reduced cost non-negative: a new sink is as cheap as its cheapest old source makes it,
+	 * and a new source as expensive as its most expensive sink needs. Restored flows these potentials
+	 * can't prove optimal anymore, because supplies or demands changed, are dropped.
+	 */
+	private void warmStart() {
+		for (int k = 0; k < 3 * lastFlowCount; k += 3) {
+			int source = lastFlows[k], sink = lastFlows[k + 1];
+			if (currentRole[source] != SOURCE || currentRole[sink] != SINK) {
+				continue;
+			}
+			int s = position[source], t = position[sink];
+			int armies = Math.min(lastFlows[k + 2], Math.min(excess[s], deficit[t]));
+			flow[s * sinkCount + t] = armies;
+			excess[s] -= armies;
+			deficit[t] -= armies;
+		}
+
+		for (int s = 0; s < sourceCount; s++) {
+			sourcePotential[s] = role[sources[s]] == SOURCE ? potential[sources[s]] : -INFINITY;
+		}
+		for (int t = 0; t < sinkCount; t++) {
+			int sink = sinks[t];
+			if (role[sink] == SINK) {
+				sinkPotential[t] = potential[sink];
+				continue;
+			}
+			int cheapest = INFINITY;
+			for (int s = 0; s < sourceCount; s++) {
+				int c = cost[s * sinkCount + t];
+				if (sourcePotential[s] != -INFINITY && c != DistanceTable.UNREACHABLE) {
+					cheapest = Math.min(cheapest, c + sourcePotential[s]);
+				}
+			}
+			sinkPotential[t] = cheapest == INFINITY ? 0 : cheapest;
+		}
+		for (int s = 0; s < sourceCount; s++) {
+			if (sourcePotential[s] != -INFINITY) {
+				continue;
+			}
+			int expensive = -INFINITY;
+			for (int t = 0; t < sinkCount; t++) {
+				int c = cost[s * sinkCount + t];
+				if (c != DistanceTable.UNREACHABLE) {
+					expensive = Math.max(expensive, sinkPotential[t] - c);
+				}
+			}
+			sourcePotential[s] = expensive == -INFINITY ? 0 : expensive;
+		}
+
+		//the super source feeds every source and the super sink drains every sink, at no cost. Their edges can
+		//only have non-negative reduced costs if no source that sends is below a source with excess, and no sink
+		//that receives is above a sink with deficit; restored flows that break this are dropped
+		boolean dropped = true;
+		while (dropped) {
+			dropped = false;
+			int highestWithExcess = -INFINITY;
+			for (int s = 0; s < sourceCount; s++) {
+				if (excess[s] > 0) {
+					highestWithExcess = Math.max(highestWithExcess, sourcePotential[s]);
+				}
+			}
+			for (int s = 0; s < sourceCount; s++) {
+				if (excess[s] < supplied[s] && sourcePotential[s] < highestWithExcess) {
+					dropSourceFlows(s);
+					dropped = true;
+				}
+			}
+			int lowestWithDeficit = INFINITY;
+			for (int t = 0; t < sinkCount; t++) {
+				if (deficit[t] > 0) {
+					lowestWithDeficit = Math.min(lowestWithDeficit, sinkPotential[t]);
+				}
+			}
+			for (int t = 0; t < sinkCount; t++) {
+				if (deficit[t] < demanded[t] && sinkPotential[t] > lowestWithDeficit) {
+					dropSinkFlows(t);
+					dropped = true;
+				}
+			}
+		}
+		choosePotentialsOfSuperNodes();
+
+		if (!hasNonNegativeReducedCosts()) { //can't happen, but then the solution wouldn't be optimal
+			for (int s = 0; s < sourceCount; s++) {
+				dropSourceFlows(s);
+				sourcePotential[s] = 0;
+			}
+			for (int t = 0; t < sinkCount; t++) {
+				sinkPotential[t] = 0;
+			}
+			superSourcePotential = 0;
+			superSinkPotential = 0;
+		}
+	}
+
+	//as high as the sources with excess allow, and as high as the sinks that got flow need
+	private void choosePotentialsOfSuperNodes() {
+		superSourcePotential = -INFINITY;
+		for (int s = 0; s < sourceCount; s++) {
+			if (excess[s] > 0) {
+				superSourcePotential = Math.max(superSourcePotential, sourcePotential[s]);
+			}
+		}
+		if (superSourcePotential == -INFINITY) {
+			superSourcePotential = 0;
+		}
+		superSinkPotential = -INFINITY;
+		for (int t = 0; t < sinkCount; t++) {
+			if (deficit[t] < demanded[t]) {
+				superSinkPotential = Math.max(superSinkPotential, sinkPotential[t]);
+			}
+		}
+		if (superSinkPotential == -INFINITY) {
+			superSinkPotential = INFINITY;
+			for (int t = 0; t < sinkCount; t++) {
+				superSinkPotential = Math.min(superSinkPotential, sinkPotential[t]);
+			}
+		}
+	}
+
+	private void dropSourceFlows(int s) {
+		for (int t = 0; t < sinkCount; t++) {
+			deficit[t] += flow[s * sinkCount + t];
+			flow[s * sinkCount + t] = 0;
+		}
+		excess[s] = supplied[s];
+	}
+
+	private void dropSinkFlows(int t) {
+		for (int s = 0; s < sourceCount; s++) {
+			excess[s] += flow[s * sinkCount + t];
+			flow[s * sinkCount + t] = 0;
+		}
+		deficit[t] = demanded[t];
+	}
+
+	/**
+	 * @return True if no edge of the residual network has a negative reduced cost, so the flow is the cheapest
+	 * one for how much it sends
+	 */
+	private boolean hasNonNegativeReducedCosts() {
+		for (int s = 0; s < sourceCount; s++) {
+			if (excess[s] > 0 && superSourcePotential - sourcePotential[s] < 0) {
+				return false;
+			}
+			if (excess[s] < supplied[s] && sourcePotential[s] - superSourcePotential < 0) {
+				return false;
+			}
+			for (int t = 0; t < sinkCount; t++) {
+				int c = cost[s * sinkCount + t];
+				if (c == DistanceTable.UNREACHABLE) {
+					continue;
+				}
+				int reduced = c + sourcePotential[s] - sinkPotential[t];
+				if (reduced < 0 || (flow[s * sinkCount + t] > 0 && reduced > 0)) {
+					return false;
+				}
+			}
+		}
+		for (int t = 0; t < sinkCount; t++) {
+			if (deficit[t] > 0 && sinkPotential[t] - superSinkPotential < 0) {
+				return false;
+			}
+			if (deficit[t] < demanded[t] && superSinkPotential - sinkPotential[t] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the shortest distances by reduced cost from the super source, over sources with excess, sinks,
+	 * flows taken back and sinks with deficit, to the super sink, and raises the potentials by them, so
+	 * all shortest paths get zero reduced cost
+	 * @return False if no sink with deficit can be reached anymore
+	 */
+	private boolean raisePotentials() {
+		for (int s = 0; s < sourceCount; s++) {
+			sourceDistance[s] = excess[s] > 0 ? superSourcePotential - sourcePotential[s] : INFINITY;
+			sourceMarked[s] = false;
+		}
+		for (int t = 0; t < sinkCount; t++) {
+			sinkDistance[t] = INFINITY;
+			sinkMarked[t] = false;
+		}
+		int superSinkDistance = INFINITY;
+
+		while (true) {
+			int best = superSinkDistance, bestSource = -1, bestSink = -1;
+			for (int s = 0; s < sourceCount; s++) {
+				if (!sourceMarked[s] && sourceDistance[s] < best) {
+					best = sourceDistance[s];
+					bestSource = s;
+				}
+			}
+			for (int t = 0; t < sinkCount; t++) {
+				if (!sinkMarked[t] && sinkDistance[t] < best) {
+					best = sinkDistance[t];
+					bestSink = t;
+					bestSource = -1;
+				}
+			}
+			if (bestSource < 0 && bestSink < 0) {
+				break; //the super sink is the nearest, or nothing is left to reach
+			}
+
+			if (bestSource >= 0) { //forward edges to every reachable sink
+				int s = bestSource;
+				sourceMarked[s] = true;
+				for (int t = 0; t < sinkCount; t++) {
+					int c = cost[s * sinkCount + t];
+					if (sinkMarked[t] || c == DistanceTable.UNREACHABLE) {
+						continue;
+					}
+					sinkDistance[t] = Math.min(sinkDistance[t], best + c + sourcePotential[s] - sinkPotential[t]);
+				}
+			} else { //on to the super sink, and backward edges to the sources that send to this sink
+				int t = bestSink;
+				sinkMarked[t] = true;
+				if (deficit[t] > 0) {
+					superSinkDistance = Math.min(superSinkDistance, best + sinkPotential[t] - superSinkPotential);
+				}
+				for (int s = 0; s < sourceCount; s++) {
+					if (sourceMarked[s] || flow[s * sinkCount + t] == 0) {
+						continue;
+					}
+					int d = best - cost[s * sinkCount + t] + sinkPotential[t] - sourcePotential[s];
+					sourceDistance[s] = Math.min(sourceDistance[s], d);
+				}
+			}
+		}
+		if (superSinkDistance == INFINITY) {
+			return false;
+		}
+
+		for (int s = 0; s < sourceCount; s++) {
+			sourcePotential[s] += Math.min(sourceDistance[s], superSinkDistance);
+		}
+		for (int t = 0; t < sinkCount; t++) {
+			sinkPotential[t] += Math.min(sinkDistance[t], superSinkDistance);
+		}
+		superSinkPotential += superSinkDistance;
+		return true;
+	}
+
+	/**
+	 * Pushes flow along paths of zero reduced cost from sources with excess to sinks with deficit, until the
+	 * depth first search finds no more. Regions that lead nowhere stay marked, the ones on a path are unmarked.
+	 * @return False if it found no path
+	 */
+	private boolean augment() {
+		for (int s = 0; s < sourceCount; s++) {
+			sourceMarked[s] = false;
+		}
+		for (int t = 0; t < sinkCount; t++) {
+			sinkMarked[t] = false;
+		}
+		boolean pushed = false;
+		for (int s = 0; s < sourceCount; s++) {
+			while (excess[s] > 0 && sourcePotential[s] == superSourcePotential && !sourceMarked[s]) {
+				int armies = pushFromSource(s, excess[s]);
+				if (armies == 0) {
+					break;
+				}
+				excess[s] -= armies;
+				pushed = true;
+			}
+		}
+		return pushed;
+	}
+
+	//depth first search of the zero reduced cost edges, returns the armies pushed
+	private int pushFromSource(int s, int limit) {
+		sourceMarked[s] = true;
+		for (int t = 0; t < sinkCount; t++) {
+			int c = cost[s * sinkCount + t];
+			if (sinkMarked[t] || c == DistanceTable.UNREACHABLE || c + sourcePotential[s] != sinkPotential[t]) {
+				continue;
+			}
+			int armies = pushFromSink(t, limit);
+			if (armies > 0) {
+				flow[s * sinkCount + t] += armies;
+				sourceMarked[s] = false;
+				return armies;
+			}
+		}
+		return 0;
+	}
+
+	private int pushFromSink(int t, int limit) {
+		sinkMarked[t] = true;
+		if (deficit[t] > 0 && sinkPotential[t] == superSinkPotential) {
+			int armies = Math.min(limit, deficit[t]);
+			deficit[t] -= armies;
+			sinkMarked[t] = false;
+			return armies;
+		}
+		for (int s = 0; s < sourceCount; s++) {
+			int taken = flow[s * sinkCount + t];
+			if (sourceMarked[s] || taken == 0 || sinkPotential[t] - cost[s * sinkCount + t] != sourcePotential[s]) {
+				continue;
+			}
+			int armies = pushFromSource(s, Math.min(limit, taken));
+			if (armies > 0) {
+				flow[s * sinkCount + t] -= armies;
+				sinkMarked[t] = false;
+				return armies;
+			}
+		}
+		return 0;
+	}
+
+	private void saveSolution() {
+		byte[] previousRole = role;
+		role = currentRole;
+		currentRole = previousRole;
+		for (int s = 0; s < sourceCount; s++) {
+			potential[sources[s]] = sourcePotential[s];
+		}
+		for (int t = 0; t < sinkCount; t++) {
+			potential[sinks[t]] = sinkPotential[t];
+		}
+
+		lastFlowCount = 0;
+		for (int s = 0; s < sourceCount; s++) {
+			for (int t = 0; t < sinkCount; t++) {
+				int armies = flow[s * sinkCount + t];
+				if (armies == 0) {
+					continue;
+				}
+				if (3 * lastFlowCount == lastFlows.length) {
+					int[] grown = new int[2 * lastFlows.length];
+					System.arraycopy(lastFlows, 0, grown, 0, lastFlows.length);
+					lastFlows = grown;
+				}
+				lastFlows[3 * lastFlowCount] = sources[s];
+				lastFlows[3 * lastFlowCount + 1] = sinks[t];
+				lastFlows[3 * lastFlowCount + 2] = armies;
+				lastFlowCount++;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+package engine;
+
+import bot.Bot;
+
+/**
+ * Creates a new Bot for every game, so bots playing at the same time share no state.
+ */
+public interface BotFactory {
+
+	public Bot createBot();
+
+}
@@ -0,0 +1,458 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import main.Map;
+import main.Players;
+import main.Region;
+import main.SuperRegion;
+import move.AttackTransferMove;
+import move.Move;
+import move.PlaceArmiesMove;
+
+import bot.Bot;
+import bot.BotState;
+
+/**
+ * Plays a whole game between two bots in this process, without the text protocol. The engine
+ * keeps the real map, gives each bot a BotState with only what that bot can see, validates the
+ * moves (marking the illegal ones with Move.setIllegalMove) and resolves the battles.
+ * Each player needs its own Bot instance.
+ */
+public class Engine {
+
+	public static final int DEFAULT_MAX_ROUNDS = 100;
+	public static final long DEFAULT_TIME_OUT = 2000; //passed to the bots, in milliseconds
+
+	public static final int BASE_INCOME = 5; //armies every player gets each round, besides SuperRegion rewards
+	public static final int STARTING_REGIONS = 3; //regions each player gets at the start
+	public static final int PICKABLE_PER_SUPER_REGION = 2;
+	public static final int INITIAL_ARMIES = 2; //armies on every region at the start
+	public static final double ATTACKER_KILL_RATE = 0.6; //chance for each attacking army to destroy a defending one
+	public static final double DEFENDER_KILL_RATE = 0.7; //chance for each defending army to destroy an attacking one
+
+	private final Map map;
+	private final Random random;
+	private final EnginePlayer player1;
+	private final EnginePlayer player2;
+
+	private int maxRounds = DEFAULT_MAX_ROUNDS;
+	private long timeOut = DEFAULT_TIME_OUT;
+
+	private int round;
+	private final int[] arrivedArmies; //per region index, armies that moved in this round and can't move again
+
+	/**
+	 * @param topology : a map with the SuperRegions, Regions and neighbors to play on, it isn't modified
+	 * @param bot1 : the bot of player1
+	 * @param bot2 : the bot of player2, a different instance than bot1
+	 * @param seed : seed for the starting regions and the battles, the same seed and bots give the same game
+	 */
+	public Engine(Map topology, Bot bot1, Bot bot2, long seed)
+	{
+		this.map = topology.getTopologyCopy();
+		this.random = new Random(seed);
+		this.player1 = new EnginePlayer("player1", Players.ME, bot1);
+		this.player2 = new EnginePlayer("player2", Players.OPPONENT, bot2);
+		map.getPlayers().setName(player1.id, player1.name);
+		map.getPlayers().setName(player2.id, player2.name);
+		this.arrivedArmies = new int[map.getRegionCount()];
+	}
+
+	public void setMaxRounds(int maxRounds) {
+		this.maxRounds = maxRounds;
+	}
+
+	public void setTimeOut(long timeOut) {
+		this.timeOut = timeOut;
+	}
+
+	/**
+	 * Plays the game until a player has no regions left or the maximum number of rounds is reached.
+	 * After the last round the player with the most regions wins.
+	 */
+	public GameResult play()
+	{
+		setupBot(player1, player2);
+		setupBot(player2, player1);
+		distributeStartingRegions();
+
+		while(round < maxRounds && countRegions(player1) > 0 && countRegions(player2) > 0)
+			playRound();
+
+		int regions1 = countRegions(player1);
+		int regions2 = countRegions(player2);
+		int winner = regions1 > regions2 ? 1 : regions2 > regions1 ? 2 : GameResult.DRAW;
+		return new GameResult(winner, round, new int[] {regions1, regions2},
+			new int[] {player1.illegalMoves, player2.illegalMoves},
+			new int[] {player1.botErrors, player2.botErrors},
+			new PhaseStats[] {player1.stats, player2.stats});
+	}
+
+	/**
+	 * @return The engine's map, with the real owners and armies
+	 */
+	public Map getMap() {
+		return map;
+	}
+
+	public int getRound() {
+		return round;
+	}
+
+	private void setupBot(EnginePlayer player, EnginePlayer opponent)
+	{
+		BotState state = player.state;
+		state.updateSettings("your_bot", player.name);
+		state.updateSettings("opponent_bot", opponent.name);
+		for(SuperRegion superRegion : map.getSuperRegions())
+			state.addSuperRegion(superRegion.getId(), superRegion.getArmiesReward());
+		for(int i=0; i<map.getRegionCount(); i++)
+		{
+			Region region = map.getRegionAt(i);
+			state.addRegion(region.getId(), region.getSuperRegion().getId());
+		}
+		for(int i=0; i<map.getRegionCount(); i++)
+		{
+			Region region = map.getRegionAt(i);
+			for(int j=0; j<region.getNeighborCount(); j++)
+				state.addNeighbor(region.getId(), region.getNeighbor(j).getId());
+		}
+		state.finishSetupMap();
+	}
+
+	//picks random regions from each SuperRegion, lets the bots choose from them in turns and makes the rest neutral
+	private void distributeStartingRegions()
+	{
+		for(int i=0; i<map.getRegionCount(); i++)
+		{
+			Region region = map.getRegionAt(i);
+			region.setOwner(Players.NEUTRAL);
+			region.setArmies(INITIAL_ARMIES);
+		}
+
+		ArrayList<Region> pickableRegions = new ArrayList<Region>();
+		for(SuperRegion superRegion : map.getSuperRegions())
+		{
+			ArrayList<Region> candidates = new ArrayList<Region>(superRegion.getSubRegions());
+			for(int i=0; i<PICKABLE_PER_SUPER_REGION && !candidates.isEmpty(); i++)
+				pickableRegions.add(candidates.remove(random.nextInt(candidates.size())));
+		}
+		for(Region region : pickableRegions)
+		{
+			player1.state.addPickableStartingRegion(region.getId());
+			player2.state.addPickableStartingRegion(region.getId());
+		}
+
+		ArrayList<Region> preferred1 = askStartingRegions(player1);
+		ArrayList<Region> preferred2 = askStartingRegions(player2);
+
+		EnginePlayer first = random.nextBoolean() ? player1 : player2;
+		for(int pick=0; pick<2*STARTING_REGIONS && !pickableRegions.isEmpty(); pick++)
+		{
+			EnginePlayer player = (pick % 2 == 0) == (first == player1) ? player1 : player2;
+			ArrayList<Region> preferred = player == player1 ? preferred1 : preferred2;
+			Region picked = null;
+			if(preferred != null)
+			{
+				for(Region region : preferred)
+				{
+					Region candidate = region == null ? null : map.getRegion(region.getId());
+					if(candidate != null && pickableRegions.contains(candidate))
+					{
+						picked = candidate;
+						break;
+					}
+				}
+			}
+			if(picked == null) //no valid preference left, pick at random
+				picked = pickableRegions.get(random.nextInt(pickableRegions.size()));
+			pickableRegions.remove(picked);
+			picked.setOwner(player.id);
+		}
+	}
+
+	private void playRound()
+	{
+		round++;
+		int income1 = getIncome(player1);
+		int income2 = getIncome(player2);
+		player1.state.setStartingArmies(income1);
+		player2.state.setStartingArmies(income2);
+		sendUpdate(player1, player2);
+		sendUpdate(player2, player1);
+		player1.seenOpponentMoves.clear();
+		player2.seenOpponentMoves.clear();
+
+		ArrayList<PlaceArmiesMove> placeArmiesMoves1 = askPlaceArmies(player1);
+		ArrayList<PlaceArmiesMove> placeArmiesMoves2 = askPlaceArmies(player2);
+		ArrayList<AttackTransferMove> attackTransferMoves1 = askAttackTransfer(player1);
+		ArrayList<AttackTransferMove> attackTransferMoves2 = askAttackTransfer(player2);
+
+		placeArmies(player1, player2, placeArmiesMoves1, income1);
+		placeArmies(player2, player1, placeArmiesMoves2, income2);
+
+		ArrayList<AttackTransferMove> legalMoves1 = validateAttackTransfers(player1, attackTransferMoves1);
+		ArrayList<AttackTransferMove> legalMoves2 = validateAttackTransfers(player2, attackTransferMoves2);
+		for(int i=0; i<arrivedArmies.length; i++)
+			arrivedArmies[i] = 0;
+
+		//moves are executed alternately, starting with a random player
+		boolean player1First = random.nextBoolean();
+		int i1 = 0, i2 = 0;
+		while(i1 < legalMoves1.size() || i2 < legalMoves2.size())
+		{
+			boolean turn1 = (i1 + i2) % 2 == 0 ? player1First : !player1First;
+			if(i2 == legalMoves2.size() || (turn1 && i1 < legalMoves1.size()))
+				executeAttackTransfer(player1, player2, legalMoves1.get(i1++));
+			else
+				executeAttackTransfer(player2, player1, legalMoves2.get(i2++));
+		}
+	}
+
+	//gives the player everything it can see: its regions and their neighbors, and the opponent's moves there
+	private void sendUpdate(EnginePlayer player, EnginePlayer opponent)
+	{
+		BotState state = player.state;
+		state.beginMapUpdate();
+		for(int i=0; i<map.getRegionCount(); i++)
+		{
+			Region region = map.getRegionAt(i);
+			if(isVisibleTo(region, player))
+				state.updateRegion(region.getId(), getOwnerSeenBy(region, player), region.getArmies());
+		}
+		state.endMapUpdate();
+
+		state.clearOpponentMoves();
+		for(Move move : player.seenOpponentMoves)
+		{
+			if(move instanceof PlaceArmiesMove)
+			{
+				PlaceArmiesMove placeArmiesMove = (PlaceArmiesMove) move;
+				state.addOpponentPlaceArmies(opponent.name, placeArmiesMove.getRegion().getId(), placeArmiesMove.getArmies());
+			}
+			else
+			{
+				AttackTransferMove attackTransferMove = (AttackTransferMove) move;
+				state.addOpponentAttackTransfer(opponent.name, attackTransferMove.getFromRegion().getId(),
+					attackTransferMove.getToRegion().getId(), attackTransferMove.getArmies());
+			}
+		}
+	}
+
+	//translates an owner on the engine's map to the player ids of the bot's map
+	private int getOwnerSeenBy(Region region, EnginePlayer player)
+	{
+		int owner = region.getOwner();
+		if(owner == player.id)
+			return Players.ME;
+		if(owner == Players.ME || owner == Players.OPPONENT)
+			return Players.OPPONENT;
+		return owner;
+	}
+
+	private boolean isVisibleTo(Region region, EnginePlayer player)
+	{
+		if(region.ownedByPlayer(player.id))
+			return true;
+		for(int i=0; i<region.getNeighborCount(); i++)
+			if(region.getNeighbor(i).ownedByPlayer(player.id))
+				return true;
+		return false;
+	}
+
+	private int getIncome(EnginePlayer player)
+	{
+		int income = BASE_INCOME;
+		for(SuperRegion superRegion : map.getSuperRegions())
+			if(superRegion.ownerId() == player.id)
+				income += superRegion.getArmiesReward();
+		return income;
+	}
+
+	private int countRegions(EnginePlayer player)
+	{
+		int count = 0;
+		for(int i=0; i<map.getRegionCount(); i++)
+			if(map.getRegionAt(i).ownedByPlayer(player.id))
+				count++;
+		return count;
+	}
+
+	private ArrayList<Region> askStartingRegions(EnginePlayer player)
+	{
+		long start = System.nanoTime();
+		try {
+			return player.bot.getPreferredStartingRegions(player.state, Long.valueOf(timeOut));
+		}
+		catch(RuntimeException e) {
+			player.botErrors++;
+			return null;
+		}
+		finally {
+			player.stats.record(PhaseStats.PICK, System.nanoTime() - start);
+		}
+	}
+
+	private ArrayList<PlaceArmiesMove> askPlaceArmies(EnginePlayer player)
+	{
+		long start = System.nanoTime();
+		try {
+			ArrayList<PlaceArmiesMove> moves = player.bot.getPlaceArmiesMoves(player.state, Long.valueOf(timeOut));
+			return moves == null ? new ArrayList<PlaceArmiesMove>() : moves;
+		}
+		catch(RuntimeException e) {
+			player.botErrors++;
+			return new ArrayList<PlaceArmiesMove>();
+		}
+		finally {
+			player.stats.record(PhaseStats.PLACE, System.nanoTime() - start);
+		}
+	}
+
+	private ArrayList<AttackTransferMove> askAttackTransfer(EnginePlayer player)
+	{
+		long start = System.nanoTime();
+		try {
+			ArrayList<AttackTransferMove> moves = player.bot.getAttackTransferMoves(player.state, Long.valueOf(timeOut));
+			return moves == null ? new ArrayList<AttackTransferMove>() : moves;
+		}
+		catch(RuntimeException e) {
+			player.botErrors++;
+			return new ArrayList<AttackTransferMove>();
+		}
+		finally {
+			player.stats.record(PhaseStats.ATTACK, System.nanoTime() - start);
+		}
+	}
+
+	private void placeArmies(EnginePlayer player, EnginePlayer opponent, ArrayList<PlaceArmiesMove> moves, int armiesLeft)
+	{
+		for(PlaceArmiesMove move : moves)
+		{
+			if(move == null)
+				continue;
+			Region region = move.getRegion() == null ? null : map.getRegion(move.getRegion().getId());
+			if(!player.name.equals(move.getPlayerName()))
+				move.setIllegalMove("move of another player");
+			else if(region == null)
+				move.setIllegalMove("region doesn't exist");
+			else if(!region.ownedByPlayer(player.id))
+				move.setIllegalMove(region.getId() + " not owned");
+			else if(move.getArmies() < 1)
+				move.setIllegalMove("cannot place less than 1 army");
+			else if(armiesLeft <= 0)
+				move.setIllegalMove("no armies left to place");
+
+			if(!move.getIllegalMove().equals(""))
+			{
+				player.illegalMoves++;
+				continue;
+			}
+			if(move.getArmies() > armiesLeft) //place what's left
+				move.setArmies(armiesLeft);
+			region.setArmies(region.getArmies() + move.getArmies());
+			armiesLeft -= move.getArmies();
+			if(isVisibleTo(region, opponent))
+				opponent.seenOpponentMoves.add(new PlaceArmiesMove(player.name, region, move.getArmies()));
+		}
+	}
+
+	//marks illegal moves, the returned legal moves may still be skipped when they are executed
+	private ArrayList<AttackTransferMove> validateAttackTransfers(EnginePlayer player, ArrayList<AttackTransferMove> moves)
+	{
+		ArrayList<AttackTransferMove> legalMoves = new ArrayList<AttackTransferMove>(moves.size());
+		for(AttackTransferMove move : moves)
+		{
+			if(move == null)
+				continue;
+			Region fromRegion = move.getFromRegion() == null ? null : map.getRegion(move.getFromRegion().getId());
+			Region toRegion = move.getToRegion() == null ? null : map.getRegion(move.getToRegion().getId());
+			if(!player.name.equals(move.getPlayerName()))
+				move.setIllegalMove("move of another player");
+			else if(fromRegion == null || toRegion == null)
+				move.setIllegalMove("region doesn't exist");
+			else if(!fromRegion.ownedByPlayer(player.id))
+				move.setIllegalMove(fromRegion.getId() + " attack/transfer not owned");
+			else if(!fromRegion.isNeighbor(toRegion))
+				move.setIllegalMove(toRegion.getId() + " not a neighbor of " + fromRegion.getId());
+			else if(move.getArmies() < 1)
+				move.setIllegalMove("attack/transfer cannot use less than 1 army");
+			else
+			{
+				for(AttackTransferMove legalMove : legalMoves)
+					if(legalMove.getFromRegion().getId() == fromRegion.getId() && legalMove.getToRegion().getId() == toRegion.getId())
+						move.setIllegalMove(fromRegion.getId() + " " + toRegion.getId() + " already attacked/transferred this round");
+			}
+
+			if(move.getIllegalMove().equals(""))
+				legalMoves.add(move);
+			else
+				player.illegalMoves++;
+		}
+		return legalMoves;
+	}
+
+	private void executeAttackTransfer(EnginePlayer player, EnginePlayer opponent, AttackTransferMove move)
+	{
+		Region fromRegion = map.getRegion(move.getFromRegion().getId());
+		Region toRegion = map.getRegion(move.getToRegion().getId());
+		if(!fromRegion.ownedByPlayer(player.id)) //lost earlier this round
+		{
+			move.setIllegalMove(fromRegion.getId() + " attack/transfer not owned anymore");
+			player.illegalMoves++;
+			return;
+		}
+		//armies that arrived this round stay, and one army always stays behind
+		int available = fromRegion.getArmies() - arrivedArmies[fromRegion.getIndex()] - 1;
+		if(available <= 0)
+		{
+			move.setIllegalMove(fromRegion.getId() + " attack/transfer has no armies left to move");
+			player.illegalMoves++;
+			return;
+		}
+		int armies = Math.min(move.getArmies(), available);
+		move.setArmies(armies);
+
+		if(isVisibleTo(fromRegion, opponent) || isVisibleTo(toRegion, opponent))
+			opponent.seenOpponentMoves.add(new AttackTransferMove(player.name, fromRegion, toRegion, armies));
+
+		if(toRegion.ownedByPlayer(player.id)) //transfer
+		{
+			fromRegion.setArmies(fromRegion.getArmies() - armies);
+			toRegion.setArmies(toRegion.getArmies() + armies);
+			arrivedArmies[toRegion.getIndex()] += armies;
+		}
+		else
+			attack(player, fromRegion, toRegion, armies);
+	}
+
+	private void attack(EnginePlayer player, Region fromRegion, Region toRegion, int attackingArmies)
+	{
+		int defendingArmies = toRegion.getArmies();
+		int defendersDestroyed = 0;
+		for(int i=0; i<attackingArmies && defendersDestroyed < defendingArmies; i++)
+			if(random.nextDouble() < ATTACKER_KILL_RATE)
+				defendersDestroyed++;
+		int attackersDestroyed = 0;
+		for(int i=0; i<defendingArmies && attackersDestroyed < attackingArmies; i++)
+			if(random.nextDouble() < DEFENDER_KILL_RATE)
+				attackersDestroyed++;
+
+		if(defendersDestroyed == defendingArmies && attackersDestroyed < attackingArmies) //conquered
+		{
+			int survivors = attackingArmies - attackersDestroyed;
+			fromRegion.setArmies(fromRegion.getArmies() - attackingArmies);
+			toRegion.setOwner(player.id);
+			toRegion.setArmies(survivors);
+			arrivedArmies[toRegion.getIndex()] = survivors;
+		}
+		else //surviving attackers go back, the defender keeps the region with at least 1 army
+		{
+			fromRegion.setArmies(fromRegion.getArmies() - attackersDestroyed);
+			toRegion.setArmies(Math.max(1, defendingArmies - defendersDestroyed));
+		}
+	}
+
+}
@@ -0,0 +1,32 @@
+package engine;
+
+import java.util.ArrayList;
+
+import move.Move;
+
+import bot.Bot;
+import bot.BotState;
+
+/**
+ * A player in an Engine game: the bot, the state the engine keeps up to date for it
+ * and the bookkeeping of its game.
+ */
+class EnginePlayer {
+
+	final String name;
+	final int id; //owner id of this player on the engine's map
+	final Bot bot;
+	final BotState state = new BotState();
+	final PhaseStats stats = new PhaseStats();
+	final ArrayList<Move> seenOpponentMoves = new ArrayList<Move>(); //opponent moves this player could see this round
+
+	int illegalMoves;
+	int botErrors;
+
+	EnginePlayer(String name, int id, Bot bot) {
+		this.name = name;
+		this.id = id;
+		this.bot = bot;
+	}
+
+}
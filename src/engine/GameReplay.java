@@ -0,0 +1,108 @@
+package engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+
+import bot.Bot;
+import bot.BotParser;
+import bot.CommandMetrics;
+import bot.GameLog;
+import bot.GameRecorder;
+import bot.MetricsSink;
+
+/**
+ * Plays a game recorded by a GameRecorder again with any Bot, without an engine: the recorded input lines
+ * are fed to a BotParser, its answers are compared with the recorded ones, and the time of every round's
+ * decisions is measured next to the time they took when recorded. A bot that decides by the clock or by
+ * an unseeded random may answer differently.
+ */
+public class GameReplay {
+
+	private final ArrayList<String> inputs = new ArrayList<String>();
+	private final ArrayList<String> outputs = new ArrayList<String>();
+	private final ArrayList<Long> recordedRoundMicros = new ArrayList<Long>(); //round 0 is the pick of starting regions
+
+	public GameReplay(GameLog log) throws IOException
+	{
+		recordedRoundMicros.add(0L);
+		while(log.next())
+		{
+			String line = log.getLine();
+			if(log.getKind() == GameRecorder.INPUT)
+			{
+				inputs.add(line);
+				if(line.startsWith("go place_armies"))
+					recordedRoundMicros.add(0L);
+			}
+			else
+			{
+				outputs.add(line);
+				int round = recordedRoundMicros.size() - 1;
+				recordedRoundMicros.set(round, recordedRoundMicros.get(round) + log.getMicros());
+			}
+		}
+	}
+
+	public int getInputCount() {
+		return inputs.size();
+	}
+
+	/**
+	 * Feeds the recorded input to the bot and compares its answers with the recorded ones
+	 */
+	public ReplayResult replay(Bot bot) throws UnsupportedEncodingException
+	{
+		StringBuilder input = new StringBuilder();
+		for(String line : inputs)
+			input.append(line).append('\n');
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BotParser parser = new BotParser(bot, new ByteArrayInputStream(input.toString().getBytes("US-ASCII")), output);
+		final ArrayList<Long> roundNanos = new ArrayList<Long>();
+		roundNanos.add(0L);
+		parser.setMetricsSink(new MetricsSink() {
+			@Override
+			public void record(int command, long nanos, long allocatedBytes, long timeOut) {
+				if(command == CommandMetrics.PLACE_ARMIES)
+					roundNanos.add(0L);
+				if(command == CommandMetrics.PICK_STARTING_REGIONS || command == CommandMetrics.PLACE_ARMIES
+					|| command == CommandMetrics.ATTACK_TRANSFER)
+					roundNanos.set(roundNanos.size() - 1, roundNanos.get(roundNanos.size() - 1) + nanos);
+			}
+
+			@Override
+			public void finish() {
+			}
+		});
+		parser.run();
+
+		String[] answers = output.toString("US-ASCII").split("\n");
+		ReplayResult result = new ReplayResult();
+		for(int i=0; i<Math.max(outputs.size(), answers.length); i++)
+		{
+			String expected = i < outputs.size() ? outputs.get(i) : null;
+			String actual = i < answers.length && !answers[i].isEmpty() ? answers[i] : null;
+			if(expected == null ? actual != null : !expected.equals(actual))
+				result.addMismatch(i, expected, actual);
+		}
+		result.setAnswers(answers.length);
+		for(int round=0; round<roundNanos.size(); round++)
+			result.addRound(round < recordedRoundMicros.size() ? recordedRoundMicros.get(round) * 1000 : -1, roundNanos.get(round));
+		return result;
+	}
+
+	/**
+	 * Replays a recorded game and prints the differences and the time per round.
+	 * Arguments: log [bot class, bot.BotStarter by default]
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		GameReplay replay = new GameReplay(GameLog.map(args[0]));
+		String botClass = args.length > 1 ? args[1] : "bot.BotStarter";
+		Bot bot = Class.forName(botClass).asSubclass(Bot.class).getDeclaredConstructor().newInstance();
+		System.out.print(replay.replay(bot));
+	}
+
+}
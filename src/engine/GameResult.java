@@ -0,0 +1,78 @@
+package engine;
+
+/**
+ * Outcome of one game played by the Engine.
+ */
+public class GameResult {
+
+	public static final int DRAW = 0;
+
+	private final int winner;
+	private final int rounds;
+	private final int[] regions;
+	private final int[] illegalMoves;
+	private final int[] botErrors;
+	private final PhaseStats[] stats;
+
+	GameResult(int winner, int rounds, int[] regions, int[] illegalMoves, int[] botErrors, PhaseStats[] stats) {
+		this.winner = winner;
+		this.rounds = rounds;
+		this.regions = regions;
+		this.illegalMoves = illegalMoves;
+		this.botErrors = botErrors;
+		this.stats = stats;
+	}
+
+	/**
+	 * @return 1 or 2 for the winning player, DRAW if nobody won
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * @return The number of rounds played
+	 */
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @param player 1 or 2
+	 * @return The number of regions the player owned at the end
+	 */
+	public int getRegions(int player) {
+		return regions[player - 1];
+	}
+
+	/**
+	 * @param player 1 or 2
+	 * @return The number of moves of the player that were illegal
+	 */
+	public int getIllegalMoves(int player) {
+		return illegalMoves[player - 1];
+	}
+
+	/**
+	 * @param player 1 or 2
+	 * @return The number of times the player's bot threw an exception
+	 */
+	public int getBotErrors(int player) {
+		return botErrors[player - 1];
+	}
+
+	/**
+	 * @param player 1 or 2
+	 * @return The decision latency of the player's bot
+	 */
+	public PhaseStats getStats(int player) {
+		return stats[player - 1];
+	}
+
+	@Override
+	public String toString() {
+		return (winner == DRAW ? "draw" : "player" + winner + " won") + " after " + rounds + " rounds ("
+			+ regions[0] + " vs " + regions[1] + " regions)";
+	}
+
+}
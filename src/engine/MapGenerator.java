@@ -0,0 +1,436 @@
+package engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+
+import main.Map;
+import main.Players;
+import main.Region;
+import main.SuperRegion;
+
+/**
+ * Generates maps of any size from a seed, as protocol text and as Maps. Regions are laid out on a grid and
+ * may border the regions next to them and one diagonal of every grid square, so the map is planar. A
+ * random spanning tree of these borders keeps it connected, and random other borders are added up to the
+ * average degree. SuperRegions are grown breadth-first to random sizes, and the players own the regions
+ * grown breadth-first from starting regions in different SuperRegions; all other regions are neutral.
+ * The same seed and settings always give the same map.
+ */
+public class MapGenerator {
+
+	public static final String PLAYER1 = "player1";
+	public static final String PLAYER2 = "player2";
+	public static final int NEUTRAL_ARMIES = 2;
+
+	private final long seed;
+
+	private int regionCount = 42;
+	private int minSuperRegionSize = 4;
+	private int maxSuperRegionSize = 12;
+	private double rewardPerRegion = 0.5;
+	private double averageDegree = 4;
+	private int maxDegree = 6;
+	private int startingRegions = 3;
+	private int ownedRegions = 3;
+	private int playerArmies = 2;
+
+	private boolean generated;
+	private int[] superRegionOf; //per grid cell, index of its SuperRegion
+	private int[] regionIds; //per grid cell, the id of its Region
+	private int[] cellOf; //per Region id - 1, its grid cell
+	private int[] superRegionRewards;
+	private ArrayList<int[]> neighbors; //per grid cell, the bordering cells
+	private int[] owner; //per grid cell, Players.ME for player1, OPPONENT for player2, else NEUTRAL
+
+	public MapGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	public void setRegionCount(int regionCount) {
+		this.regionCount = regionCount;
+		generated = false;
+	}
+
+	/**
+	 * SuperRegions too small from running into other ones are merged into a neighboring one, so a few may
+	 * be bigger than maxSize
+	 * @param minSize : at least 1
+	 * @param maxSize : at least minSize
+	 */
+	public void setSuperRegionSizes(int minSize, int maxSize) {
+		if(minSize < 1 || maxSize < minSize)
+			throw new IllegalArgumentException("SuperRegion sizes must be at least 1 and minSize <= maxSize: " + minSize + ", " + maxSize);
+		this.minSuperRegionSize = minSize;
+		this.maxSuperRegionSize = maxSize;
+		generated = false;
+	}
+
+	/**
+	 * @param rewardPerRegion : a SuperRegion's reward is its number of regions times this, at least 1
+	 */
+	public void setRewardPerRegion(double rewardPerRegion) {
+		this.rewardPerRegion = rewardPerRegion;
+		generated = false;
+	}
+
+	/**
+	 * @param averageDegree : neighbors per region on average, up to about 6 as the map is planar
+	 * @param maxDegree : no border is added to a region with this many neighbors, except to keep the map connected
+	 */
+	public void setDegrees(double averageDegree, int maxDegree) {
+		this.averageDegree = averageDegree;
+		this.maxDegree = maxDegree;
+		generated = false;
+	}
+
+	/**
+	 * @param startingRegions : regions per player in different SuperRegions, where its territory starts
+	 * @param ownedRegions : regions per player, its starting regions and the ones nearest to them
+	 * @param playerArmies : armies on every region of a player
+	 */
+	public void setOwnership(int startingRegions, int ownedRegions, int playerArmies) {
+		this.startingRegions = startingRegions;
+		this.ownedRegions = Math.max(startingRegions, ownedRegions);
+		this.playerArmies = playerArmies;
+		generated = false;
+	}
+
+	private void generate()
+	{
+		if(generated)
+			return;
+		if(regionCount < 2)
+			throw new IllegalArgumentException("A map needs at least 2 regions: " + regionCount);
+		Random random = new Random(seed);
+		generateBorders(random);
+		generateSuperRegions(random);
+		generateOwnership(random);
+		generated = true;
+	}
+
+	//a random spanning tree of the planar grid borders, then random other ones up to the average degree
+	private void generateBorders(Random random)
+	{
+		int width = (int) Math.ceil(Math.sqrt(regionCount));
+		ArrayList<int[]> candidates = new ArrayList<int[]>();
+		for(int cell=0; cell<regionCount; cell++)
+		{
+			int x = cell % width;
+			if(x + 1 < width && cell + 1 < regionCount)
+				candidates.add(new int[] {cell, cell + 1});
+			if(cell + width < regionCount)
+				candidates.add(new int[] {cell, cell + width});
+			if(x + 1 < width && cell + width + 1 < regionCount)
+			{
+				if(random.nextBoolean())
+					candidates.add(new int[] {cell, cell + width + 1});
+				else
+					candidates.add(new int[] {cell + 1, cell + width});
+			}
+		}
+		for(int i=candidates.size()-1; i>0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			int[] swap = candidates.get(i);
+			candidates.set(i, candidates.get(j));
+			candidates.set(j, swap);
+		}
+
+		int[] degrees = new int[regionCount];
+		boolean[] chosen = new boolean[candidates.size()];
+		int[] parents = new int[regionCount];
+		for(int cell=0; cell<regionCount; cell++)
+			parents[cell] = cell;
+		int borders = 0;
+		for(int i=0; i<candidates.size(); i++)
+		{
+			int[] border = candidates.get(i);
+			int a = root(parents, border[0]), b = root(parents, border[1]);
+			if(a == b)
+				continue;
+			parents[a] = b;
+			chosen[i] = true;
+			degrees[border[0]]++;
+			degrees[border[1]]++;
+			borders++;
+		}
+		int wantedBorders = (int) Math.round(averageDegree * regionCount / 2);
+		for(int i=0; i<candidates.size() && borders < wantedBorders; i++)
+		{
+			int[] border = candidates.get(i);
+			if(chosen[i] || degrees[border[0]] >= maxDegree || degrees[border[1]] >= maxDegree)
+				continue;
+			chosen[i] = true;
+			degrees[border[0]]++;
+			degrees[border[1]]++;
+			borders++;
+		}
+
+		neighbors = new ArrayList<int[]>(regionCount);
+		for(int cell=0; cell<regionCount; cell++)
+			neighbors.add(new int[degrees[cell]]);
+		int[] filled = new int[regionCount];
+		for(int i=0; i<candidates.size(); i++)
+		{
+			if(!chosen[i])
+				continue;
+			int[] border = candidates.get(i);
+			neighbors.get(border[0])[filled[border[0]]++] = border[1];
+			neighbors.get(border[1])[filled[border[1]]++] = border[0];
+		}
+	}
+
+	private static int root(int[] parents, int cell)
+	{
+		while(parents[cell] != cell)
+		{
+			parents[cell] = parents[parents[cell]];
+			cell = parents[cell];
+		}
+		return cell;
+	}
+
+	//grows SuperRegions breadth-first in grid order, then numbers the regions SuperRegion by SuperRegion
+	private void generateSuperRegions(Random random)
+	{
+		superRegionOf = new int[regionCount];
+		for(int cell=0; cell<regionCount; cell++)
+			superRegionOf[cell] = -1;
+		ArrayList<ArrayList<Integer>> members = new ArrayList<ArrayList<Integer>>();
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		for(int start=0; start<regionCount; start++)
+		{
+			if(superRegionOf[start] >= 0)
+				continue;
+			int size = minSuperRegionSize + random.nextInt(Math.max(1, maxSuperRegionSize - minSuperRegionSize + 1));
+			int index = members.size();
+			ArrayList<Integer> grown = new ArrayList<Integer>();
+			superRegionOf[start] = index;
+			queue.clear();
+			queue.add(start);
+			while(!queue.isEmpty() && grown.size() < size)
+			{
+				int cell = queue.poll();
+				grown.add(cell);
+				for(int neighbor : neighbors.get(cell))
+				{
+					if(superRegionOf[neighbor] < 0)
+					{
+						superRegionOf[neighbor] = index;
+						queue.add(neighbor);
+					}
+				}
+			}
+			for(int cell : queue) //reached but not taken
+				superRegionOf[cell] = -1;
+
+			int mergeInto = -1;
+			if(grown.size() < minSuperRegionSize)
+				for(int i=0; i<grown.size() && mergeInto < 0; i++)
+					for(int neighbor : neighbors.get(grown.get(i)))
+						if(superRegionOf[neighbor] >= 0 && superRegionOf[neighbor] != index)
+							mergeInto = superRegionOf[neighbor];
+			if(mergeInto >= 0)
+			{
+				for(int cell : grown)
+					superRegionOf[cell] = mergeInto;
+				members.get(mergeInto).addAll(grown);
+			}
+			else
+				members.add(grown);
+		}
+
+		superRegionRewards = new int[members.size()];
+		regionIds = new int[regionCount];
+		cellOf = new int[regionCount];
+		int id = 1;
+		for(int s=0; s<members.size(); s++)
+		{
+			superRegionRewards[s] = Math.max(1, (int) Math.round(members.get(s).size() * rewardPerRegion));
+			for(int cell : members.get(s))
+			{
+				regionIds[cell] = id;
+				cellOf[id - 1] = cell;
+				id++;
+			}
+		}
+	}
+
+	//starting regions in random different SuperRegions while there are enough, then breadth-first growth in turns
+	private void generateOwnership(Random random)
+	{
+		owner = new int[regionCount];
+		for(int cell=0; cell<regionCount; cell++)
+			owner[cell] = Players.NEUTRAL;
+		int superRegionCount = superRegionRewards.length;
+		boolean[] superRegionTaken = new boolean[superRegionCount];
+		int takenSuperRegions = 0;
+		int[] players = {Players.ME, Players.OPPONENT};
+		ArrayList<ArrayDeque<Integer>> frontiers = new ArrayList<ArrayDeque<Integer>>();
+		for(int p=0; p<players.length; p++)
+			frontiers.add(new ArrayDeque<Integer>());
+		int[] owned = new int[players.length];
+		for(int i=0; i<startingRegions; i++)
+		{
+			for(int p=0; p<players.length; p++)
+			{
+				int cell = random.nextInt(regionCount);
+				while(owner[cell] != Players.NEUTRAL
+					|| (takenSuperRegions < superRegionCount && superRegionTaken[superRegionOf[cell]]))
+					cell = random.nextInt(regionCount);
+				if(!superRegionTaken[superRegionOf[cell]])
+				{
+					superRegionTaken[superRegionOf[cell]] = true;
+					takenSuperRegions++;
+				}
+				owner[cell] = players[p];
+				owned[p]++;
+				frontiers.get(p).add(cell);
+				if(owned[0] + owned[1] == regionCount)
+					return;
+			}
+		}
+
+		boolean growing = true;
+		while(growing)
+		{
+			growing = false;
+			for(int p=0; p<players.length; p++)
+			{
+				ArrayDeque<Integer> frontier = frontiers.get(p);
+				while(owned[p] < ownedRegions && !frontier.isEmpty())
+				{
+					int cell = frontier.peek();
+					int taken = -1;
+					for(int neighbor : neighbors.get(cell))
+					{
+						if(owner[neighbor] == Players.NEUTRAL)
+						{
+							taken = neighbor;
+							break;
+						}
+					}
+					if(taken < 0)
+					{
+						frontier.poll();
+						continue;
+					}
+					owner[taken] = players[p];
+					owned[p]++;
+					frontier.add(taken);
+					growing = true;
+					break; //one region per turn
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The setup_map lines of the super_regions, the regions and the neighbors
+	 */
+	public String[] getSetupLines()
+	{
+		generate();
+		StringBuilder superRegionLine = new StringBuilder("setup_map super_regions");
+		for(int s=0; s<superRegionRewards.length; s++)
+			superRegionLine.append(' ').append(s + 1).append(' ').append(superRegionRewards[s]);
+		StringBuilder regionLine = new StringBuilder("setup_map regions");
+		StringBuilder neighborLine = new StringBuilder("setup_map neighbors");
+		for(int id=1; id<=regionCount; id++)
+		{
+			int cell = cellOf[id - 1];
+			regionLine.append(' ').append(id).append(' ').append(superRegionOf[cell] + 1);
+			boolean first = true;
+			for(int neighbor : neighbors.get(cell))
+			{
+				if(regionIds[neighbor] < id) //every border is listed once, by its lower id
+					continue;
+				neighborLine.append(first ? " " + id + " " : ",").append(regionIds[neighbor]);
+				first = false;
+			}
+		}
+		return new String[] {superRegionLine.toString(), regionLine.toString(), neighborLine.toString()};
+	}
+
+	/**
+	 * @param playerName : PLAYER1 or PLAYER2
+	 * @return The update_map line that player gets: its regions and their neighbors
+	 */
+	public String getUpdateLine(String playerName)
+	{
+		generate();
+		int player = playerId(playerName);
+		StringBuilder line = new StringBuilder("update_map");
+		for(int id=1; id<=regionCount; id++)
+		{
+			int cell = cellOf[id - 1];
+			boolean visible = owner[cell] == player;
+			for(int neighbor : neighbors.get(cell))
+				visible |= owner[neighbor] == player;
+			if(visible)
+				line.append(' ').append(id).append(' ').append(ownerName(owner[cell])).append(' ').append(armiesOf(cell));
+		}
+		return line.toString();
+	}
+
+	/**
+	 * @return A new Map with all regions, neighbors, owners and armies, player1 being Players.ME and player2
+	 * Players.OPPONENT, with its neighbor index built
+	 */
+	public Map createMap()
+	{
+		generate();
+		Map map = new Map();
+		map.getPlayers().setName(Players.ME, PLAYER1);
+		map.getPlayers().setName(Players.OPPONENT, PLAYER2);
+		for(int s=0; s<superRegionRewards.length; s++)
+			map.add(new SuperRegion(s + 1, superRegionRewards[s]));
+		for(int id=1; id<=regionCount; id++)
+		{
+			int cell = cellOf[id - 1];
+			map.add(new Region(id, map.getSuperRegion(superRegionOf[cell] + 1), ownerName(owner[cell]), armiesOf(cell)));
+		}
+		for(int id=1; id<=regionCount; id++)
+		{
+			Region region = map.getRegion(id);
+			for(int neighbor : neighbors.get(cellOf[id - 1]))
+				region.addNeighbor(map.getRegion(regionIds[neighbor]));
+		}
+		map.buildNeighborIndex();
+		return map;
+	}
+
+	private static int playerId(String playerName)
+	{
+		if(PLAYER1.equals(playerName))
+			return Players.ME;
+		if(PLAYER2.equals(playerName))
+			return Players.OPPONENT;
+		throw new IllegalArgumentException("Unknown player: " + playerName);
+	}
+
+	private static String ownerName(int owner)
+	{
+		return owner == Players.ME ? PLAYER1 : owner == Players.OPPONENT ? PLAYER2 : "neutral";
+	}
+
+	private int armiesOf(int cell)
+	{
+		return owner[cell] == Players.NEUTRAL ? NEUTRAL_ARMIES : playerArmies;
+	}
+
+	/**
+	 * Prints the setup_map lines and player1's update_map line of a generated map, e.g. to pipe into a bot.
+	 * Arguments: [regions] [seed]
+	 */
+	public static void main(String[] args)
+	{
+		MapGenerator generator = new MapGenerator(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		generator.setRegionCount(args.length > 0 ? Integer.parseInt(args[0]) : 42);
+		for(String line : generator.getSetupLines())
+			System.out.println(line);
+		System.out.println(generator.getUpdateLine(PLAYER1));
+	}
+
+}
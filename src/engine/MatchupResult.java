@@ -0,0 +1,96 @@
+package engine;
+
+/**
+ * Results of all games between two bots in a Tournament, seen from the first bot.
+ */
+public class MatchupResult {
+
+	private final String name1;
+	private final String name2;
+	private final PhaseStats stats1 = new PhaseStats();
+	private final PhaseStats stats2 = new PhaseStats();
+
+	private int games;
+	private int wins1;
+	private int wins2;
+	private long totalRounds;
+
+	MatchupResult(String name1, String name2) {
+		this.name1 = name1;
+		this.name2 = name2;
+	}
+
+	/**
+	 * @param result : a game result
+	 * @param swapped : true if the first bot of this matchup was player2 in that game
+	 */
+	void add(GameResult result, boolean swapped) {
+		games++;
+		totalRounds += result.getRounds();
+		int winner = result.getWinner();
+		if(winner != GameResult.DRAW) {
+			if((winner == 1) != swapped)
+				wins1++;
+			else
+				wins2++;
+		}
+		stats1.add(result.getStats(swapped ? 2 : 1));
+		stats2.add(result.getStats(swapped ? 1 : 2));
+	}
+
+	public String getName1() {
+		return name1;
+	}
+
+	public String getName2() {
+		return name2;
+	}
+
+	public int getGames() {
+		return games;
+	}
+
+	public int getWins1() {
+		return wins1;
+	}
+
+	public int getWins2() {
+		return wins2;
+	}
+
+	public int getDraws() {
+		return games - wins1 - wins2;
+	}
+
+	/**
+	 * @return The share of games won by the first bot, draws count as half a win
+	 */
+	public double getWinRate1() {
+		if(games == 0)
+			return 0;
+		return (wins1 + 0.5 * getDraws()) / games;
+	}
+
+	public double getAverageRounds() {
+		if(games == 0)
+			return 0;
+		return totalRounds / (double) games;
+	}
+
+	public PhaseStats getStats1() {
+		return stats1;
+	}
+
+	public PhaseStats getStats2() {
+		return stats2;
+	}
+
+	@Override
+	public String toString() {
+		return name1 + " vs " + name2 + ": " + wins1 + "-" + wins2 + "-" + getDraws()
+			+ String.format(" (%.1f%% win rate, %.1f rounds avg)", 100 * getWinRate1(), getAverageRounds())
+			+ "\n  " + name1 + ": " + stats1
+			+ "\n  " + name2 + ": " + stats2;
+	}
+
+}
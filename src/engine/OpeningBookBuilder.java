@@ -0,0 +1,203 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import main.Map;
+import main.Players;
+import main.Region;
+import move.PlaceArmiesMove;
+
+import bot.BotStarter;
+import bot.BotState;
+import bot.OpeningBook;
+import bot.StartingRegionScorer;
+
+/**
+ * Precomputes an OpeningBook by simulation. On every map BotStarter plays itself many times, both players
+ * picking their starting regions at random, and every region is scored by how often the player who started
+ * on it won. The scores are smoothed towards an even result by PRIOR_GAMES, so a region seen in few games
+ * keeps near the middle, and equal scores are ordered by the StartingRegionScorer.
+ */
+public class OpeningBookBuilder {
+
+	public static final double PRIOR_GAMES = 10; //made up even games every region starts with
+
+	private final int gamesPerMap;
+	private final int threads;
+	private final long seed;
+
+	/**
+	 * @param gamesPerMap : games simulated on every map
+	 * @param threads : number of games played at the same time
+	 * @param seed : seed of the games
+	 */
+	public OpeningBookBuilder(int gamesPerMap, int threads, long seed)
+	{
+		this.gamesPerMap = gamesPerMap;
+		this.threads = threads;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return The ids of all regions of the map, the best pick first
+	 */
+	public int[] rankRegions(final Map map) throws InterruptedException, ExecutionException
+	{
+		ArrayList<Callable<int[]>> games = new ArrayList<Callable<int[]>>();
+		for(int game=0; game<gamesPerMap; game++)
+		{
+			final long gameSeed = seed * 31 + game;
+			games.add(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					return playGame(map, gameSeed);
+				}
+			});
+		}
+
+		int regionCount = map.getRegionCount();
+		final double[] points = new double[regionCount]; //per region index, wins of the player who started on it, draws counting half
+		int[] starts = new int[regionCount];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for(Future<int[]> future : pool.invokeAll(games))
+			{
+				int[] starters = future.get();
+				for(int i=0; i<regionCount; i++)
+				{
+					if(starters[i] == 0)
+						continue;
+					starts[i]++;
+					points[i] += starters[i] == 1 ? 1 : starters[i] == 2 ? 0 : 0.5;
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		final double[] scores = new double[regionCount];
+		for(int i=0; i<regionCount; i++)
+			scores[i] = (points[i] + PRIOR_GAMES / 2) / (starts[i] + PRIOR_GAMES);
+		final StartingRegionScorer scorer = new StartingRegionScorer(map, null);
+		ArrayList<Region> regions = new ArrayList<Region>(map.getRegions());
+		Collections.sort(regions, new Comparator<Region>() {
+			@Override
+			public int compare(Region a, Region b) {
+				int byScore = Double.compare(scores[b.getIndex()], scores[a.getIndex()]);
+				return byScore != 0 ? byScore : Double.compare(scorer.getScore(b), scorer.getScore(a));
+			}
+		});
+		int[] ranking = new int[regionCount];
+		for(int i=0; i<regionCount; i++)
+			ranking[i] = regions.get(i).getId();
+		return ranking;
+	}
+
+	/**
+	 * @return Per region index, 0 if no player started on it, else 1 if the player who did won, 2 if that player lost, 3 for a draw
+	 */
+	private int[] playGame(Map map, long gameSeed)
+	{
+		RandomPicker bot1 = new RandomPicker(gameSeed);
+		RandomPicker bot2 = new RandomPicker(~gameSeed);
+		GameResult result = new Engine(map, bot1, bot2, gameSeed).play();
+		int[] starters = new int[map.getRegionCount()];
+		for(int p=1; p<=2; p++)
+		{
+			RandomPicker bot = p == 1 ? bot1 : bot2;
+			int outcome = result.getWinner() == p ? 1 : result.getWinner() == GameResult.DRAW ? 3 : 2;
+			for(int index : bot.startingRegions)
+				starters[index] = outcome;
+		}
+		return starters;
+	}
+
+	/**
+	 * BotStarter that prefers its starting regions in a random order, and remembers which ones it got
+	 */
+	private static class RandomPicker extends BotStarter {
+
+		private final Random random;
+		private List<Integer> startingRegions = Collections.emptyList(); //region indices, known from the first placement
+
+		RandomPicker(long seed)
+		{
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public ArrayList<Region> getPreferredStartingRegions(BotState state, Long timeOut)
+		{
+			ArrayList<Region> shuffled = new ArrayList<Region>(state.getPickableStartingRegions());
+			Collections.shuffle(shuffled, random);
+			return shuffled;
+		}
+
+		@Override
+		public ArrayList<PlaceArmiesMove> getPlaceArmiesMoves(BotState state, Long timeOut)
+		{
+			if(startingRegions.isEmpty())
+			{
+				startingRegions = new ArrayList<Integer>();
+				for(Region region : state.getVisibleMap().getRegions())
+					if(region.ownedByPlayer(Players.ME))
+						startingRegions.add(region.getIndex());
+			}
+			return super.getPlaceArmiesMoves(state, timeOut);
+		}
+
+	}
+
+	/**
+	 * @return The map of a command line argument: "world" or "generated:regions:seed"
+	 */
+	public static Map createMap(String name)
+	{
+		if(name.equals("world"))
+			return WorldMap.create();
+		String[] parts = name.split(":");
+		if(parts.length != 3 || !parts[0].equals("generated"))
+			throw new IllegalArgumentException("Unknown map " + name);
+		MapGenerator generator = new MapGenerator(Long.parseLong(parts[2]));
+		generator.setRegionCount(Integer.parseInt(parts[1]));
+		return generator.createMap();
+	}
+
+	/**
+	 * Writes a book of the maps.
+	 * Arguments: book file, games per map, [maps: "world" or "generated:regions:seed", world if none]
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		String path = args.length > 0 ? args[0] : "opening.book";
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		ArrayList<String> names = new ArrayList<String>();
+		for(int i=2; i<args.length; i++)
+			names.add(args[i]);
+		if(names.isEmpty())
+			names.add("world");
+
+		OpeningBookBuilder builder = new OpeningBookBuilder(games, Runtime.getRuntime().availableProcessors(), 1);
+		long[] hashes = new long[names.size()];
+		int[][] rankings = new int[names.size()][];
+		for(int m=0; m<names.size(); m++)
+		{
+			long start = System.nanoTime();
+			Map map = createMap(names.get(m));
+			hashes[m] = OpeningBook.getTopologyHash(map);
+			rankings[m] = builder.rankRegions(map);
+			System.out.printf("%s: %d regions, %d games in %.1fs\n", names.get(m), map.getRegionCount(), games, (System.nanoTime() - start) / 1e9);
+		}
+		OpeningBook.write(path, hashes, rankings);
+	}
+
+}
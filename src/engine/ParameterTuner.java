@@ -0,0 +1,350 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import main.Map;
+
+import bot.BattleTable;
+import bot.Bot;
+import bot.BotStarter;
+import bot.DecisionScheduler;
+import bot.StrategyParameters;
+
+/**
+ * Tunes BotStarter's StrategyParameters with a genetic algorithm. Every generation, each candidate plays
+ * BotStarter with the default parameters on the Engine, half of the games as player1, and its fitness is
+ * its share of the points, a draw counting half. All games of a generation run in parallel, and all
+ * candidates play the same seeds, so luck is shared. The best ELITE candidates go on unchanged, the others
+ * are replaced by children of two candidates picked by tournament selection, blended and mutated.
+ * Candidates are vectors scaled to [0, 1] between StrategyParameters.MIN and MAX.
+ * After every generation the population is written to the checkpoint file, and a run given an existing
+ * checkpoint resumes from it. The random numbers of a generation only depend on the seed and the generation,
+ * so a resumed run goes on as the interrupted one would have.
+ */
+public class ParameterTuner {
+
+	public static final int ELITE = 2;
+	public static final int TOURNAMENT_SIZE = 3;
+	public static final double BLEND_MARGIN = 0.25; //children may lie this far beyond their parents, relative to their distance
+	public static final double MUTATION_RATE = 0.2; //chance of each gene to be mutated
+	public static final double MUTATION_SIGMA = 0.1;
+
+	private final Map map;
+	private final int populationSize;
+	private final int gamesPerCandidate;
+	private final int threads;
+	private final long seed;
+	private final File checkpoint;
+
+	private int generation;
+	private double[][] population; //scaled vectors
+	private double[] bestVector; //best candidate found so far, scaled, null before the first generation
+	private double bestFitness;
+
+	/**
+	 * @param map : the map the games are played on
+	 * @param populationSize : candidates per generation
+	 * @param gamesPerCandidate : games every candidate plays per generation, even
+	 * @param threads : number of games played at the same time
+	 * @param seed : seed of the games and the evolution
+	 * @param checkpoint : file the population is written to after every generation, read from first if it exists
+	 */
+	public ParameterTuner(Map map, int populationSize, int gamesPerCandidate, int threads, long seed, File checkpoint) throws IOException
+	{
+		if(populationSize <= ELITE || gamesPerCandidate < 2)
+			throw new IllegalArgumentException("Need more than " + ELITE + " candidates and at least 2 games");
+		this.map = map;
+		this.populationSize = populationSize;
+		this.gamesPerCandidate = gamesPerCandidate;
+		this.threads = threads;
+		this.seed = seed;
+		this.checkpoint = checkpoint;
+		if(checkpoint.exists())
+			readCheckpoint();
+		else
+			population = createPopulation();
+	}
+
+	//the default parameters and random candidates
+	private double[][] createPopulation()
+	{
+		Random random = new Random(mix(seed, -1));
+		double[][] created = new double[populationSize][];
+		created[0] = scale(StrategyParameters.DEFAULT.toVector());
+		for(int c=1; c<populationSize; c++)
+		{
+			created[c] = new double[StrategyParameters.NAMES.length];
+			for(int i=0; i<created[c].length; i++)
+				created[c][i] = random.nextDouble();
+		}
+		return created;
+	}
+
+	/**
+	 * Plays the generations and writes a checkpoint after each one
+	 */
+	public void run(int generations) throws InterruptedException, ExecutionException, IOException
+	{
+		while(generation < generations)
+		{
+			long start = System.nanoTime();
+			double[] fitness = evaluate(population, mix(seed, generation));
+			Integer[] order = rank(fitness);
+			double[] best = population[order[0]];
+			if(bestVector == null || fitness[order[0]] > bestFitness)
+			{
+				bestVector = best.clone();
+				bestFitness = fitness[order[0]];
+			}
+			System.out.printf(Locale.ROOT, "generation %d: best %.3f, mean %.3f in %.1fs, %s\n", generation, fitness[order[0]],
+				mean(fitness), (System.nanoTime() - start) / 1e9, toParameters(best));
+			population = breed(order, new Random(mix(seed, generation)));
+			generation++;
+			writeCheckpoint();
+		}
+	}
+
+	/**
+	 * @return The best candidate of all generations, by its fitness in its generation, null if none was played
+	 */
+	public StrategyParameters getBest() {
+		return bestVector == null ? null : toParameters(bestVector);
+	}
+
+	public double getBestFitness() {
+		return bestFitness;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return Per candidate, its share of the points against the default parameters
+	 */
+	private double[] evaluate(double[][] candidates, long generationSeed) throws InterruptedException, ExecutionException
+	{
+		ArrayList<Callable<Double>> games = new ArrayList<Callable<Double>>();
+		for(double[] candidate : candidates)
+		{
+			final StrategyParameters parameters = toParameters(candidate);
+			for(int game=0; game<gamesPerCandidate; game++)
+			{
+				final boolean first = game % 2 == 0;
+				final long gameSeed = mix(generationSeed, game / 2); //both sides of a seed are played
+				games.add(new Callable<Double>() {
+					@Override
+					public Double call() {
+						Bot candidateBot = new BotStarter(BattleTable.DEFAULT, new DecisionScheduler(), parameters);
+						Bot reference = new BotStarter();
+						GameResult result = new Engine(map, first ? candidateBot : reference, first ? reference : candidateBot, gameSeed).play();
+						if(result.getWinner() == GameResult.DRAW)
+							return 0.5;
+						return result.getWinner() == (first ? 1 : 2) ? 1.0 : 0.0;
+					}
+				});
+			}
+		}
+
+		double[] fitness = new double[candidates.length];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<Future<Double>> results = pool.invokeAll(games);
+			for(int k=0; k<results.size(); k++)
+				fitness[k / gamesPerCandidate] += results.get(k).get() / gamesPerCandidate;
+		}
+		finally {
+			pool.shutdown();
+		}
+		return fitness;
+	}
+
+	//candidate indices, the fittest first
+	private static Integer[] rank(final double[] fitness)
+	{
+		Integer[] order = new Integer[fitness.length];
+		for(int c=0; c<order.length; c++)
+			order[c] = c;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(fitness[b], fitness[a]);
+			}
+		});
+		return order;
+	}
+
+	//the elite, then children of candidates picked by tournament selection
+	private double[][] breed(Integer[] order, Random random)
+	{
+		double[][] next = new double[populationSize][];
+		for(int c=0; c<ELITE; c++)
+			next[c] = population[order[c]].clone();
+		for(int c=ELITE; c<populationSize; c++)
+		{
+			double[] mother = population[select(order, random)];
+			double[] father = population[select(order, random)];
+			double[] child = new double[mother.length];
+			for(int i=0; i<child.length; i++)
+			{
+				double blend = -BLEND_MARGIN + random.nextDouble() * (1 + 2 * BLEND_MARGIN);
+				child[i] = mother[i] + blend * (father[i] - mother[i]);
+				if(random.nextDouble() < MUTATION_RATE)
+					child[i] += random.nextGaussian() * MUTATION_SIGMA;
+				child[i] = Math.max(0, Math.min(1, child[i]));
+			}
+			next[c] = child;
+		}
+		return next;
+	}
+
+	//the fittest of TOURNAMENT_SIZE random candidates, by rank
+	private int select(Integer[] order, Random random)
+	{
+		int best = order.length;
+		for(int k=0; k<TOURNAMENT_SIZE; k++)
+			best = Math.min(best, random.nextInt(order.length));
+		return order[best];
+	}
+
+	private static double[] scale(double[] vector)
+	{
+		double[] scaled = new double[vector.length];
+		for(int i=0; i<vector.length; i++)
+			scaled[i] = (vector[i] - StrategyParameters.MIN[i]) / (StrategyParameters.MAX[i] - StrategyParameters.MIN[i]);
+		return scaled;
+	}
+
+	private static StrategyParameters toParameters(double[] scaled)
+	{
+		double[] vector = new double[scaled.length];
+		for(int i=0; i<vector.length; i++)
+			vector[i] = StrategyParameters.MIN[i] + scaled[i] * (StrategyParameters.MAX[i] - StrategyParameters.MIN[i]);
+		return StrategyParameters.fromVector(vector);
+	}
+
+	private static double mean(double[] values)
+	{
+		double sum = 0;
+		for(double value : values)
+			sum += value;
+		return sum / values.length;
+	}
+
+	//SplitMix64 of the seed and a counter, so every generation and game has its own stream
+	private static long mix(long seed, long counter)
+	{
+		long z = seed + 0x9E3779B97F4A7C15L * (counter + 2);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/*
+	 * Checkpoint format, one record per line, values separated by spaces:
+	 * generation <next generation to play>
+	 * best <fitness> <scaled vector>, only once a generation was played
+	 * candidate <scaled vector>, populationSize times
+	 * It's written to a temporary file first and moved over the checkpoint, so an interrupted write loses nothing.
+	 */
+	private void writeCheckpoint() throws IOException
+	{
+		File temporary = new File(checkpoint.getPath() + ".tmp");
+		PrintWriter out = new PrintWriter(temporary, "UTF-8");
+		try {
+			out.println("generation " + generation);
+			if(bestVector != null)
+				out.println("best " + bestFitness + " " + join(bestVector));
+			for(double[] candidate : population)
+				out.println("candidate " + join(candidate));
+		}
+		finally {
+			out.close();
+		}
+		Files.move(temporary.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void readCheckpoint() throws IOException
+	{
+		ArrayList<double[]> candidates = new ArrayList<double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(checkpoint));
+		try {
+			String line;
+			while((line = in.readLine()) != null)
+			{
+				String[] fields = line.trim().split(" ");
+				if(fields[0].equals("generation"))
+					generation = Integer.parseInt(fields[1]);
+				else if(fields[0].equals("best"))
+				{
+					bestFitness = Double.parseDouble(fields[1]);
+					bestVector = parse(fields, 2);
+				}
+				else if(fields[0].equals("candidate"))
+					candidates.add(parse(fields, 1));
+			}
+		}
+		finally {
+			in.close();
+		}
+		if(candidates.size() != populationSize)
+			throw new IOException("The checkpoint has " + candidates.size() + " candidates, expected " + populationSize);
+		population = candidates.toArray(new double[candidates.size()][]);
+	}
+
+	private static String join(double[] vector)
+	{
+		StringBuilder out = new StringBuilder();
+		for(int i=0; i<vector.length; i++)
+			out.append(i == 0 ? "" : " ").append(vector[i]);
+		return out.toString();
+	}
+
+	private static double[] parse(String[] fields, int from) throws IOException
+	{
+		if(fields.length - from != StrategyParameters.NAMES.length)
+			throw new IOException("Bad checkpoint line starting with " + fields[0]);
+		double[] vector = new double[fields.length - from];
+		for(int i=0; i<vector.length; i++)
+			vector[i] = Double.parseDouble(fields[from + i]);
+		return vector;
+	}
+
+	/**
+	 * Tunes BotStarter on the world map, or another map of OpeningBookBuilder.createMap().
+	 * Arguments: checkpoint file, [generations] [population] [games per candidate] [threads] [seed] [map]
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		File checkpoint = new File(args.length > 0 ? args[0] : "tuner.checkpoint");
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int population = args.length > 2 ? Integer.parseInt(args[2]) : 24;
+		int games = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+		Map map = OpeningBookBuilder.createMap(args.length > 6 ? args[6] : "world");
+
+		ParameterTuner tuner = new ParameterTuner(map, population, games, threads, seed, checkpoint);
+		if(tuner.getGeneration() > 0)
+			System.out.println("Resuming at generation " + tuner.getGeneration());
+		tuner.run(generations);
+		System.out.printf(Locale.ROOT, "best %.3f: %s\n", tuner.getBestFitness(), tuner.getBest());
+	}
+
+}
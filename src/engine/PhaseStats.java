@@ -0,0 +1,76 @@
+package engine;
+
+/**
+ * Decision latency of one bot, per phase of the game.
+ */
+public class PhaseStats {
+
+	public static final int PICK = 0; //getPreferredStartingRegions
+	public static final int PLACE = 1; //getPlaceArmiesMoves
+	public static final int ATTACK = 2; //getAttackTransferMoves
+	public static final int PHASES = 3;
+
+	private static final String[] NAMES = {"pick", "place", "attack"};
+
+	private final long[] calls = new long[PHASES];
+	private final long[] totalNanos = new long[PHASES];
+	private final long[] maxNanos = new long[PHASES];
+
+	public void record(int phase, long nanos) {
+		calls[phase]++;
+		totalNanos[phase] += nanos;
+		if(nanos > maxNanos[phase])
+			maxNanos[phase] = nanos;
+	}
+
+	/**
+	 * Adds the measurements of other to these
+	 */
+	public void add(PhaseStats other) {
+		for(int phase=0; phase<PHASES; phase++) {
+			calls[phase] += other.calls[phase];
+			totalNanos[phase] += other.totalNanos[phase];
+			if(other.maxNanos[phase] > maxNanos[phase])
+				maxNanos[phase] = other.maxNanos[phase];
+		}
+	}
+
+	public long getCalls(int phase) {
+		return calls[phase];
+	}
+
+	public long getTotalNanos(int phase) {
+		return totalNanos[phase];
+	}
+
+	public long getMaxNanos(int phase) {
+		return maxNanos[phase];
+	}
+
+	/**
+	 * @return The mean latency of the phase in nanoseconds, 0 if it was never measured
+	 */
+	public double getAverageNanos(int phase) {
+		if(calls[phase] == 0)
+			return 0;
+		return totalNanos[phase] / (double) calls[phase];
+	}
+
+	public static String getName(int phase) {
+		return NAMES[phase];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for(int phase=0; phase<PHASES; phase++) {
+			if(phase > 0)
+				out.append(", ");
+			out.append(NAMES[phase]).append(' ')
+				.append(String.format("%.3f", getAverageNanos(phase) / 1e6)).append("ms avg ")
+				.append(String.format("%.3f", maxNanos[phase] / 1e6)).append("ms max");
+		}
+		return out.toString();
+	}
+
+}
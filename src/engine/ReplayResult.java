@@ -0,0 +1,76 @@
+package engine;
+
+import java.util.ArrayList;
+
+/**
+ * Differences between the recorded answers of a game and a bot's answers when it's replayed by a
+ * GameReplay, and the time of every round's decisions.
+ */
+public class ReplayResult {
+
+	private final ArrayList<String> mismatches = new ArrayList<String>();
+	private final ArrayList<Long> recordedNanos = new ArrayList<Long>();
+	private final ArrayList<Long> replayedNanos = new ArrayList<Long>();
+	private int answers;
+
+	void addMismatch(int answer, String expected, String actual) {
+		mismatches.add("answer " + answer + ": recorded \"" + expected + "\", replayed \"" + actual + "\"");
+	}
+
+	void setAnswers(int answers) {
+		this.answers = answers;
+	}
+
+	void addRound(long recorded, long replayed) {
+		recordedNanos.add(recorded);
+		replayedNanos.add(replayed);
+	}
+
+	/**
+	 * @return True if the bot gave the recorded answers
+	 */
+	public boolean isIdentical() {
+		return mismatches.isEmpty();
+	}
+
+	/**
+	 * @return A description of every answer that differs from the recorded one
+	 */
+	public ArrayList<String> getMismatches() {
+		return mismatches;
+	}
+
+	/**
+	 * @return The number of rounds, round 0 being the pick of starting regions
+	 */
+	public int getRounds() {
+		return replayedNanos.size();
+	}
+
+	/**
+	 * @return The nanoseconds from the requests to the answers of the round when it was recorded, -1 if unknown
+	 */
+	public long getRecordedNanos(int round) {
+		return recordedNanos.get(round);
+	}
+
+	/**
+	 * @return The nanoseconds the bot took to decide the round when replayed
+	 */
+	public long getReplayedNanos(int round) {
+		return replayedNanos.get(round);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		out.append(answers).append(" answers, ").append(mismatches.size()).append(" different\n");
+		for(String mismatch : mismatches)
+			out.append(mismatch).append('\n');
+		out.append("round  recorded ms  replayed ms\n");
+		for(int round=0; round<getRounds(); round++)
+			out.append(String.format("%5d %12.3f %12.3f\n", round, recordedNanos.get(round) / 1e6, replayedNanos.get(round) / 1e6));
+		return out.toString();
+	}
+
+}
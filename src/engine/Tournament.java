@@ -0,0 +1,136 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import main.Map;
+
+import bot.Bot;
+import bot.BotStarter;
+
+/**
+ * Plays every bot against every other bot on a map, with all games of the tournament running in
+ * parallel on a fork-join pool. Every game gets new bot instances from the factories and its own
+ * seed derived from the tournament seed, so results don't depend on the number of threads.
+ */
+public class Tournament {
+
+	private final Map map;
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final ArrayList<BotFactory> factories = new ArrayList<BotFactory>();
+
+	private int maxRounds = Engine.DEFAULT_MAX_ROUNDS;
+	private long timeOut = Engine.DEFAULT_TIME_OUT;
+
+	public Tournament(Map map) {
+		this.map = map;
+	}
+
+	public void addBot(String name, BotFactory factory) {
+		names.add(name);
+		factories.add(factory);
+	}
+
+	public void setMaxRounds(int maxRounds) {
+		this.maxRounds = maxRounds;
+	}
+
+	public void setTimeOut(long timeOut) {
+		this.timeOut = timeOut;
+	}
+
+	/**
+	 * Plays the games of every pair of bots, each bot being player1 in half of them
+	 * @param gamesPerMatchup : number of games for each pair of bots
+	 * @param seed : seed of the tournament
+	 * @param threads : number of games played at the same time
+	 * @return One result per pair of bots
+	 */
+	public List<MatchupResult> run(int gamesPerMatchup, long seed, int threads) throws InterruptedException, ExecutionException
+	{
+		ArrayList<MatchupResult> results = new ArrayList<MatchupResult>();
+		ArrayList<Callable<GameResult>> games = new ArrayList<Callable<GameResult>>();
+		for(int i=0; i<factories.size(); i++)
+		{
+			for(int j=i+1; j<factories.size(); j++)
+			{
+				results.add(new MatchupResult(names.get(i), names.get(j)));
+				for(int game=0; game<gamesPerMatchup; game++)
+				{
+					boolean swapped = game % 2 == 1;
+					BotFactory first = swapped ? factories.get(j) : factories.get(i);
+					BotFactory second = swapped ? factories.get(i) : factories.get(j);
+					games.add(createGame(first, second, gameSeed(seed, results.size(), game)));
+				}
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<Future<GameResult>> futures = pool.invokeAll(games);
+			int k = 0;
+			for(MatchupResult result : results)
+				for(int game=0; game<gamesPerMatchup; game++)
+					result.add(futures.get(k++).get(), game % 2 == 1);
+		}
+		finally {
+			pool.shutdown();
+		}
+		return results;
+	}
+
+	private Callable<GameResult> createGame(final BotFactory factory1, final BotFactory factory2, final long seed)
+	{
+		return new Callable<GameResult>() {
+			@Override
+			public GameResult call() {
+				Engine engine = new Engine(map, factory1.createBot(), factory2.createBot(), seed);
+				engine.setMaxRounds(maxRounds);
+				engine.setTimeOut(timeOut);
+				return engine.play();
+			}
+		};
+	}
+
+	//mixes the tournament seed with the game's position (SplitMix64 finalizer), so every game has its own stream
+	private static long gameSeed(long seed, int matchup, int game)
+	{
+		long z = seed + 0x9E3779B97F4A7C15L * (((long) matchup << 32) + game + 1);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Plays BotStarter against itself on the world map.
+	 * Arguments: [games per matchup] [threads] [seed]
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+		Tournament tournament = new Tournament(WorldMap.create());
+		BotFactory botStarter = new BotFactory() {
+			@Override
+			public Bot createBot() {
+				return new BotStarter();
+			}
+		};
+		tournament.addBot("BotStarter", botStarter);
+		tournament.addBot("BotStarter (mirror)", botStarter);
+
+		long start = System.nanoTime();
+		List<MatchupResult> results = tournament.run(games, seed, threads);
+		long elapsed = System.nanoTime() - start;
+		for(MatchupResult result : results)
+			System.out.println(result);
+		System.out.printf("%d games in %.1fs on %d threads\n", results.size() * games, elapsed / 1e9, threads);
+	}
+
+}
@@ -0,0 +1,54 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only List view over a slice of an array. Used to expose the array-backed
+ * neighbor and sub-region storage through the List API without copying.
+ */
+public class ArrayView<T> extends AbstractList<T> implements RandomAccess {
+
+	private T[] items;
+	private int offset;
+	private int size;
+
+	public ArrayView(T[] items, int offset, int size)
+	{
+		set(items, offset, size);
+	}
+
+	/**
+	 * Points this view to another slice
+	 * @param items : the backing array
+	 * @param offset : first element of the slice
+	 * @param size : number of elements in the slice
+	 */
+	void set(T[] items, int offset, int size)
+	{
+		this.items = items;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public T get(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		return items[offset + index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		for(int i=offset; i<offset+size; i++)
+			if(items[i] == o || (o != null && o.equals(items[i])))
+				return true;
+		return false;
+	}
+
+}
@@ -0,0 +1,88 @@
+package main;
+
+/**
+ * Shortest path lengths and next hops between all pairs of Regions of a Map, by Region index, found with
+ * one breadth-first search per Region when the topology is complete. The tables are n*n shorts each, so
+ * looking up a distance or the first step of a shortest route is one array read. That's only affordable
+ * up to MAX_REGIONS regions (64MB), see isAffordable().
+ */
+public class DistanceTable {
+
+	public static final short UNREACHABLE = Short.MAX_VALUE;
+	public static final int MAX_REGIONS = 4096;
+
+	private final int regionCount;
+	private final short[] distances; //distances[from * regionCount + to], in moves
+	private final short[] nextHops; //nextHops[from * regionCount + to], first Region after from on a shortest route, -1 if none
+
+	/**
+	 * @param map : a Map with all its Regions and neighbors added, its neighbor index is built if needed
+	 */
+	public DistanceTable(Map map)
+	{
+		if(!map.hasNeighborIndex())
+			map.buildNeighborIndex();
+		regionCount = map.getRegionCount();
+		if(!isAffordable(map))
+			throw new IllegalArgumentException("Too many regions for a DistanceTable: " + regionCount);
+		int[] offsets = map.getNeighborOffsets();
+		int[] targets = map.getNeighborTargets();
+
+		distances = new short[regionCount * regionCount];
+		nextHops = new short[regionCount * regionCount];
+		int[] queue = new int[regionCount];
+		for(int from=0; from<regionCount; from++)
+		{
+			int row = from * regionCount;
+			for(int to=0; to<regionCount; to++)
+			{
+				distances[row + to] = UNREACHABLE;
+				nextHops[row + to] = -1;
+			}
+			distances[row + from] = 0;
+			int head = 0, tail = 0;
+			queue[tail++] = from;
+			while(head < tail)
+			{
+				int region = queue[head++];
+				short distance = (short) (distances[row + region] + 1);
+				for(int k=offsets[region]; k<offsets[region+1]; k++)
+				{
+					int neighbor = targets[k];
+					if(distances[row + neighbor] != UNREACHABLE)
+						continue;
+					distances[row + neighbor] = distance;
+					//the first step towards a neighbor of from is that neighbor, further away it's inherited
+					nextHops[row + neighbor] = region == from ? (short) neighbor : nextHops[row + region];
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return True if the map has few enough Regions for a DistanceTable
+	 */
+	public static boolean isAffordable(Map map) {
+		return map.getRegionCount() <= MAX_REGIONS;
+	}
+
+	public int getRegionCount() {
+		return regionCount;
+	}
+
+	/**
+	 * @return The least number of moves from one Region index to another, UNREACHABLE if there's no route
+	 */
+	public int getDistance(int from, int to) {
+		return distances[from * regionCount + to];
+	}
+
+	/**
+	 * @return The Region index after from on a shortest route to to, -1 if from is to or there's no route
+	 */
+	public int getNextHop(int from, int to) {
+		return nextHops[from * regionCount + to];
+	}
+
+}
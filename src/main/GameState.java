@@ -0,0 +1,408 @@
+package main;
+
+import java.util.Random;
+
+import move.AttackTransferMove;
+import move.PackedMove;
+import move.PlaceArmiesMove;
+
+/**
+ * Compact copy of a Map's owners and armies in primitive arrays, indexed by Region index, for
+ * simulating rounds quickly. The topology (neighbors, SuperRegions) is shared with the Map's
+ * neighbor index and never copied. Battles follow the game's rules: each attacking army destroys
+ * a defending army with a 60% chance, each defending army destroys an attacking army with a 70% chance.
+ * 
+ * Placements, attacks, transfers and new rounds are applied make/unmake style: the previous owner and
+ * armies of every region they change go on a primitive undo stack, and undo() restores them, so a
+ * search can explore many hypothetical rounds on one state without allocating. The plain setters
+ * aren't recorded and are meant for building a state before searching it.
+ * 
+ * The state keeps its Zobrist hash (see Zobrist.DEFAULT) up to date through every change and undo,
+ * so it equals the hash of a Map with the same owners and armies.
+ */
+public class GameState {
+
+	public static final double ATTACKER_KILL_RATE = 0.6;
+	public static final double DEFENDER_KILL_RATE = 0.7;
+	public static final int BASE_INCOME = 5;
+
+	private final int regionCount;
+	private final int[] neighborOffsets; //shared with the Map
+	private final int[] neighborTargets; //shared with the Map
+	private final int[] superRegionOf; //per region, index of its SuperRegion
+	private final int[] superRegionRewards;
+	private final int[] superRegionSizes;
+
+	private final int[] owner;
+	private final int[] armies;
+	private final int[] arrivedArmies; //armies that moved into a region this round and can't move again
+	private final int[] ownedInSuperRegion; //scratch for getIncome()
+	private final Players players; //resolves the player names of moves, shared with the Map
+	private long hash;
+
+	private int[] undoRecords = new int[4 * 64]; //(region, owner, armies, arrivedArmies) before each change
+	private int undoRecordCount;
+	private int[] undoMoveStarts = new int[64]; //per applied move, the record count before it
+	private long[] undoHashes = new long[64]; //per applied move, the hash before it
+	private int undoMoveCount;
+
+	/**
+	 * @param map : a Map with its neighbor index built, its current owners and armies are copied
+	 */
+	public GameState(Map map)
+	{
+		if(!map.hasNeighborIndex())
+			map.buildNeighborIndex();
+		regionCount = map.getRegionCount();
+		neighborOffsets = map.getNeighborOffsets();
+		neighborTargets = map.getNeighborTargets();
+		superRegionOf = new int[regionCount];
+		superRegionRewards = new int[map.getSuperRegions().size()];
+		superRegionSizes = new int[superRegionRewards.length];
+		for(int s=0; s<superRegionRewards.length; s++)
+		{
+			SuperRegion superRegion = map.getSuperRegions().get(s);
+			superRegionRewards[s] = superRegion.getArmiesReward();
+			superRegionSizes[s] = superRegion.getSubRegions().size();
+		}
+
+		owner = new int[regionCount];
+		armies = new int[regionCount];
+		arrivedArmies = new int[regionCount];
+		ownedInSuperRegion = new int[superRegionRewards.length];
+		players = map.getPlayers();
+		for(int i=0; i<regionCount; i++)
+		{
+			Region region = map.getRegionAt(i);
+			superRegionOf[i] = region.getSuperRegion().getIndex();
+			owner[i] = region.getOwner();
+			armies[i] = region.getArmies();
+			hash ^= Zobrist.DEFAULT.key(i, owner[i], armies[i]);
+		}
+	}
+
+	/**
+	 * @param other : the state to copy, the topology arrays are shared
+	 */
+	public GameState(GameState other)
+	{
+		regionCount = other.regionCount;
+		neighborOffsets = other.neighborOffsets;
+		neighborTargets = other.neighborTargets;
+		superRegionOf = other.superRegionOf;
+		superRegionRewards = other.superRegionRewards;
+		superRegionSizes = other.superRegionSizes;
+		owner = other.owner.clone();
+		armies = other.armies.clone();
+		arrivedArmies = other.arrivedArmies.clone();
+		ownedInSuperRegion = new int[superRegionRewards.length];
+		players = other.players;
+		hash = other.hash;
+	}
+
+	/**
+	 * Overwrites the owners and armies of this state with the ones of other and clears the undo stack, without allocating
+	 * @param other : a state of the same map
+	 */
+	public void copyFrom(GameState other)
+	{
+		System.arraycopy(other.owner, 0, owner, 0, regionCount);
+		System.arraycopy(other.armies, 0, armies, 0, regionCount);
+		System.arraycopy(other.arrivedArmies, 0, arrivedArmies, 0, regionCount);
+		hash = other.hash;
+		undoRecordCount = 0;
+		undoMoveCount = 0;
+	}
+
+	/**
+	 * Writes the owners and armies of this state to the regions of a Map, for example the copy
+	 * of the visible map it was made from
+	 */
+	public void writeTo(Map map)
+	{
+		for(int i=0; i<regionCount; i++)
+		{
+			Region region = map.getRegionAt(i);
+			region.setOwner(owner[i]);
+			region.setArmies(armies[i]);
+		}
+	}
+
+	/**
+	 * @return The Zobrist hash of the owners and armies of all regions
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	public Players getPlayers() {
+		return players;
+	}
+
+	public int getRegionCount() {
+		return regionCount;
+	}
+
+	public int getOwner(int region) {
+		return owner[region];
+	}
+
+	public void setOwner(int region, int player) {
+		set(region, player, armies[region]);
+	}
+
+	public int getArmies(int region) {
+		return armies[region];
+	}
+
+	public void setArmies(int region, int n) {
+		set(region, owner[region], n);
+	}
+
+	/**
+	 * @return Position of the region's first neighbor in getNeighborTargets()
+	 */
+	public int getNeighborStart(int region) {
+		return neighborOffsets[region];
+	}
+
+	/**
+	 * @return Position after the region's last neighbor in getNeighborTargets()
+	 */
+	public int getNeighborEnd(int region) {
+		return neighborOffsets[region + 1];
+	}
+
+	/**
+	 * @return The region indices of all neighbors, see getNeighborStart(). Must not be modified.
+	 */
+	public int[] getNeighborTargets() {
+		return neighborTargets;
+	}
+
+	public boolean isNeighbor(int region, int other) {
+		for(int k=neighborOffsets[region]; k<neighborOffsets[region + 1]; k++)
+			if(neighborTargets[k] == other)
+				return true;
+		return false;
+	}
+
+	public int getSuperRegionCount() {
+		return superRegionRewards.length;
+	}
+
+	public int getSuperRegion(int region) {
+		return superRegionOf[region];
+	}
+
+	/**
+	 * @return The armies the player gets next round: the base income plus the rewards of the SuperRegions he fully owns
+	 */
+	public int getIncome(int player)
+	{
+		int income = BASE_INCOME;
+		int[] owned = ownedInSuperRegion;
+		for(int s=0; s<owned.length; s++)
+			owned[s] = 0;
+		for(int i=0; i<regionCount; i++)
+			if(owner[i] == player)
+				owned[superRegionOf[i]]++;
+		for(int s=0; s<owned.length; s++)
+			if(owned[s] == superRegionSizes[s] && superRegionSizes[s] > 0)
+				income += superRegionRewards[s];
+		return income;
+	}
+
+	public int countRegions(int player)
+	{
+		int count = 0;
+		for(int i=0; i<regionCount; i++)
+			if(owner[i] == player)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Starts a new round: armies that moved last round can move again. Undone by one undo().
+	 */
+	public void beginRound()
+	{
+		beginMove();
+		for(int i=0; i<regionCount; i++)
+		{
+			if(arrivedArmies[i] != 0)
+			{
+				record(i);
+				arrivedArmies[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Places armies on a region, undone by one undo()
+	 */
+	public void placeArmies(int region, int n)
+	{
+		beginMove();
+		record(region);
+		set(region, owner[region], armies[region] + n);
+	}
+
+	/**
+	 * Applies a placement of one of the Map's regions, undone by one undo()
+	 */
+	public void apply(PlaceArmiesMove move)
+	{
+		placeArmies(move.getRegion().getIndex(), move.getArmies());
+	}
+
+	/**
+	 * Applies an attack or transfer between the Map's regions, see attackTransfer(). Undone by one undo().
+	 * @return True if the move was executed
+	 */
+	public boolean apply(AttackTransferMove move, Random random)
+	{
+		int player = players.findId(move.getPlayerName());
+		return attackTransfer(player, move.getFromRegion().getIndex(), move.getToRegion().getIndex(), move.getArmies(), random);
+	}
+
+	/**
+	 * Applies a PackedMove, a placement or an attack or transfer, undone by one undo()
+	 * @return True if the move was executed, always for a placement
+	 */
+	public boolean apply(long move, Random random)
+	{
+		if(PackedMove.isPlaceArmies(move))
+		{
+			placeArmies(PackedMove.getFrom(move), PackedMove.getArmies(move));
+			return true;
+		}
+		return attackTransfer(PackedMove.getPlayer(move), PackedMove.getFrom(move), PackedMove.getTo(move), PackedMove.getArmies(move), random);
+	}
+
+	/**
+	 * Undoes the last placement, attack, transfer or new round that hasn't been undone
+	 */
+	public void undo()
+	{
+		if(undoMoveCount == 0)
+			throw new IllegalStateException("Nothing to undo");
+		int start = undoMoveStarts[--undoMoveCount];
+		hash = undoHashes[undoMoveCount];
+		while(undoRecordCount > start)
+		{
+			undoRecordCount -= 4;
+			int region = undoRecords[undoRecordCount];
+			owner[region] = undoRecords[undoRecordCount + 1];
+			armies[region] = undoRecords[undoRecordCount + 2];
+			arrivedArmies[region] = undoRecords[undoRecordCount + 3];
+		}
+	}
+
+	/**
+	 * @return The number of moves that can be undone, to come back to this point with undoTo()
+	 */
+	public int getUndoDepth() {
+		return undoMoveCount;
+	}
+
+	/**
+	 * Undoes moves until only the given number of them is left
+	 * @param depth : an earlier result of getUndoDepth()
+	 */
+	public void undoTo(int depth)
+	{
+		while(undoMoveCount > depth)
+			undo();
+	}
+
+	//changes a region's owner and armies, keeping the hash up to date
+	private void set(int region, int newOwner, int newArmies)
+	{
+		hash ^= Zobrist.DEFAULT.key(region, owner[region], armies[region]) ^ Zobrist.DEFAULT.key(region, newOwner, newArmies);
+		owner[region] = newOwner;
+		armies[region] = newArmies;
+	}
+
+	private void beginMove()
+	{
+		if(undoMoveCount == undoMoveStarts.length)
+		{
+			int[] grown = new int[2 * undoMoveStarts.length];
+			System.arraycopy(undoMoveStarts, 0, grown, 0, undoMoveCount);
+			undoMoveStarts = grown;
+			long[] grownHashes = new long[2 * undoHashes.length];
+			System.arraycopy(undoHashes, 0, grownHashes, 0, undoMoveCount);
+			undoHashes = grownHashes;
+		}
+		undoHashes[undoMoveCount] = hash;
+		undoMoveStarts[undoMoveCount++] = undoRecordCount;
+	}
+
+	//saves the region's current values before they are changed
+	private void record(int region)
+	{
+		if(undoRecordCount + 4 > undoRecords.length)
+		{
+			int[] grown = new int[2 * undoRecords.length];
+			System.arraycopy(undoRecords, 0, grown, 0, undoRecordCount);
+			undoRecords = grown;
+		}
+		undoRecords[undoRecordCount] = region;
+		undoRecords[undoRecordCount + 1] = owner[region];
+		undoRecords[undoRecordCount + 2] = armies[region];
+		undoRecords[undoRecordCount + 3] = arrivedArmies[region];
+		undoRecordCount += 4;
+	}
+
+	/**
+	 * Executes an attack or transfer the way the engine does: it's skipped if the player lost the region,
+	 * it uses at most the armies that didn't arrive this round minus one, and battles are rolled with random.
+	 * Undone by one undo(), whether it was executed or not.
+	 * @return True if the move was executed
+	 */
+	public boolean attackTransfer(int player, int from, int to, int n, Random random)
+	{
+		beginMove();
+		if(owner[from] != player)
+			return false;
+		int available = armies[from] - arrivedArmies[from] - 1;
+		if(available <= 0 || n <= 0)
+			return false;
+		int attacking = Math.min(n, available);
+		record(from);
+		record(to);
+
+		if(owner[to] == player) //transfer
+		{
+			set(from, player, armies[from] - attacking);
+			set(to, player, armies[to] + attacking);
+			arrivedArmies[to] += attacking;
+			return true;
+		}
+
+		int defending = armies[to];
+		int defendersDestroyed = 0;
+		for(int i=0; i<attacking && defendersDestroyed < defending; i++)
+			if(random.nextDouble() < ATTACKER_KILL_RATE)
+				defendersDestroyed++;
+		int attackersDestroyed = 0;
+		for(int i=0; i<defending && attackersDestroyed < attacking; i++)
+			if(random.nextDouble() < DEFENDER_KILL_RATE)
+				attackersDestroyed++;
+
+		if(defendersDestroyed == defending && attackersDestroyed < attacking) //conquered
+		{
+			set(from, player, armies[from] - attacking);
+			set(to, player, attacking - attackersDestroyed);
+			arrivedArmies[to] = armies[to];
+		}
+		else
+		{
+			set(from, player, armies[from] - attackersDestroyed);
+			set(to, owner[to], Math.max(1, defending - defendersDestroyed));
+		}
+		return true;
+	}
+
+}
@@ -1,22 +1,49 @@
 package main;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 public class Map {
 	
-	public LinkedList<Region> regions;
-	public LinkedList<SuperRegion> superRegions;
+	private ArrayList<Region> regions; //in order of addition, a Region's index is its position in this list
+	private ArrayList<SuperRegion> superRegions;
+	
+	private Players players; //player ids used by the Regions of this map
+	
+	private BitSet visible; //indices of the Regions that are visible on this map
+	private ArrayList<Region> visibleRegions; //the visible Regions in index order, rebuilt when visibility changed
+	private boolean visibleRegionsChanged;
+	
+	private Region[] regionsById; //lookup table from id to Region, ids are expected to be small and dense
+	private SuperRegion[] superRegionsById;
+	
+	//neighbor index, built by buildNeighborIndex(): the neighbors of the Region with index i
+	//are neighborTargets[neighborOffsets[i]] to neighborTargets[neighborOffsets[i+1]-1]
+	private int[] neighborOffsets;
+	private int[] neighborTargets;
+	private Region[] neighborRegions;
+	
+	private long hash; //Zobrist hash of the owners and armies of all Regions, see Zobrist.DEFAULT
 	
 	public Map()
 	{
-		this.regions = new LinkedList<Region>();
-		this.superRegions = new LinkedList<SuperRegion>();
+		this.regions = new ArrayList<Region>();
+		this.superRegions = new ArrayList<SuperRegion>();
+		this.regionsById = new Region[16];
+		this.superRegionsById = new SuperRegion[8];
+		this.players = new Players();
+		this.visible = new BitSet();
+		this.visibleRegions = new ArrayList<Region>();
 	}
 	
-	public Map(LinkedList<Region> regions, LinkedList<SuperRegion> superRegions)
+	public Map(List<Region> regions, List<SuperRegion> superRegions)
 	{
-		this.regions = regions;
-		this.superRegions = superRegions;
+		this();
+		for(SuperRegion superRegion : superRegions)
+			add(superRegion);
+		for(Region region : regions)
+			add(region);
 	}
 
 	/**
@@ -25,13 +52,24 @@ public class Map {
 	 */
 	public void add(Region region)
 	{
-		for(Region r : regions)
-			if(r.getId() == region.getId())
-			{
-				System.err.println("Region cannot be added: id already exists.");
-				return;
-			}
+		int id = region.getId();
+		if(getRegion(id) != null)
+		{
+			System.err.println("Region cannot be added: id already exists.");
+			return;
+		}
+		if(id >= regionsById.length)
+		{
+			Region[] grown = new Region[Math.max(id + 1, regionsById.length * 2)];
+			System.arraycopy(regionsById, 0, grown, 0, regionsById.length);
+			regionsById = grown;
+		}
+		regionsById[id] = region;
+		region.setIndex(regions.size());
 		regions.add(region);
+		hash ^= Zobrist.DEFAULT.key(region.getIndex(), region.getOwner(), region.getArmies());
+		visible.set(region.getIndex());
+		visibleRegionsChanged = true;
 	}
 	
 	/**
@@ -40,20 +78,121 @@ public class Map {
 	 */
 	public void add(SuperRegion superRegion)
 	{
-		for(SuperRegion s : superRegions)
-			if(s.getId() == superRegion.getId())
+		int id = superRegion.getId();
+		if(getSuperRegion(id) != null)
+		{
+			System.err.println("SuperRegion cannot be added: id already exists.");
+			return;
+		}
+		if(id >= superRegionsById.length)
+		{
+			SuperRegion[] grown = new SuperRegion[Math.max(id + 1, superRegionsById.length * 2)];
+			System.arraycopy(superRegionsById, 0, grown, 0, superRegionsById.length);
+			superRegionsById = grown;
+		}
+		superRegionsById[id] = superRegion;
+		superRegion.setIndex(superRegions.size());
+		superRegion.setPlayers(players); //add SuperRegions before creating their Regions, so these use the same ids
+		superRegion.setMap(this);
+		superRegions.add(superRegion);
+	}
+	
+	/**
+	 * Packs the neighbors of all Regions into one array, grouped per Region. Call this once all 
+	 * Regions and neighbors are added; Regions then read their neighbors from the index.
+	 */
+	public void buildNeighborIndex()
+	{
+		int regionCount = regions.size();
+		int total = 0;
+		for(Region region : regions)
+			total += region.getNeighborCount();
+		
+		neighborOffsets = new int[regionCount + 1];
+		neighborTargets = new int[total];
+		neighborRegions = new Region[total];
+		int k = 0;
+		for(int i=0; i<regionCount; i++)
+		{
+			Region region = regions.get(i);
+			int count = region.getNeighborCount();
+			neighborOffsets[i] = k;
+			for(int j=0; j<count; j++)
 			{
-				System.err.println("SuperRegion cannot be added: id already exists.");
-				return;
+				Region neighbor = region.getNeighbor(j);
+				neighborRegions[k + j] = neighbor;
+				neighborTargets[k + j] = neighbor.getIndex();
 			}
-		superRegions.add(superRegion);
+			region.useNeighborIndex(neighborRegions, k, count);
+			k += count;
+		}
+		neighborOffsets[regionCount] = k;
+	}
+	
+	/**
+	 * @return True if the neighbor index is built and no Region got new neighbors since
+	 */
+	public boolean hasNeighborIndex()
+	{
+		if(neighborOffsets == null || neighborOffsets.length != regions.size() + 1)
+			return false;
+		for(Region region : regions)
+			if(!region.usesNeighborIndex())
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Shows or hides a Region. A hidden Region keeps its place in the topology (it's still a neighbor
+	 * of other Regions and can be looked up by id), but it isn't part of getRegions() anymore.
+	 * @param region : a Region of this map
+	 * @param isVisible : true to show the Region, false to hide it
+	 */
+	public void setVisible(Region region, boolean isVisible)
+	{
+		if(visible.get(region.getIndex()) != isVisible)
+		{
+			visible.set(region.getIndex(), isVisible);
+			visibleRegionsChanged = true;
+		}
+	}
+	
+	/**
+	 * @param region : a Region of this map
+	 * @return : true if the Region is visible on this map
+	 */
+	public boolean isVisible(Region region)
+	{
+		return visible.get(region.getIndex());
+	}
+	
+	/**
+	 * @return : the indices of all visible Regions. Must not be modified.
+	 */
+	public BitSet getVisibleIndices()
+	{
+		return visible;
 	}
 	
 	/**
 	 * @return : a new Map object exactly the same as this one
 	 */
 	public Map getMapCopy() {
+		return copy(true);
+	}
+	
+	/**
+	 * @return : a new Map object with the same SuperRegions, Regions and neighbors as this one, but with its
+	 * own player ids and all Regions visible, unknown and without armies
+	 */
+	public Map getTopologyCopy() {
+		return copy(false);
+	}
+	
+	private Map copy(boolean withState) {
 		Map newMap = new Map();
+		if(withState)
+			newMap.players = players; //the copy uses the same player ids
 		for(SuperRegion sr : superRegions) //copy superRegions
 		{
 			SuperRegion newSuperRegion = new SuperRegion(sr.getId(), sr.getArmiesReward());
@@ -61,42 +200,124 @@ public class Map {
 		}
 		for(Region r : regions) //copy regions
 		{
-			Region newRegion = new Region(r.getId(), newMap.getSuperRegion(r.getSuperRegion().getId()), r.getPlayerName(), r.getArmies());
+			Region newRegion = new Region(r.getId(), newMap.superRegions.get(r.getSuperRegion().getIndex()));
+			if(withState)
+			{
+				newRegion.setOwner(r.getOwner());
+				newRegion.setArmies(r.getArmies());
+			}
 			newMap.add(newRegion);
 		}
-		for(Region r : regions) //add neighbors to copied regions
+		if(hasNeighborIndex()) //the index only holds positions, so the copy can share it
+		{
+			newMap.neighborOffsets = neighborOffsets;
+			newMap.neighborTargets = neighborTargets;
+			newMap.neighborRegions = new Region[neighborTargets.length];
+			for(int k=0; k<neighborTargets.length; k++)
+				newMap.neighborRegions[k] = newMap.regions.get(neighborTargets[k]);
+			for(int i=0; i<regions.size(); i++)
+				newMap.regions.get(i).useNeighborIndex(newMap.neighborRegions, neighborOffsets[i], neighborOffsets[i+1] - neighborOffsets[i]);
+		}
+		else
 		{
-			Region newRegion = newMap.getRegion(r.getId());
-			for(Region neighbor : r.getNeighbors())
-				newRegion.addNeighbor(newMap.getRegion(neighbor.getId()));
+			for(Region r : regions) //add neighbors to copied regions
+			{
+				Region newRegion = newMap.regions.get(r.getIndex());
+				for(Region neighbor : r.getNeighbors())
+					newRegion.addNeighbor(newMap.regions.get(neighbor.getIndex()));
+			}
 		}
+		if(withState)
+			newMap.visible = (BitSet) visible.clone();
 		return newMap;
 	}
 	
 	/**
-	 * @return : the list of all Regions in this map
+	 * @return : the Zobrist hash of the owners and armies of all Regions, visible or not. It's updated
+	 * whenever a Region's owner or armies change, and equals the hash of a GameState of this map.
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	//called by a Region of this map when its owner or armies changed
+	void regionChanged(Region region, int oldOwner, int oldArmies)
+	{
+		int index = region.getIndex();
+		if(index >= regions.size() || regions.get(index) != region)
+			return;
+		hash ^= Zobrist.DEFAULT.key(index, oldOwner, oldArmies) ^ Zobrist.DEFAULT.key(index, region.getOwner(), region.getArmies());
+	}
+	
+	/**
+	 * @return : the list of all visible Regions in this map, in index order. Must not be modified.
 	 */
-	public LinkedList<Region> getRegions() {
-		return regions;
+	public ArrayList<Region> getRegions() {
+		if(visible.cardinality() == regions.size())
+			return regions;
+		if(visibleRegionsChanged)
+		{
+			visibleRegions.clear();
+			for(int i = visible.nextSetBit(0); i >= 0; i = visible.nextSetBit(i + 1))
+				visibleRegions.add(regions.get(i));
+			visibleRegionsChanged = false;
+		}
+		return visibleRegions;
 	}
 	
 	/**
 	 * @return : the list of all SuperRegions in this map
 	 */
-	public LinkedList<SuperRegion> getSuperRegions() {
+	public ArrayList<SuperRegion> getSuperRegions() {
 		return superRegions;
 	}
 	
+	/**
+	 * @return : the player ids used by the Regions of this map
+	 */
+	public Players getPlayers() {
+		return players;
+	}
+	
+	/**
+	 * @return : the number of Regions in this map, visible or not
+	 */
+	public int getRegionCount() {
+		return regions.size();
+	}
+	
+	/**
+	 * @param index : a number between 0 and getRegionCount()
+	 * @return : the Region with the given index, visible or not
+	 */
+	public Region getRegionAt(int index) {
+		return regions.get(index);
+	}
+	
+	/**
+	 * @return : offsets into getNeighborTargets() per Region index, with one extra entry at the end.
+	 * Null until buildNeighborIndex() is called. Must not be modified.
+	 */
+	public int[] getNeighborOffsets() {
+		return neighborOffsets;
+	}
+	
+	/**
+	 * @return : the Region indices of all neighbors, grouped per Region. Must not be modified.
+	 */
+	public int[] getNeighborTargets() {
+		return neighborTargets;
+	}
+	
 	/**
 	 * @param id : a Region id number
-	 * @return : the matching Region object
+	 * @return : the matching Region object, visible or not
 	 */
 	public Region getRegion(int id)
 	{
-		for(Region region : regions)
-			if(region.getId() == id)
-				return region;
-		return null;
+		if(id < 0 || id >= regionsById.length)
+			return null;
+		return regionsById[id];
 	}
 	
 	/**
@@ -105,16 +326,15 @@ public class Map {
 	 */
 	public SuperRegion getSuperRegion(int id)
 	{
-		for(SuperRegion superRegion : superRegions)
-			if(superRegion.getId() == id)
-				return superRegion;
-		return null;
+		if(id < 0 || id >= superRegionsById.length)
+			return null;
+		return superRegionsById[id];
 	}
 	
 	public String getMapString()
 	{
 		String mapString = "";
-		for(Region region : regions)
+		for(Region region : getRegions())
 		{
 			mapString = mapString.concat(region.getId() + ";" + region.getPlayerName() + ";" + region.getArmies() + " ");
 		}
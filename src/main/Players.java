@@ -0,0 +1,83 @@
+package main;
+
+/**
+ * Gives every player name a small id, so Regions can store and compare their owner as a number.
+ * The ids ME and OPPONENT are from the point of view of the bot that uses the Map; their names
+ * are set from the settings. Other names get a new id the first time they are seen.
+ */
+public class Players {
+
+	public static final int UNKNOWN = 0;
+	public static final int NEUTRAL = 1;
+	public static final int ME = 2;
+	public static final int OPPONENT = 3;
+
+	private String[] names;
+	private int count;
+
+	public Players()
+	{
+		names = new String[8];
+		names[UNKNOWN] = "unknown";
+		names[NEUTRAL] = "neutral";
+		count = 4;
+	}
+
+	/**
+	 * @param id : ME or OPPONENT
+	 * @param name : the name of that player
+	 */
+	public void setName(int id, String name)
+	{
+		names[id] = name;
+	}
+
+	/**
+	 * @param id : a player id
+	 * @return : the name of the player, or null if it isn't known yet
+	 */
+	public String getName(int id)
+	{
+		return names[id];
+	}
+
+	/**
+	 * @param name : a player name
+	 * @return : the id of the player, or -1 if the name has no id yet
+	 */
+	public int findId(String name)
+	{
+		for(int i=0; i<count; i++)
+			if(name.equals(names[i]))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @param name : a player name
+	 * @return : the id of the player, a new one if the name wasn't seen before
+	 */
+	public int getId(String name)
+	{
+		int id = findId(name);
+		if(id >= 0)
+			return id;
+		if(count == names.length)
+		{
+			String[] grown = new String[count * 2];
+			System.arraycopy(names, 0, grown, 0, count);
+			names = grown;
+		}
+		names[count] = name;
+		return count++;
+	}
+
+	/**
+	 * @return : the number of ids given out, ids are 0 to getCount()-1
+	 */
+	public int getCount()
+	{
+		return count;
+	}
+
+}
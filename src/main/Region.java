@@ -1,23 +1,30 @@
 package main;
 
-import java.util.LinkedList;
 import java.util.List;
 
 
 public class Region {
 	
+	private static final Region[] NO_NEIGHBORS = new Region[0];
+	
 	private int id;
-	private LinkedList<Region> neighbors;
+	private int index = -1; //position of this Region in its Map, set when it's added to one
+	private Region[] neighbors; //either this Region's own array or its slice of the Map's neighbor index
+	private int neighborOffset;
+	private int neighborCount;
+	private boolean sharedNeighbors; //true while neighbors points into the Map's neighbor index
+	private final ArrayView<Region> neighborView;
 	private SuperRegion superRegion;
 	private int armies;
-	private String playerName;
+	private int owner; //player id, see Players
 	
 	public Region(int id, SuperRegion superRegion)
 	{
 		this.id = id;
 		this.superRegion = superRegion;
-		this.neighbors = new LinkedList<Region>();
-		this.playerName = "unknown";
+		this.neighbors = NO_NEIGHBORS;
+		this.neighborView = new ArrayView<Region>(neighbors, 0, 0);
+		this.owner = Players.UNKNOWN;
 		this.armies = 0;
 		
 		superRegion.addSubRegion(this);
@@ -27,8 +34,9 @@ public class Region {
 	{
 		this.id = id;
 		this.superRegion = superRegion;
-		this.neighbors = new LinkedList<Region>();
-		this.playerName = playerName;
+		this.neighbors = NO_NEIGHBORS;
+		this.neighborView = new ArrayView<Region>(neighbors, 0, 0);
+		this.owner = superRegion.getPlayers().getId(playerName);
 		this.armies = armies;
 		
 		superRegion.addSubRegion(this);
@@ -36,23 +44,70 @@ public class Region {
 	
 	public void addNeighbor(Region neighbor)
 	{
-		if(!neighbors.contains(neighbor))
+		if(!isNeighbor(neighbor))
 		{
-			neighbors.add(neighbor);
+			if(sharedNeighbors || neighborCount == neighbors.length) //detach from the Map's index or grow
+			{
+				Region[] grown = new Region[Math.max(4, neighborCount * 2)];
+				System.arraycopy(neighbors, neighborOffset, grown, 0, neighborCount);
+				neighbors = grown;
+				neighborOffset = 0;
+				sharedNeighbors = false;
+			}
+			neighbors[neighborCount++] = neighbor;
+			neighborView.set(neighbors, neighborOffset, neighborCount);
 			neighbor.addNeighbor(this);
 		}
 	}
 	
+	/**
+	 * Lets this Region read its neighbors from the Map's neighbor index instead of its own array
+	 * @param index : the Map's array of neighbors, grouped per Region
+	 * @param offset : position of this Region's first neighbor in that array
+	 * @param count : number of neighbors of this Region
+	 */
+	void useNeighborIndex(Region[] index, int offset, int count)
+	{
+		neighbors = index;
+		neighborOffset = offset;
+		neighborCount = count;
+		sharedNeighbors = true;
+		neighborView.set(neighbors, neighborOffset, neighborCount);
+	}
+	
 	/**
 	 * @param region a Region object
 	 * @return True if this Region is a neighbor of given Region, false otherwise
 	 */
 	public boolean isNeighbor(Region region)
 	{
-		if(neighbors.contains(region))
-			return true;
+		for(int i=neighborOffset; i<neighborOffset+neighborCount; i++)
+			if(neighbors[i] == region)
+				return true;
 		return false;
 	}
+	
+	/**
+	 * @return True if this Region reads its neighbors from the Map's neighbor index
+	 */
+	boolean usesNeighborIndex() {
+		return sharedNeighbors;
+	}
+	
+	/**
+	 * @param i : a number between 0 and getNeighborCount()
+	 * @return The i-th neighbor of this Region
+	 */
+	public Region getNeighbor(int i) {
+		return neighbors[neighborOffset + i];
+	}
+	
+	/**
+	 * @return The number of neighbors of this Region
+	 */
+	public int getNeighborCount() {
+		return neighborCount;
+	}
 
 	/**
 	 * @param playerName A string with a player's name
@@ -60,23 +115,50 @@ public class Region {
 	 */
 	public boolean ownedByPlayer(String playerName)
 	{
-		if(playerName.equals(this.playerName))
+		if(owner == superRegion.getPlayers().findId(playerName))
 			return true;
 		return false;
 	}
 	
+	/**
+	 * @param playerId A player id, see Players
+	 * @return True if this region is owned by given player, false otherwise
+	 */
+	public boolean ownedByPlayer(int playerId)
+	{
+		return owner == playerId;
+	}
+	
 	/**
 	 * @param armies Sets the number of armies that are on this Region
 	 */
 	public void setArmies(int armies) {
+		int oldArmies = this.armies;
 		this.armies = armies;
+		changed(owner, oldArmies);
 	}
 	
 	/**
 	 * @param playerName Sets the Name of the player that this Region belongs to
 	 */
 	public void setPlayerName(String playerName) {
-		this.playerName = playerName;
+		setOwner(superRegion.getPlayers().getId(playerName));
+	}
+	
+	/**
+	 * @param owner Sets the id of the player that this Region belongs to, see Players
+	 */
+	public void setOwner(int owner) {
+		int oldOwner = this.owner;
+		this.owner = owner;
+		changed(oldOwner, armies);
+	}
+	
+	//lets the Map this Region is part of update its hash
+	private void changed(int oldOwner, int oldArmies) {
+		Map map = superRegion.getMap();
+		if(map != null && index >= 0)
+			map.regionChanged(this, oldOwner, oldArmies);
 	}
 	
 	/**
@@ -87,10 +169,21 @@ public class Region {
 	}
 	
 	/**
-	 * @return A list of this Region's neighboring Regions
+	 * @return The position of this Region in its Map (0 to regionCount-1), or -1 if not added to a Map
 	 */
-	public LinkedList<Region> getNeighbors() {
-		return neighbors;
+	public int getIndex() {
+		return index;
+	}
+	
+	void setIndex(int index) {
+		this.index = index;
+	}
+	
+	/**
+	 * @return A read-only list of this Region's neighboring Regions
+	 */
+	public List<Region> getNeighbors() {
+		return neighborView;
 	}
 	
 	/**
@@ -111,7 +204,14 @@ public class Region {
 	 * @return A string with the name of the player that owns this region
 	 */
 	public String getPlayerName() {
-			return playerName;
+			return superRegion.getPlayers().getName(owner);
+	}
+	
+	/**
+	 * @return The id of the player that owns this region, see Players
+	 */
+	public int getOwner() {
+		return owner;
 	}
 
 }
@@ -1,23 +1,38 @@
 package main;
-import java.util.LinkedList;
+import java.util.List;
 
 public class SuperRegion {
 	
 	private int id;
+	private int index = -1; //position of this SuperRegion in its Map, set when it's added to one
 	private int armiesReward;
-	private LinkedList<Region> subRegions;
+	private Region[] subRegions;
+	private int subRegionCount;
+	private final ArrayView<Region> subRegionView;
+	private Players players; //player ids of the Map this SuperRegion is part of
+	private Map map; //the Map this SuperRegion is part of, null if not added to one
 	
 	public SuperRegion(int id, int armiesReward)
 	{
 		this.id = id;
 		this.armiesReward = armiesReward;
-		subRegions = new LinkedList<Region>();
+		subRegions = new Region[4];
+		subRegionView = new ArrayView<Region>(subRegions, 0, 0);
 	}
 	
 	public void addSubRegion(Region subRegion)
 	{
-		if(!subRegions.contains(subRegion))
-			subRegions.add(subRegion);
+		for(int i=0; i<subRegionCount; i++)
+			if(subRegions[i] == subRegion)
+				return;
+		if(subRegionCount == subRegions.length)
+		{
+			Region[] grown = new Region[subRegionCount * 2];
+			System.arraycopy(subRegions, 0, grown, 0, subRegionCount);
+			subRegions = grown;
+		}
+		subRegions[subRegionCount++] = subRegion;
+		subRegionView.set(subRegions, 0, subRegionCount);
 	}
 	
 	/**
@@ -25,13 +40,50 @@ public class SuperRegion {
 	 */
 	public String ownedByPlayer()
 	{
-		String playerName = subRegions.getFirst().getPlayerName();
-		for(Region region : subRegions)
+		int owner = ownerId();
+		if(owner < 0)
+			return null;
+		return getPlayers().getName(owner);
+	}
+	
+	/**
+	 * @return The id of the player that fully owns this SuperRegion, or -1 if nobody does
+	 */
+	public int ownerId()
+	{
+		if(subRegionCount == 0)
+			return -1;
+		int owner = subRegions[0].getOwner();
+		for(int i=1; i<subRegionCount; i++)
 		{
-			if (!playerName.equals(region.getPlayerName()))
-				return null;
+			if (owner != subRegions[i].getOwner())
+				return -1;
 		}
-		return playerName;
+		return owner;
+	}
+	
+	/**
+	 * @return The player ids used by the Regions of this SuperRegion
+	 */
+	public Players getPlayers() {
+		if(players == null) //not added to a Map yet
+			players = new Players();
+		return players;
+	}
+	
+	void setPlayers(Players players) {
+		this.players = players;
+	}
+	
+	/**
+	 * @return The Map this SuperRegion was added to, null if none
+	 */
+	Map getMap() {
+		return map;
+	}
+	
+	void setMap(Map map) {
+		this.map = map;
 	}
 	
 	/**
@@ -41,6 +93,17 @@ public class SuperRegion {
 		return id;
 	}
 	
+	/**
+	 * @return The position of this SuperRegion in its Map, or -1 if not added to a Map
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	void setIndex(int index) {
+		this.index = index;
+	}
+	
 	/**
 	 * @return The number of armies a Player is rewarded when he fully owns this SuperRegion
 	 */
@@ -49,9 +112,9 @@ public class SuperRegion {
 	}
 	
 	/**
-	 * @return A list with the Regions that are part of this SuperRegion
+	 * @return A read-only list with the Regions that are part of this SuperRegion
 	 */
-	public LinkedList<Region> getSubRegions() {
-		return subRegions;
+	public List<Region> getSubRegions() {
+		return subRegionView;
 	}
 }
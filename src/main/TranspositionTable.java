@@ -0,0 +1,115 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of position values keyed by Zobrist hash, that search threads can share without locks.
+ * It's open addressing over one long[]: a hash probes a bucket of BUCKET_SIZE consecutive slots, and every
+ * slot holds two longs, the entry's data and the entry's data XOR its hash. Reads and writes of the two
+ * longs aren't atomic together, so a slot being written by another thread may be read half old and half
+ * new; then the XOR doesn't give the hash back and the read is a miss, never a wrong value.
+ *
+ * When a bucket is full, storing replaces the entry of the same hash if there's one, else the one
+ * of the oldest generation and then of the least depth, so the table never needs clearing during a game.
+ */
+public class TranspositionTable {
+
+	public static final int BUCKET_SIZE = 4;
+	public static final int MAX_DEPTH = 0xFFFE;
+
+	private final long[] table; //per slot, (hash ^ data, data)
+	private final int slotMask;
+	private volatile int generation;
+
+	/**
+	 * @param sizeLog2 : the table has 2^sizeLog2 entries, taking 16 bytes each
+	 */
+	public TranspositionTable(int sizeLog2)
+	{
+		if(sizeLog2 < 2 || sizeLog2 > 30)
+			throw new IllegalArgumentException("sizeLog2 must be between 2 and 30: " + sizeLog2);
+		table = new long[2 << sizeLog2];
+		slotMask = (1 << sizeLog2) - 1;
+	}
+
+	/**
+	 * @return The value stored for the hash, NaN if there's none
+	 */
+	public double get(long hash)
+	{
+		int first = (int) (hash ^ (hash >>> 32)) & slotMask & ~(BUCKET_SIZE - 1);
+		for(int i = 0; i < BUCKET_SIZE; i++)
+		{
+			int at = 2 * (first + i);
+			long data = table[at + 1];
+			if(data != 0 && (table[at] ^ data) == hash)
+				return Float.intBitsToFloat((int) (data >>> 32));
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Stores a value for the hash, unless the bucket is full of entries of this generation searched deeper
+	 * @param depth : how much search the value took, between 0 and MAX_DEPTH, to choose which entries to keep
+	 */
+	public void put(long hash, double value, int depth)
+	{
+		int gen = generation & 0xFFFF;
+		long data = (long) Float.floatToIntBits((float) value) << 32 | (long) gen << 16 | (Math.min(depth, MAX_DEPTH) + 1);
+		int first = (int) (hash ^ (hash >>> 32)) & slotMask & ~(BUCKET_SIZE - 1);
+		int replace = -1;
+		int replaceScore = Integer.MAX_VALUE;
+		for(int i = 0; i < BUCKET_SIZE; i++)
+		{
+			int at = 2 * (first + i);
+			long old = table[at + 1];
+			if(old == 0 || (table[at] ^ old) == hash)
+			{
+				replace = at;
+				replaceScore = -1;
+				break;
+			}
+			int score = keepScore(old, gen);
+			if(score < replaceScore)
+			{
+				replaceScore = score;
+				replace = at;
+			}
+		}
+		if(replaceScore > keepScore(data, gen))
+			return;
+		table[replace] = hash ^ data;
+		table[replace + 1] = data;
+	}
+
+	//entries of the current generation are kept before older ones, then deeper ones before shallower ones
+	private static int keepScore(long data, int gen)
+	{
+		int depth = (int) data & 0xFFFF;
+		return ((int) (data >>> 16) & 0xFFFF) == gen ? 0x10000 + depth : depth;
+	}
+
+	/**
+	 * Makes the entries stored so far the first to be replaced, e.g. at the start of a new round
+	 */
+	public void newGeneration()
+	{
+		generation++;
+	}
+
+	/**
+	 * Removes all entries, must not be called while other threads use the table
+	 */
+	public void clear()
+	{
+		Arrays.fill(table, 0);
+	}
+
+	/**
+	 * @return The number of entries the table can hold
+	 */
+	public int getCapacity() {
+		return slotMask + 1;
+	}
+
+}
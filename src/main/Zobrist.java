@@ -0,0 +1,49 @@
+package main;
+
+/**
+ * Zobrist keys for hashing positions: a position's hash is the XOR of the keys of all its Regions'
+ * (index, owner, army bucket), so changing a Region's owner or armies only XORs out its old key and
+ * XORs in its new one. Armies are bucketed (exact below 16, then one bucket per doubling), so small
+ * differences in big stacks don't make different positions. The keys are computed by mixing the
+ * seed with the triple instead of being stored, so maps of any size need no table.
+ */
+public class Zobrist {
+
+	public static final int EXACT_ARMIES = 16; //armies below this have their own bucket
+	public static final int BUCKETS = 32;
+
+	/** Keys used by every Map and GameState, so their hashes can be compared */
+	public static final Zobrist DEFAULT = new Zobrist(0x2545F4914F6CDD1DL);
+
+	private final long seed;
+
+	public Zobrist(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * @return The key of a Region with the given index, owner (see Players) and armies
+	 */
+	public long key(int region, int owner, int armies)
+	{
+		long z = seed + 0x9E3779B97F4A7C15L * ((((long) region) << 16 | (owner & 0xFF) << 8 | bucket(armies)) + 1);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return The bucket of a number of armies, between 0 and BUCKETS-1
+	 */
+	public static int bucket(int armies)
+	{
+		if(armies <= 0)
+			return 0;
+		if(armies < EXACT_ARMIES)
+			return armies;
+		int doublings = 31 - Integer.numberOfLeadingZeros(armies / EXACT_ARMIES);
+		return Math.min(BUCKETS - 1, EXACT_ARMIES + doublings);
+	}
+
+}
@@ -53,10 +53,20 @@ public class AttackTransferMove extends Move {
 	 * @return A string representation of this Move
 	 */
 	public String getString() {
+		StringBuilder out = new StringBuilder();
+		appendString(out);
+		return out.toString();
+	}
+	
+	/**
+	 * @param out Gets the string representation of this Move appended
+	 */
+	public void appendString(StringBuilder out) {
 		if(getIllegalMove().equals(""))
-			return getPlayerName() + " attack/transfer " + fromRegion.getId() + " " + toRegion.getId() + " " + armies;
+			out.append(getPlayerName()).append(" attack/transfer ").append(fromRegion.getId()).append(' ')
+				.append(toRegion.getId()).append(' ').append(armies);
 		else
-			return getPlayerName() + " illegal_move " + getIllegalMove();
+			out.append(getPlayerName()).append(" illegal_move ").append(getIllegalMove());
 	}
 
 }
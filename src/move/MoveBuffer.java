@@ -0,0 +1,124 @@
+package move;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import main.Map;
+
+/**
+ * A growable list of PackedMoves over a long[], meant to be kept and cleared rather than created anew,
+ * so filling it allocates nothing once it's big enough. Two buffers are equal if they hold the same
+ * moves in the same order.
+ */
+public class MoveBuffer {
+	
+	private long[] moves;
+	private int size;
+	
+	public MoveBuffer()
+	{
+		moves = new long[16];
+	}
+	
+	/**
+	 * @param other : buffer whose moves are copied
+	 */
+	public MoveBuffer(MoveBuffer other)
+	{
+		moves = Arrays.copyOf(other.moves, Math.max(16, other.size));
+		size = other.size;
+	}
+	
+	public void add(long move)
+	{
+		if(size == moves.length)
+			moves = Arrays.copyOf(moves, 2 * size);
+		moves[size++] = move;
+	}
+	
+	public long get(int i) {
+		return moves[i];
+	}
+	
+	public void set(int i, long move) {
+		moves[i] = move;
+	}
+	
+	/**
+	 * Removes the move at position i, the following ones move up
+	 */
+	public void remove(int i)
+	{
+		System.arraycopy(moves, i + 1, moves, i, size - i - 1);
+		size--;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	/**
+	 * Appends all moves of the other buffer
+	 */
+	public void addAll(MoveBuffer other)
+	{
+		for(int i=0; i<other.size; i++)
+			add(other.moves[i]);
+	}
+	
+	/**
+	 * @return New PlaceArmiesMoves for the placements of this buffer
+	 */
+	public ArrayList<PlaceArmiesMove> toPlaceArmiesMoves(Map map, String playerName)
+	{
+		ArrayList<PlaceArmiesMove> list = new ArrayList<PlaceArmiesMove>(size);
+		for(int i=0; i<size; i++)
+			if(PackedMove.isPlaceArmies(moves[i]))
+				list.add(PackedMove.toPlaceArmiesMove(moves[i], map, playerName));
+		return list;
+	}
+	
+	/**
+	 * @return New AttackTransferMoves for the attacks and transfers of this buffer
+	 */
+	public ArrayList<AttackTransferMove> toAttackTransferMoves(Map map, String playerName)
+	{
+		ArrayList<AttackTransferMove> list = new ArrayList<AttackTransferMove>(size);
+		for(int i=0; i<size; i++)
+			if(!PackedMove.isPlaceArmies(moves[i]))
+				list.add(PackedMove.toAttackTransferMove(moves[i], map, playerName));
+		return list;
+	}
+	
+	@Override
+	public boolean equals(Object other)
+	{
+		if(!(other instanceof MoveBuffer))
+			return false;
+		MoveBuffer buffer = (MoveBuffer) other;
+		if(buffer.size != size)
+			return false;
+		for(int i=0; i<size; i++)
+			if(buffer.moves[i] != moves[i])
+				return false;
+		return true;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+		for(int i=0; i<size; i++)
+			hash = 31 * hash + (int) (moves[i] ^ (moves[i] >>> 32));
+		return hash;
+	}
+	
+}
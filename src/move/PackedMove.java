@@ -0,0 +1,106 @@
+package move;
+
+import main.Map;
+
+/**
+ * Moves packed in a long, so search and simulation can keep them in a MoveBuffer without creating objects.
+ * From the highest bit down: the type (1 bit, 0 place armies, 1 attack/transfer), the player id (2 bits,
+ * see main.Players), the from region index (20 bits), the to region index (20 bits) and the armies
+ * (21 bits). A placement has its region as both from and to.
+ * The move classes are only created at the protocol boundary, see toPlaceArmiesMove() and toAttackTransferMove().
+ */
+public final class PackedMove {
+	
+	public static final int MAX_REGIONS = 1 << 20;
+	public static final int MAX_ARMIES = (1 << 21) - 1;
+	public static final int MAX_PLAYER = 3;
+	
+	private static final int ARMIES_BITS = 21;
+	private static final int REGION_BITS = 20;
+	private static final int TO_SHIFT = ARMIES_BITS;
+	private static final int FROM_SHIFT = TO_SHIFT + REGION_BITS;
+	private static final int PLAYER_SHIFT = FROM_SHIFT + REGION_BITS;
+	private static final int TYPE_SHIFT = PLAYER_SHIFT + 2;
+	private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+	
+	private PackedMove() {
+	}
+	
+	/**
+	 * @param region : region index
+	 */
+	public static long placeArmies(int player, int region, int armies)
+	{
+		return pack(0, player, region, region, armies);
+	}
+	
+	/**
+	 * @param from : region index
+	 * @param to : region index
+	 */
+	public static long attackTransfer(int player, int from, int to, int armies)
+	{
+		return pack(1, player, from, to, armies);
+	}
+	
+	private static long pack(long type, int player, int from, int to, int armies)
+	{
+		if(player < 0 || player > MAX_PLAYER || from < 0 || from >= MAX_REGIONS || to < 0 || to >= MAX_REGIONS
+			|| armies < 0 || armies > MAX_ARMIES)
+			throw new IllegalArgumentException("Move out of range: player " + player + ", " + from + " -> " + to + ", " + armies);
+		return type << TYPE_SHIFT | (long) player << PLAYER_SHIFT | (long) from << FROM_SHIFT | (long) to << TO_SHIFT | armies;
+	}
+	
+	public static boolean isPlaceArmies(long move) {
+		return move >= 0;
+	}
+	
+	public static int getPlayer(long move) {
+		return (int) (move >>> PLAYER_SHIFT) & MAX_PLAYER;
+	}
+	
+	/**
+	 * @return The region index armies are placed on, or attack or transfer from
+	 */
+	public static int getFrom(long move) {
+		return (int) ((move >>> FROM_SHIFT) & REGION_MASK);
+	}
+	
+	/**
+	 * @return The region index armies are placed on, or attack or transfer to
+	 */
+	public static int getTo(long move) {
+		return (int) ((move >>> TO_SHIFT) & REGION_MASK);
+	}
+	
+	public static int getArmies(long move) {
+		return (int) move & MAX_ARMIES;
+	}
+	
+	/**
+	 * @return The same move with another number of armies
+	 */
+	public static long withArmies(long move, int armies)
+	{
+		if(armies < 0 || armies > MAX_ARMIES)
+			throw new IllegalArgumentException("Armies out of range: " + armies);
+		return move & ~(long) MAX_ARMIES | armies;
+	}
+	
+	/**
+	 * @param map : the Map whose region indices the move uses
+	 */
+	public static PlaceArmiesMove toPlaceArmiesMove(long move, Map map, String playerName)
+	{
+		return new PlaceArmiesMove(playerName, map.getRegionAt(getFrom(move)), getArmies(move));
+	}
+	
+	/**
+	 * @param map : the Map whose region indices the move uses
+	 */
+	public static AttackTransferMove toAttackTransferMove(long move, Map map, String playerName)
+	{
+		return new AttackTransferMove(playerName, map.getRegionAt(getFrom(move)), map.getRegionAt(getTo(move)), getArmies(move));
+	}
+	
+}
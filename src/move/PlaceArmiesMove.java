@@ -43,11 +43,19 @@ public class PlaceArmiesMove extends Move {
 	 * @return A string representation of this Move
 	 */
 	public String getString() {
+		StringBuilder out = new StringBuilder();
+		appendString(out);
+		return out.toString();
+	}
+	
+	/**
+	 * @param out Gets the string representation of this Move appended
+	 */
+	public void appendString(StringBuilder out) {
 		if(getIllegalMove().equals(""))
-			return getPlayerName() + " place_armies " + region.getId() + " " + armies;
+			out.append(getPlayerName()).append(" place_armies ").append(region.getId()).append(' ').append(armies);
 		else
-			return getPlayerName() + " illegal_move " + getIllegalMove();
-				
+			out.append(getPlayerName()).append(" illegal_move ").append(getIllegalMove());
 	}
 	
 }
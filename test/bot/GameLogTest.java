@@ -0,0 +1,120 @@
+package bot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that what GameRecorder writes, GameLog reads back line for line: numbers of every varint length,
+ * tokens that only look like numbers, empty tokens and lines, and lines longer than the recorder's buffer.
+ * A log cut anywhere in its last record reads back all the records before it.
+ */
+public class GameLogTest {
+
+	private static final String[] LINES = {
+		"settings your_bot player1",
+		"setup_map neighbors 1 2,3,4 2 3 4 5,6",
+		"go place_armies 2000",
+		"player1 place_armies 12 5, player1 place_armies 3 1",
+		"No moves",
+		"",
+		"0",
+		"007 -5 +5 1e3 12a",
+		"127 128 16383 16384 2097151 2097152",
+		"123456789012345678 1234567890123456789 99999999999999999999",
+		"a,,b  c ,",
+		"trailing ",
+		" leading",
+		"pick_starting_regions 10000 1 7 12 13 18 15 24 25 29 37 42 41"
+	};
+
+	public static void main(String[] args) throws IOException
+	{
+		ArrayList<String> lines = new ArrayList<String>(Arrays.asList(LINES));
+		lines.add(createLongLine(new Random(1), 20000));
+		int[] starts = new int[lines.size()];
+		byte[] log = record(lines, starts);
+
+		checkReadsBack(GameLog.read(new ByteArrayInputStream(log)), lines, lines.size());
+		checkReadsBack(new GameLog(ByteBuffer.wrap(log)), lines, lines.size());
+		testTruncatedLastRecord(lines, log, starts[lines.size() - 1]);
+		testNotALog();
+		System.out.println("GameLogTest passed");
+	}
+
+	//every cut of the last record, its length's varint included, leaves the records before it
+	private static void testTruncatedLastRecord(List<String> lines, byte[] log, int lastStart) throws IOException
+	{
+		for(int end=lastStart; end<log.length; end++)
+			checkReadsBack(new GameLog(ByteBuffer.wrap(Arrays.copyOf(log, end))), lines, lines.size() - 1);
+	}
+
+	private static void testNotALog() throws IOException
+	{
+		try {
+			new GameLog(ByteBuffer.wrap("settings your_bot player1".getBytes(StandardCharsets.US_ASCII)));
+		}
+		catch(IOException e) {
+			return;
+		}
+		throw new AssertionError("a text file was read as a game log");
+	}
+
+	/**
+	 * @param starts : filled with the position of every line's record in the log
+	 * @return The log of the lines recorded alternately as input and output
+	 */
+	private static byte[] record(List<String> lines, int[] starts) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GameRecorder recorder = new GameRecorder(out);
+		for(int i=0; i<lines.size(); i++)
+		{
+			starts[i] = out.size();
+			byte[] line = lines.get(i).getBytes(StandardCharsets.US_ASCII);
+			recorder.record(i % 2 == 0 ? GameRecorder.INPUT : GameRecorder.OUTPUT, line, line.length);
+		}
+		recorder.close();
+		return out.toByteArray();
+	}
+
+	private static void checkReadsBack(GameLog log, List<String> lines, int count) throws IOException
+	{
+		for(int i=0; i<count; i++)
+		{
+			check(log.next(), "record " + i + " of " + count + " is missing");
+			check(log.getKind() == (i % 2 == 0 ? GameRecorder.INPUT : GameRecorder.OUTPUT), "kind of record " + i);
+			check(log.getMicros() >= 0, "time of record " + i);
+			check(log.getLine().equals(lines.get(i)), "record " + i + " reads back as \"" + log.getLine() + "\"");
+		}
+		check(!log.next(), "a record after the last of " + count);
+	}
+
+	//numbers, words and separators at random, longer than the recorder's first buffer
+	private static String createLongLine(Random random, int length)
+	{
+		StringBuilder line = new StringBuilder("update_map");
+		while(line.length() < length)
+		{
+			line.append(random.nextInt(4) == 0 ? ',' : ' ');
+			if(random.nextBoolean())
+				line.append(Math.abs(random.nextLong()) >>> random.nextInt(64));
+			else
+				line.append("player").append(random.nextInt(3));
+		}
+		return line.toString();
+	}
+
+	private static void check(boolean condition, String what)
+	{
+		if(!condition)
+			throw new AssertionError(what);
+	}
+
+}
@@ -0,0 +1,116 @@
+package bot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import engine.MapGenerator;
+import main.DistanceTable;
+import main.Map;
+import main.Players;
+import main.Region;
+
+/**
+ * Plays a full round on a map too big for a DistanceTable, where BotStarter has no transfer plan and its
+ * interior regions send their armies to the nearest front by the hops of findFront() alone: every transfer
+ * from an interior region must go one step closer to the front.
+ */
+public class LargeMapTest {
+
+	public static final int REGIONS = DistanceTable.MAX_REGIONS + 904;
+
+	public static void main(String[] args)
+	{
+		MapGenerator generator = new MapGenerator(3);
+		generator.setRegionCount(REGIONS);
+		generator.setOwnership(3, 200, 5); //enough regions that some are interior
+		StringBuilder input = new StringBuilder();
+		for(String line : generator.getSetupLines())
+			input.append(line).append('\n');
+		input.append("settings your_bot player1\nsettings opponent_bot player2\nsettings starting_armies 10\n");
+		input.append(generator.getUpdateLine(MapGenerator.PLAYER1)).append('\n');
+		input.append("opponent_moves\ngo place_armies 2000\ngo attack/transfer 2000\n");
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BotParser parser = new BotParser(new BotStarter(), new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.US_ASCII)), output);
+		parser.run();
+		check(parser.currentState.getDistances() == null, "the map has a DistanceTable");
+
+		String[] answers = new String(output.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+		check(answers.length == 2, "answers to both go requests, got " + answers.length);
+		check(answers[0].contains("place_armies"), "placements: " + answers[0]);
+		check(answers[1].contains("attack/transfer"), "attacks and transfers: " + answers[1]);
+		checkInteriorTransfers(generator.createMap(), answers[1]);
+		System.out.println("LargeMapTest passed");
+	}
+
+	private static void checkInteriorTransfers(Map map, String answer)
+	{
+		int[] steps = getStepsToFront(map);
+		int transfers = 0;
+		for(String move : answer.split(", *"))
+		{
+			String[] parts = move.trim().split(" ");
+			Region from = map.getRegion(Integer.parseInt(parts[2]));
+			Region to = map.getRegion(Integer.parseInt(parts[3]));
+			if(!isInterior(from))
+				continue;
+			check(steps[to.getIndex()] == steps[from.getIndex()] - 1, "transfer " + move + " doesn't go towards the front");
+			transfers++;
+		}
+		check(transfers > 0, "no transfers from interior regions");
+	}
+
+	//per region index, moves to the nearest front region: my regions bordering the opponent, or bordering anyone else if none do
+	private static int[] getStepsToFront(Map map)
+	{
+		ArrayList<Region> front = new ArrayList<Region>();
+		for(boolean opponentOnly : new boolean[] {true, false})
+		{
+			for(Region region : map.getRegions())
+				if(region.ownedByPlayer(Players.ME) && borders(region, opponentOnly))
+					front.add(region);
+			if(!front.isEmpty())
+				break;
+		}
+		int[] steps = new int[map.getRegionCount()];
+		Arrays.fill(steps, -1);
+		for(Region region : front)
+			steps[region.getIndex()] = 0;
+		for(int head=0; head<front.size(); head++)
+		{
+			Region region = front.get(head);
+			for(Region neighbor : region.getNeighbors())
+			{
+				if(steps[neighbor.getIndex()] < 0)
+				{
+					steps[neighbor.getIndex()] = steps[region.getIndex()] + 1;
+					front.add(neighbor);
+				}
+			}
+		}
+		return steps;
+	}
+
+	private static boolean borders(Region region, boolean opponentOnly)
+	{
+		for(Region neighbor : region.getNeighbors())
+			if(opponentOnly ? neighbor.ownedByPlayer(Players.OPPONENT) : !neighbor.ownedByPlayer(Players.ME))
+				return true;
+		return false;
+	}
+
+	private static boolean isInterior(Region region)
+	{
+		return region.ownedByPlayer(Players.ME) && !borders(region, false);
+	}
+
+	private static void check(boolean condition, String what)
+	{
+		if(!condition)
+			throw new AssertionError(what);
+	}
+
+}
@@ -0,0 +1,112 @@
+package bot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import engine.OpeningBookBuilder;
+import main.Map;
+import main.Region;
+
+/**
+ * Checks that a written OpeningBook finds every map it was written with, also when their topology hashes
+ * collide in the hash table and when a run of taken slots wraps around its end, and that it doesn't find
+ * maps it wasn't written with.
+ */
+public class OpeningBookTest {
+
+	public static void main(String[] args) throws IOException
+	{
+		Random random = new Random(1);
+		Map world = OpeningBookBuilder.createMap("world");
+		Map small = OpeningBookBuilder.createMap("generated:30:1");
+		Map large = OpeningBookBuilder.createMap("generated:60:2");
+		long worldHash = OpeningBook.getTopologyHash(world);
+
+		//9 maps, so 32 slots: 3 made up ones take the world's slot and the next ones before the world is written,
+		//2 take the last slot and wrap around, and the world is given again with the ranking it keeps
+		int slotCount = 32;
+		int[] oldWorldRanking = createRanking(world, random);
+		int[] worldRanking = createRanking(world, random);
+		int[] smallRanking = createRanking(small, random);
+		int[] largeRanking = createRanking(large, random);
+		long[] hashes = {worldHash + slotCount, worldHash + 2 * slotCount, worldHash + 3 * slotCount, worldHash,
+			OpeningBook.getTopologyHash(small), OpeningBook.getTopologyHash(large), slotCount - 1, 2 * slotCount - 1, worldHash};
+		int[][] rankings = {{1}, {2}, {3}, oldWorldRanking, smallRanking, largeRanking, {4}, {5}, worldRanking};
+
+		File file = File.createTempFile("opening", ".book");
+		file.deleteOnExit();
+		OpeningBook.write(file.getPath(), hashes, rankings);
+		OpeningBook book = OpeningBook.map(file.getPath());
+
+		for(long hash : hashes)
+			check(book.contains(hash), "map " + Long.toHexString(hash) + " not found");
+		check(!book.contains(worldHash + 4 * slotCount), "a map colliding with the world found");
+		check(!book.contains(3 * slotCount - 1), "a map colliding with the wrapped maps found");
+		check(!book.contains(OpeningBook.getTopologyHash(OpeningBookBuilder.createMap("generated:30:2"))), "an unknown map found");
+
+		checkRanking(book, world, worldRanking);
+		checkRanking(book, small, smallRanking);
+		checkRanking(book, large, largeRanking);
+		check(book.rank(OpeningBookBuilder.createMap("generated:30:2"), small.getRegions(), 6).isEmpty(), "a ranking of an unknown map");
+		testEmptyRanking(file);
+		System.out.println("OpeningBookTest passed");
+	}
+
+	//the whole ranking, and the best few of a part of the regions
+	private static void checkRanking(OpeningBook book, Map map, int[] ranking)
+	{
+		List<Region> all = book.rank(map, map.getRegions(), map.getRegionCount());
+		check(all.size() == ranking.length, "ranking size of a map of " + map.getRegionCount() + " regions");
+		for(int i=0; i<ranking.length; i++)
+			check(all.get(i).getId() == ranking[i], "pick " + i + " of a map of " + map.getRegionCount() + " regions");
+
+		ArrayList<Region> candidates = new ArrayList<Region>();
+		for(Region region : map.getRegions())
+			if(region.getId() % 3 == 0)
+				candidates.add(region);
+		List<Region> best = book.rank(map, candidates, 4);
+		int found = 0;
+		for(int i=0; i<ranking.length && found < 4; i++)
+		{
+			if(ranking[i] % 3 != 0)
+				continue;
+			check(best.get(found).getId() == ranking[i], "candidate pick " + found + " of a map of " + map.getRegionCount() + " regions");
+			found++;
+		}
+		check(best.size() == found, "number of candidate picks");
+	}
+
+	private static void testEmptyRanking(File file) throws IOException
+	{
+		try {
+			OpeningBook.write(file.getPath(), new long[] {1}, new int[][] {{}});
+		}
+		catch(IllegalArgumentException e) {
+			return;
+		}
+		throw new AssertionError("a book with an empty ranking was written");
+	}
+
+	private static int[] createRanking(Map map, Random random)
+	{
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for(Region region : map.getRegions())
+			ids.add(region.getId());
+		Collections.shuffle(ids, random);
+		int[] ranking = new int[ids.size()];
+		for(int i=0; i<ranking.length; i++)
+			ranking[i] = ids.get(i);
+		return ranking;
+	}
+
+	private static void check(boolean condition, String what)
+	{
+		if(!condition)
+			throw new AssertionError(what);
+	}
+
+}
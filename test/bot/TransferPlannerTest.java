@@ -0,0 +1,164 @@
+package bot;
+
+import java.util.Random;
+
+import main.DistanceTable;
+
+/**
+ * Checks TransferPlanner against a brute-force optimum on small instances: a solve sends as many armies as
+ * any flow can, at the least total number of moves for that many. The instances follow each other on one
+ * planner, so the warm starts from the previous round's flows are checked too, also after a solve that was
+ * stopped by its deadline, which must still send its armies at the least cost.
+ */
+public class TransferPlannerTest {
+
+	public static final int ROUNDS = 2000;
+	public static final int POOL = 7; //regions the sources and sinks are taken from
+	public static final int MAX_ARMIES = 4;
+
+	//a ring of 10 regions with two chords, and a path of 4 regions it can't reach
+	private static final String[] SETUP_MAP = {
+		"setup_map super_regions 1 2 2 1",
+		"setup_map regions 1 1 2 1 3 1 4 1 5 1 6 1 7 1 8 1 9 1 10 1 11 2 12 2 13 2 14 2",
+		"setup_map neighbors 1 2,6,10 2 3 3 4,8 4 5 5 6 6 7 7 8 8 9 9 10 11 12 12 13 13 14"
+	};
+
+	public static void main(String[] args)
+	{
+		BotState state = new BotState();
+		for(String line : SETUP_MAP)
+			state.setupMap(line.split(" "));
+		DistanceTable distances = state.getDistances();
+		check(distances.getDistance(0, 5) == 1 && distances.getDistance(0, 10) == DistanceTable.UNREACHABLE, "the test map");
+
+		Random random = new Random(1);
+		TransferPlanner planner = new TransferPlanner();
+		int regionCount = distances.getRegionCount();
+		int[] pool = new int[POOL];
+		int[] supply = new int[regionCount];
+		int[] demand = new int[regionCount];
+		for(int round=0; round<ROUNDS; round++)
+		{
+			//mostly small changes to the last round, so the warm start has flows to keep
+			if(round % 10 == 0)
+			{
+				for(int k=0; k<POOL; k++)
+					pool[k] = random.nextInt(regionCount);
+				for(int i=0; i<regionCount; i++)
+				{
+					supply[i] = 0;
+					demand[i] = 0;
+				}
+			}
+			for(int changes = 1 + random.nextInt(3); changes > 0; changes--)
+			{
+				int region = pool[random.nextInt(POOL)];
+				supply[region] = 0;
+				demand[region] = 0;
+				int armies = random.nextInt(MAX_ARMIES + 1);
+				if(random.nextBoolean())
+					supply[region] = armies;
+				else
+					demand[region] = armies;
+			}
+
+			boolean stopped = random.nextInt(8) == 0;
+			planner.solve(distances, supply, demand, stopped ? new Deadline(0) : Deadline.untilCancelled());
+			checkOptimal(planner, distances, supply, demand, !stopped, "round " + round);
+		}
+		System.out.println("TransferPlannerTest passed");
+	}
+
+	//the planner's flow is feasible, and no flow sending as many armies is cheaper, nor does any send more if it's complete
+	private static void checkOptimal(TransferPlanner planner, DistanceTable distances, int[] supply, int[] demand,
+			boolean complete, String what)
+	{
+		int regionCount = supply.length;
+		int sent = 0, cost = 0;
+		int[] received = new int[regionCount];
+		for(int source=0; source<regionCount; source++)
+		{
+			int given = 0;
+			for(int sink=0; sink<regionCount; sink++)
+			{
+				int armies = planner.getFlow(source, sink);
+				if(armies == 0)
+					continue;
+				check(armies > 0 && supply[source] > 0 && demand[sink] > 0, what + ": flow between a source and a sink");
+				check(distances.getDistance(source, sink) != DistanceTable.UNREACHABLE, what + ": flow to an unreachable sink");
+				given += armies;
+				received[sink] += armies;
+				cost += armies * distances.getDistance(source, sink);
+			}
+			check(given <= supply[source], what + ": supply of region " + source + " exceeded");
+			check(planner.getRemainingSupply(source) == (supply[source] > 0 ? supply[source] - given : 0),
+				what + ": remaining supply of region " + source);
+			sent += given;
+		}
+		for(int sink=0; sink<regionCount; sink++)
+			check(received[sink] <= demand[sink], what + ": demand of region " + sink + " exceeded");
+
+		int[] cheapest = bruteForce(distances, supply, demand);
+		check(cost == cheapest[sent], what + ": " + sent + " armies sent at a cost of " + cost + " instead of " + cheapest[sent]);
+		if(complete)
+			check(sent == cheapest.length - 1 || cheapest[sent + 1] == Integer.MAX_VALUE, what + ": more armies could be sent than " + sent);
+	}
+
+	/**
+	 * @return Per number of armies sent, the least cost of a flow sending that many, Integer.MAX_VALUE if none can
+	 */
+	private static int[] bruteForce(DistanceTable distances, int[] supply, int[] demand)
+	{
+		int regionCount = supply.length;
+		int sourceCount = 0, sinkCount = 0, total = 0;
+		int[] sources = new int[regionCount];
+		int[] sinks = new int[regionCount];
+		for(int i=0; i<regionCount; i++)
+		{
+			if(supply[i] > 0)
+			{
+				sources[sourceCount++] = i;
+				total += supply[i];
+			}
+			else if(demand[i] > 0)
+				sinks[sinkCount++] = i;
+		}
+		int[] cheapest = new int[total + 1];
+		for(int n=1; n<=total; n++)
+			cheapest[n] = Integer.MAX_VALUE;
+		int[] left = supply.clone();
+		int[] needed = demand.clone();
+		enumerate(distances, sources, sourceCount, sinks, sinkCount, 0, left, needed, 0, 0, cheapest);
+		return cheapest;
+	}
+
+	//every way to send the armies of the pairs from this one on, given what's sent so far
+	private static void enumerate(DistanceTable distances, int[] sources, int sourceCount, int[] sinks, int sinkCount,
+			int pair, int[] left, int[] needed, int sent, int cost, int[] cheapest)
+	{
+		if(pair == sourceCount * sinkCount)
+		{
+			cheapest[sent] = Math.min(cheapest[sent], cost);
+			return;
+		}
+		int source = sources[pair / sinkCount], sink = sinks[pair % sinkCount];
+		int distance = distances.getDistance(source, sink);
+		int most = distance == DistanceTable.UNREACHABLE ? 0 : Math.min(left[source], needed[sink]);
+		for(int armies=0; armies<=most; armies++)
+		{
+			left[source] -= armies;
+			needed[sink] -= armies;
+			enumerate(distances, sources, sourceCount, sinks, sinkCount, pair + 1, left, needed, sent + armies,
+				cost + armies * distance, cheapest);
+			left[source] += armies;
+			needed[sink] += armies;
+		}
+	}
+
+	private static void check(boolean condition, String what)
+	{
+		if(!condition)
+			throw new AssertionError(what);
+	}
+
+}
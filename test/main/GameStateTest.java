@@ -0,0 +1,153 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import engine.MapGenerator;
+
+/**
+ * Checks GameState's make/unmake: every undo() restores the owners, armies, arrived armies and hash the
+ * state had before the move exactly, and the hash kept up to date through the moves always equals the
+ * hash of a fresh state of the same owners and armies.
+ */
+public class GameStateTest {
+
+	public static final int GAMES = 20;
+	public static final int MOVES = 300;
+
+	public static void main(String[] args)
+	{
+		for(long seed=1; seed<=GAMES; seed++)
+			testUndoRestoresEveryMove(seed);
+		testUndoToDepth();
+		testNothingToUndo();
+		System.out.println("GameStateTest passed");
+	}
+
+	//plays random moves, checking the hash after each, then undoes them one by one back to the start
+	private static void testUndoRestoresEveryMove(long seed)
+	{
+		Random random = new Random(seed);
+		Map map = createMap(seed);
+		GameState state = createRandomState(map, random);
+		check(state.getHash() == hashOf(state, map), "hash of the set up state");
+
+		ArrayList<GameState> before = new ArrayList<GameState>();
+		for(int m=0; m<MOVES; m++)
+		{
+			before.add(new GameState(state));
+			applyRandomMove(state, random);
+			check(state.getUndoDepth() == m + 1, "undo depth after move " + m);
+			check(state.getHash() == hashOf(state, map), "hash after move " + m + " of game " + seed);
+		}
+		for(int m=MOVES-1; m>=0; m--)
+		{
+			state.undo();
+			checkSame(before.get(m), state, "undo of move " + m + " of game " + seed);
+		}
+		check(state.getUndoDepth() == 0, "undo depth after undoing all moves");
+	}
+
+	private static void testUndoToDepth()
+	{
+		Random random = new Random(42);
+		Map map = createMap(42);
+		GameState state = createRandomState(map, random);
+		for(int m=0; m<20; m++)
+			applyRandomMove(state, random);
+		int depth = state.getUndoDepth();
+		GameState at = new GameState(state);
+		for(int m=0; m<50; m++)
+			applyRandomMove(state, random);
+		state.undoTo(depth);
+		check(state.getUndoDepth() == depth, "undo depth after undoTo()");
+		checkSame(at, state, "undoTo()");
+	}
+
+	private static void testNothingToUndo()
+	{
+		GameState state = new GameState(createMap(1));
+		try {
+			state.undo();
+		}
+		catch(IllegalStateException e) {
+			return;
+		}
+		throw new AssertionError("undo() of a new state didn't fail");
+	}
+
+	private static Map createMap(long seed)
+	{
+		MapGenerator generator = new MapGenerator(seed);
+		generator.setRegionCount(40);
+		return generator.createMap();
+	}
+
+	private static GameState createRandomState(Map map, Random random)
+	{
+		GameState state = new GameState(map);
+		for(int i=0; i<state.getRegionCount(); i++)
+		{
+			state.setOwner(i, Players.NEUTRAL + random.nextInt(3));
+			state.setArmies(i, 1 + random.nextInt(10));
+		}
+		return state;
+	}
+
+	//a new round, a placement, or an attack or transfer, some of them by a player who doesn't own the region
+	private static void applyRandomMove(GameState state, Random random)
+	{
+		int kind = random.nextInt(10);
+		int region = random.nextInt(state.getRegionCount());
+		if(kind == 0)
+			state.beginRound();
+		else if(kind < 4)
+			state.placeArmies(region, 1 + random.nextInt(5));
+		else
+		{
+			int start = state.getNeighborStart(region);
+			int to = state.getNeighborTargets()[start + random.nextInt(state.getNeighborEnd(region) - start)];
+			int player = random.nextInt(5) == 0 ? Players.ME + random.nextInt(2) : state.getOwner(region);
+			state.attackTransfer(player, region, to, 1 + random.nextInt(state.getArmies(region) + 2), random);
+		}
+	}
+
+	//the hash of a state made from scratch with the same owners and armies
+	private static long hashOf(GameState state, Map map)
+	{
+		state.writeTo(map);
+		return new GameState(map).getHash();
+	}
+
+	private static void checkSame(GameState expected, GameState actual, String what)
+	{
+		check(actual.getHash() == expected.getHash(), what + ": hash");
+		for(int i=0; i<expected.getRegionCount(); i++)
+		{
+			check(actual.getOwner(i) == expected.getOwner(i), what + ": owner of region " + i);
+			check(actual.getArmies(i) == expected.getArmies(i), what + ": armies of region " + i);
+			check(getMovableArmies(actual, i) == getMovableArmies(expected, i), what + ": arrived armies of region " + i);
+		}
+	}
+
+	//armies that don't move when the region transfers all it can, found by trying it and undoing it
+	private static int getMovableArmies(GameState state, int region)
+	{
+		int armies = state.getArmies(region);
+		int to = state.getNeighborTargets()[state.getNeighborStart(region)];
+		int toOwner = state.getOwner(to);
+		state.setOwner(to, state.getOwner(region));
+		state.attackTransfer(state.getOwner(region), region, to, Integer.MAX_VALUE, new Random(0));
+		int movable = armies - state.getArmies(region);
+		state.undo();
+		state.setOwner(to, toOwner);
+		return movable;
+	}
+
+	private static void check(boolean condition, String what)
+	{
+		if(!condition)
+			throw new AssertionError(what);
+	}
+
+}